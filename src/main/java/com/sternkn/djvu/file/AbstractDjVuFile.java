@@ -0,0 +1,173 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file;
+
+import com.sternkn.djvu.file.chunks.Chunk;
+import com.sternkn.djvu.file.chunks.ChunkId;
+import com.sternkn.djvu.file.chunks.ComponentInfo;
+import com.sternkn.djvu.file.chunks.ComponentType;
+import com.sternkn.djvu.file.chunks.InclChunk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/*
+    The page and shared dictionary lookups which do not depend on how the chunks are stored.
+    The implementations provide the chunk lookup by offset and the siblings of a chunk.
+ */
+public abstract class AbstractDjVuFile implements DjVuFile {
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractDjVuFile.class);
+
+    static final int OFFSET_ALIGNMENT = 20;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Chunk getChunkByOffset(long offset) {
+        Chunk chunk = findChunkByOffset(OFFSET_ALIGNMENT + offset);
+        if (chunk == null) {
+            throw new DjVuFileException(String.format("Chunk with offset %d not found.", offset));
+        }
+
+        return chunk;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getComponentOffset(ComponentInfo component) {
+        return component.getOffset();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<ChunkId, List<Chunk>> getAllPageChunks(Chunk chunk) {
+        return Collections.unmodifiableMap(getSiblings(chunk));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Chunk> getAllPageChunksWithSameChunkId(Chunk chunk) {
+        return getSiblings(chunk, chunk.getChunkId());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Chunk findSharedShapeChunk(Chunk chunk) {
+
+        if (chunk.getChunkId() != ChunkId.Sjbz) {
+            throw new IllegalArgumentException("Chunk id " + chunk.getChunkId() + " is not a JB2 bitonal data chunk");
+        }
+
+        final List<String> sharedComponentIDs = getSharedComponentIDs(chunk);
+        final List<Chunk>  sharedShapeChunks = getSiblingDictionaryChunks(chunk);
+        if (sharedComponentIDs.isEmpty() && sharedShapeChunks.isEmpty()) {
+            LOG.debug("No shared component ID found for chunk - {}", chunk);
+            return null;
+        }
+
+        if (!sharedShapeChunks.isEmpty()) {
+            return listToOne(sharedShapeChunks, "This is not a valid case!",
+                "We have more than one shared chunks for chunk id " + chunk.getChunkId());
+        }
+
+        List<ComponentInfo> components = getDirectoryChunk().getComponents().stream()
+            .filter(c -> sharedComponentIDs.contains(c.getId()))
+            .filter(c -> c.getType() == ComponentType.INCLUDED)
+            .toList();
+
+        if (components.isEmpty()) {
+            LOG.warn("We can not find component for shared component IDs: {}", sharedComponentIDs);
+            return null;
+        }
+
+        Set<Long> offsets = components.stream()
+            .map(c -> getComponentOffset(c) + OFFSET_ALIGNMENT)
+            .collect(Collectors.toSet());
+
+        final Chunk sharedShapeChunk = offsets.stream()
+            .map(this::findChunkByOffset)
+            .filter(c -> c != null && c.getChunkId() == ChunkId.Djbz)
+            .min(Comparator.comparingLong(Chunk::getId))
+            .orElse(null);
+
+        if (sharedShapeChunk == null) {
+            LOG.debug("No shared shape chunk found for chunk - {}", chunk);
+        }
+
+        return sharedShapeChunk;
+    }
+
+    /**
+     * Returns the chunk whose data starts at the given offset.
+     *
+     * @param chunkOffset the offset of the first data byte of the chunk
+     * @return the chunk or {@code null} if there is no such chunk
+     */
+    protected abstract Chunk findChunkByOffset(long chunkOffset);
+
+    /**
+     * Returns the chunks which have the same parent as the given chunk (including the chunk itself).
+     *
+     * @param chunk the chunk
+     * @return the siblings grouped by chunk id; an empty map if the chunk has no parent
+     */
+    protected abstract Map<ChunkId, List<Chunk>> getSiblings(Chunk chunk);
+
+    protected static Chunk listToOne(List<Chunk> list, String emptyError, String manyWarning) {
+        if (list.isEmpty()) {
+            throw new DjVuFileException(emptyError);
+        }
+
+        if (list.size() > 1) {
+            LOG.warn(manyWarning);
+        }
+
+        return list.getFirst();
+    }
+
+    private List<Chunk> getSiblings(Chunk chunk, ChunkId chunkId) {
+        List<Chunk> siblings = getSiblings(chunk).get(chunkId);
+        return siblings == null ? List.of() : Collections.unmodifiableList(siblings);
+    }
+
+    private List<Chunk> getSiblingDictionaryChunks(Chunk chunk) {
+        return getSiblings(chunk, ChunkId.Djbz);
+    }
+
+    private List<String> getSharedComponentIDs(Chunk chunk) {
+        return getSiblings(chunk, ChunkId.INCL).stream()
+                .map(InclChunk::new)
+                .map(InclChunk::getSharedComponentID)
+                .toList();
+    }
+}
@@ -0,0 +1,36 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file;
+
+/**
+ * Defines how {@link DjVuFileReader} provides the data of non-composite chunks.
+ */
+public enum ChunkDataMode {
+
+    /*
+        Every chunk data is read into its own byte array when the file is opened.
+     */
+    IN_MEMORY,
+
+    /*
+        The file is mapped into memory and every chunk is backed by a slice of the mapping.
+        The chunk data is copied into the heap only when a decoder asks for it,
+        so the memory usage depends on the pages which are actually viewed and not on the file size.
+     */
+    MEMORY_MAPPED
+}
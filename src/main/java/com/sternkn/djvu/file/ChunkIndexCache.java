@@ -0,0 +1,455 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file;
+
+import com.sternkn.djvu.file.chunks.Bookmark;
+import com.sternkn.djvu.file.chunks.Chunk;
+import com.sternkn.djvu.file.chunks.ChunkId;
+import com.sternkn.djvu.file.chunks.ComponentInfo;
+import com.sternkn.djvu.file.chunks.DirectoryChunk;
+import com.sternkn.djvu.file.chunks.NavmChunk;
+import com.sternkn.djvu.file.chunks.SecondaryChunkId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.sternkn.djvu.utils.AppDirectories.getCacheDir;
+
+/*
+    An on-disk cache of the chunk structure of DjVu documents.
+
+    For every file the cache stores the chunk table (ids, chunk ids, offsets, sizes and parent indexes)
+    together with the decoded DIRM and NAVM data. A complete entry holds all chunks of a bundled document,
+    a header entry holds only the root, DIRM and NAVM chunks: it is written when a document (or the index file
+    of an indirect document) is opened lazily and it is enough to open the document lazily again. The entry is keyed by the absolute path of the file
+    and it is valid only while the file size and the modification time are the same as when the entry was written.
+    A document restored from the cache is neither scanned nor BZZ-decoded: its file is memory-mapped
+    and the chunk data is taken from the mapping according to the data mode.
+
+    The number of entries is limited. An entry is touched when it is loaded, and the least recently used
+    entries are deleted when a new one is stored, so the entries of files which have been moved or deleted
+    do not accumulate.
+ */
+public class ChunkIndexCache {
+    private static final Logger LOG = LoggerFactory.getLogger(ChunkIndexCache.class);
+
+    private static final int MAGIC = 0x444A4958; // DJIX
+    private static final int VERSION = 2;
+    private static final String INDEX_FILE_EXTENSION = ".idx";
+    private static final int NO_PARENT = -1;
+    private static final int NO_SECONDARY_ID = -1;
+
+    private static final ChunkId[] CHUNK_IDS = ChunkId.values();
+    private static final SecondaryChunkId[] SECONDARY_CHUNK_IDS = SecondaryChunkId.values();
+
+    private static final int DEFAULT_MAX_ENTRIES = 100;
+
+    private final Path directory;
+    private final int maxEntries;
+
+    private record Entry(boolean isComplete, ChunkTreeParser parser, List<Chunk> chunks,
+                         DirectoryChunk directoryChunk, Optional<NavmChunk> navigationMenu) {
+    }
+
+    /**
+     * Creates the cache in the default cache directory of the application.
+     */
+    public ChunkIndexCache() {
+        this(getCacheDir().resolve("index"));
+    }
+
+    public ChunkIndexCache(Path directory) {
+        this(directory, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param directory the directory of the index files
+     * @param maxEntries the maximum number of index files kept in the directory
+     */
+    public ChunkIndexCache(Path directory, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("The cache must keep at least one entry");
+        }
+        this.directory = directory;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Restores the document from the cache.
+     *
+     * @param file the DjVu file
+     * @param dataMode the data mode of the restored chunks
+     * @return the document if the cache has a valid entry with all chunks of the file
+     */
+    public Optional<DjVuFile> load(File file, ChunkDataMode dataMode) {
+        return readEntry(file, dataMode)
+            .filter(Entry::isComplete)
+            .map(entry -> new DjVuFileImpl(entry.chunks(), entry.directoryChunk(), entry.navigationMenu()));
+    }
+
+    /**
+     * Restores the header chunks of the document from the cache and opens the document lazily
+     * (see {@link DjVuFileReader#readFileLazily()}). Both the entries written by {@link #store(File, DjVuFile)}
+     * and by {@link #storeHeader(File, DjVuFile)} can be used.
+     *
+     * @param file the bundled document or the index file of an indirect document
+     * @param dataMode the data mode of the restored chunks
+     * @return the document whose components are loaded on demand if the cache has a valid entry for the file
+     */
+    public Optional<DjVuFile> loadLazily(File file, ChunkDataMode dataMode) {
+        return readEntry(file, dataMode).map(entry -> {
+            final List<Chunk> headerChunks = getHeaderChunks(entry.chunks());
+            final Optional<NavmChunk> navigationMenu = entry.navigationMenu()
+                .filter(menu -> headerChunks.stream().anyMatch(c -> c.getOffsetStart() == menu.getOffsetStart()));
+            return new LazyDjVuFile(entry.parser(), headerChunks, entry.directoryChunk(), navigationMenu,
+                file.getAbsoluteFile().getParentFile(), dataMode);
+        });
+    }
+
+    private Optional<Entry> readEntry(File file, ChunkDataMode dataMode) {
+        final Path indexFile = getIndexFile(file);
+        if (!Files.isRegularFile(indexFile)) {
+            return Optional.empty();
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION
+                || !file.getAbsolutePath().equals(readString(input))
+                || input.readLong() != file.length()
+                || input.readLong() != getLastModifiedTime(file)) {
+                LOG.debug("The chunk index of {} is out of date", file.getAbsolutePath());
+                return Optional.empty();
+            }
+
+            final boolean isComplete = input.readBoolean();
+            final ChunkTreeParser parser = new ChunkTreeParser(ChunkTreeParser.mapFile(file), dataMode);
+            final List<Chunk> chunks = readChunks(input, parser);
+            final DirectoryChunk directoryChunk = readDirectory(input, chunks);
+            final Optional<NavmChunk> navigationMenu = readNavigationMenu(input, chunks);
+
+            touch(indexFile);
+            LOG.debug("The chunk index of {} is loaded from the cache", file.getAbsolutePath());
+            return Optional.of(new Entry(isComplete, parser, chunks, directoryChunk, navigationMenu));
+        }
+        catch (IOException | RuntimeException e) {
+            LOG.warn("Can not read the chunk index {}: {}", indexFile, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Writes the chunk structure of the document to the cache. Errors are logged and ignored,
+     * since the cache only speeds up the next open of the file.
+     *
+     * @param file the DjVu file
+     * @param djvuFile the document read from the file with all its chunks
+     */
+    public void store(File file, DjVuFile djvuFile) {
+        write(file, true, djvuFile.getChunks(), djvuFile.getDirectoryChunk(), djvuFile.getNavigationMenu());
+    }
+
+    /**
+     * Writes only the root, DIRM and NAVM chunks of the document to the cache, which is enough
+     * to open it lazily next time. The components of the document are not read.
+     *
+     * @param file the bundled document or the index file of an indirect document
+     * @param djvuFile the document read from the file
+     */
+    public void storeHeader(File file, DjVuFile djvuFile) {
+        final DirectoryChunk directoryChunk = djvuFile.getDirectoryChunk();
+        final Optional<NavmChunk> navigationMenu = djvuFile.getNavigationMenu();
+
+        final List<Chunk> chunks = new ArrayList<>();
+        chunks.add(directoryChunk.getParent());
+        chunks.add(directoryChunk);
+        navigationMenu.ifPresent(chunks::add);
+        chunks.sort(Comparator.comparingLong(Chunk::getOffsetStart));
+
+        write(file, false, chunks, directoryChunk, navigationMenu);
+    }
+
+    private void write(File file, boolean isComplete, List<Chunk> chunks, DirectoryChunk directoryChunk,
+                       Optional<NavmChunk> navigationMenu) {
+        final Path indexFile = getIndexFile(file);
+
+        try {
+            Files.createDirectories(directory);
+            final Path tempFile = Files.createTempFile(directory, indexFile.getFileName().toString(), ".tmp");
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                writeString(output, file.getAbsolutePath());
+                output.writeLong(file.length());
+                output.writeLong(getLastModifiedTime(file));
+                output.writeBoolean(isComplete);
+
+                writeChunks(output, chunks);
+                writeDirectory(output, chunks, directoryChunk);
+                writeNavigationMenu(output, chunks, navigationMenu);
+            }
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            prune();
+        }
+        catch (IOException | RuntimeException e) {
+            LOG.warn("Can not write the chunk index {}: {}", indexFile, e.getMessage());
+        }
+    }
+
+    /*
+        The root chunk followed by the DIRM and NAVM chunks which precede the first component,
+        the same chunks as ChunkTreeParser.readHeaderChunks reads.
+     */
+    private static List<Chunk> getHeaderChunks(List<Chunk> chunks) {
+        final Chunk root = chunks.getFirst();
+        final List<Chunk> headerChunks = new ArrayList<>();
+        headerChunks.add(root);
+
+        for (Chunk chunk : chunks.subList(1, chunks.size())) {
+            if (chunk.getParent() != root
+                || (chunk.getChunkId() != ChunkId.DIRM && chunk.getChunkId() != ChunkId.NAVM)) {
+                break;
+            }
+            headerChunks.add(chunk);
+        }
+        return headerChunks;
+    }
+
+    private static void touch(Path indexFile) {
+        try {
+            Files.setLastModifiedTime(indexFile, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+        catch (IOException e) {
+            LOG.debug("Can not touch the chunk index {}: {}", indexFile, e.getMessage());
+        }
+    }
+
+    /*
+        Deletes the least recently used index files above the limit.
+     */
+    private void prune() throws IOException {
+        final List<Path> indexFiles;
+        try (Stream<Path> files = Files.list(directory)) {
+            indexFiles = files
+                .filter(path -> path.getFileName().toString().endsWith(INDEX_FILE_EXTENSION))
+                .sorted(Comparator.comparingLong(ChunkIndexCache::getLastUseTime).reversed())
+                .toList();
+        }
+
+        for (Path indexFile : indexFiles.subList(Math.min(maxEntries, indexFiles.size()), indexFiles.size())) {
+            LOG.debug("Removing the chunk index {} from the cache", indexFile);
+            Files.deleteIfExists(indexFile);
+        }
+    }
+
+    private static long getLastUseTime(Path indexFile) {
+        try {
+            return Files.getLastModifiedTime(indexFile).toMillis();
+        }
+        catch (IOException e) {
+            // a file deleted in the meantime is the first candidate for removal
+            return 0;
+        }
+    }
+
+    private Path getIndexFile(File file) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final byte[] hash = digest.digest(file.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(hash) + INDEX_FILE_EXTENSION);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long getLastModifiedTime(File file) {
+        try {
+            return Files.getLastModifiedTime(file.toPath()).toMillis();
+        }
+        catch (IOException e) {
+            throw new DjVuFileException(String.format("Can not read the modification time of %s",
+                    file.getAbsolutePath()), e);
+        }
+    }
+
+    private static void writeChunks(DataOutputStream output, List<Chunk> chunks) throws IOException {
+        final Map<Chunk, Integer> indexes = new IdentityHashMap<>();
+        output.writeInt(chunks.size());
+
+        for (Chunk chunk : chunks) {
+            indexes.put(chunk, indexes.size());
+            final Integer parentIndex = chunk.getParent() == null ? null : indexes.get(chunk.getParent());
+            if (chunk.getParent() != null && parentIndex == null) {
+                throw new DjVuFileException(String.format("The parent of the chunk %s precedes it in the list", chunk));
+            }
+
+            output.writeLong(chunk.getId());
+            output.writeByte(chunk.getChunkId().ordinal());
+            output.writeByte(chunk.isComposite() ? chunk.getSecondaryChunkId().ordinal() : NO_SECONDARY_ID);
+            output.writeLong(chunk.getOffsetStart());
+            output.writeLong(chunk.getSize());
+            output.writeInt(parentIndex == null ? NO_PARENT : parentIndex);
+        }
+    }
+
+    private static List<Chunk> readChunks(DataInputStream input, ChunkTreeParser parser) throws IOException {
+        final int count = input.readInt();
+        final List<Chunk> chunks = new ArrayList<>(count);
+
+        for (int ind = 0; ind < count; ind++) {
+            final long id = input.readLong();
+            final ChunkId chunkId = CHUNK_IDS[input.readByte()];
+            final byte secondaryId = input.readByte();
+            final SecondaryChunkId secondaryChunkId = secondaryId == NO_SECONDARY_ID
+                ? null : SECONDARY_CHUNK_IDS[secondaryId];
+            final long offsetStart = input.readLong();
+            final long size = input.readLong();
+            final int parentIndex = input.readInt();
+            final Chunk parent = parentIndex == NO_PARENT ? null : chunks.get(parentIndex);
+
+            chunks.add(parser.createChunk(id, chunkId, secondaryChunkId, offsetStart, size, parent));
+        }
+
+        return chunks;
+    }
+
+    private static void writeDirectory(DataOutputStream output, List<Chunk> chunks,
+                                       DirectoryChunk directoryChunk) throws IOException {
+        output.writeInt(indexOf(chunks, directoryChunk));
+        output.writeBoolean(directoryChunk.isBundled());
+        output.writeInt(directoryChunk.getVersion());
+
+        final List<ComponentInfo> components = directoryChunk.getComponents();
+        output.writeInt(components.size());
+        for (ComponentInfo component : components) {
+            output.writeLong(component.getOffset());
+            output.writeInt(component.getSize());
+            output.writeInt(component.getFlag());
+            writeString(output, component.getId());
+            writeString(output, component.getName());
+            writeString(output, component.getTitle());
+        }
+    }
+
+    private static DirectoryChunk readDirectory(DataInputStream input, List<Chunk> chunks) throws IOException {
+        final Chunk chunk = chunks.get(input.readInt());
+        final boolean isBundled = input.readBoolean();
+        final int version = input.readInt();
+
+        final int count = input.readInt();
+        final List<ComponentInfo> components = new ArrayList<>(count);
+        for (int ind = 0; ind < count; ind++) {
+            components.add(new ComponentInfo()
+                .setOffset(input.readLong())
+                .setSize(input.readInt())
+                .setFlag(input.readInt())
+                .setId(readString(input))
+                .setName(readString(input))
+                .setTitle(readString(input)));
+        }
+
+        return new DirectoryChunk(chunk, isBundled, version, components);
+    }
+
+    private static void writeNavigationMenu(DataOutputStream output, List<Chunk> chunks,
+                                            Optional<NavmChunk> navigationMenu) throws IOException {
+        output.writeBoolean(navigationMenu.isPresent());
+        if (navigationMenu.isEmpty()) {
+            return;
+        }
+
+        output.writeInt(indexOf(chunks, navigationMenu.get()));
+        final List<Bookmark> bookmarks = navigationMenu.get().getBookmarks();
+        output.writeInt(bookmarks.size());
+        for (Bookmark bookmark : bookmarks) {
+            output.writeInt(bookmark.nChildren());
+            output.writeInt(bookmark.nDesc());
+            writeString(output, bookmark.sDesc());
+            output.writeInt(bookmark.nURL());
+            writeString(output, bookmark.sURL());
+        }
+    }
+
+    private static Optional<NavmChunk> readNavigationMenu(DataInputStream input,
+                                                          List<Chunk> chunks) throws IOException {
+        if (!input.readBoolean()) {
+            return Optional.empty();
+        }
+
+        final Chunk chunk = chunks.get(input.readInt());
+        final int count = input.readInt();
+        final List<Bookmark> bookmarks = new ArrayList<>(count);
+        for (int ind = 0; ind < count; ind++) {
+            bookmarks.add(new Bookmark(input.readInt(), input.readInt(), readString(input),
+                input.readInt(), readString(input)));
+        }
+
+        return Optional.of(new NavmChunk(chunk, bookmarks));
+    }
+
+    private static int indexOf(List<Chunk> chunks, Chunk typedChunk) {
+        for (int ind = 0; ind < chunks.size(); ind++) {
+            if (chunks.get(ind).getOffsetStart() == typedChunk.getOffsetStart()) {
+                return ind;
+            }
+        }
+        throw new DjVuFileException(String.format("The chunk %s is not found", typedChunk));
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        final int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        return new String(input.readNBytes(length), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file;
+
+import com.sternkn.djvu.file.chunks.Chunk;
+import com.sternkn.djvu.file.chunks.ChunkId;
+import com.sternkn.djvu.file.chunks.SecondaryChunkId;
+
+import java.util.Arrays;
+
+/*
+    The chunk structure of a document stored in primitive arrays (one row per chunk in the file order)
+    instead of one Chunk object per chunk. The row index is the chunk id. The chunk data is not stored,
+    it stays in the file mapping and the Chunk objects are created as lightweight views on demand.
+
+    A row takes 18 bytes, while a Chunk object with its parent reference, enum references
+    and data array takes several times more and has to be traced by the garbage collector.
+ */
+final class ChunkTable {
+
+    static final int NO_PARENT = -1;
+    private static final byte NO_SECONDARY_ID = -1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final ChunkId[] CHUNK_IDS = ChunkId.values();
+    private static final SecondaryChunkId[] SECONDARY_CHUNK_IDS = SecondaryChunkId.values();
+
+    private int size;
+    private byte[] chunkIds;
+    private byte[] secondaryChunkIds;
+    private long[] offsets;
+    private int[] sizes;
+    private int[] parents;
+
+    ChunkTable() {
+        this.chunkIds = new byte[INITIAL_CAPACITY];
+        this.secondaryChunkIds = new byte[INITIAL_CAPACITY];
+        this.offsets = new long[INITIAL_CAPACITY];
+        this.sizes = new int[INITIAL_CAPACITY];
+        this.parents = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Appends a chunk. The chunks must be added in the file order, so the offsets are ascending
+     * and a parent always precedes its children.
+     *
+     * @param chunkId the chunk id
+     * @param secondaryChunkId the secondary chunk id of a composite chunk; {@code null} otherwise
+     * @param offsetStart the offset of the chunk data
+     * @param chunkSize the chunk size (an unsigned 32-bit value)
+     * @param parent the row of the parent chunk or {@link #NO_PARENT}
+     * @return the row of the chunk which is also its id
+     */
+    int add(ChunkId chunkId, SecondaryChunkId secondaryChunkId, long offsetStart, long chunkSize, int parent) {
+        if (size == offsets.length) {
+            grow();
+        }
+
+        chunkIds[size] = (byte) chunkId.ordinal();
+        secondaryChunkIds[size] = secondaryChunkId == null ? NO_SECONDARY_ID : (byte) secondaryChunkId.ordinal();
+        offsets[size] = offsetStart;
+        sizes[size] = (int) chunkSize;
+        parents[size] = parent;
+        return size++;
+    }
+
+    private void grow() {
+        final int capacity = offsets.length * 2;
+        chunkIds = Arrays.copyOf(chunkIds, capacity);
+        secondaryChunkIds = Arrays.copyOf(secondaryChunkIds, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+    }
+
+    /**
+     * Releases the unused capacity after the last chunk has been added.
+     */
+    void trim() {
+        chunkIds = Arrays.copyOf(chunkIds, size);
+        secondaryChunkIds = Arrays.copyOf(secondaryChunkIds, size);
+        offsets = Arrays.copyOf(offsets, size);
+        sizes = Arrays.copyOf(sizes, size);
+        parents = Arrays.copyOf(parents, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    ChunkId getChunkId(int row) {
+        return CHUNK_IDS[chunkIds[row]];
+    }
+
+    SecondaryChunkId getSecondaryChunkId(int row) {
+        final byte secondaryId = secondaryChunkIds[row];
+        return secondaryId == NO_SECONDARY_ID ? null : SECONDARY_CHUNK_IDS[secondaryId];
+    }
+
+    long getOffsetStart(int row) {
+        return offsets[row];
+    }
+
+    long getSize(int row) {
+        return Integer.toUnsignedLong(sizes[row]);
+    }
+
+    long getOffsetEnd(int row) {
+        return offsets[row] + getSize(row);
+    }
+
+    int getParent(int row) {
+        return parents[row];
+    }
+
+    /**
+     * @param offsetStart the offset of the chunk data
+     * @return the row of the chunk whose data starts at the offset or -1
+     */
+    int findByOffset(long offsetStart) {
+        final int row = Arrays.binarySearch(offsets, 0, size, offsetStart);
+        return row < 0 ? -1 : row;
+    }
+
+    /**
+     * Creates the view of the chunk together with the views of its ancestors.
+     *
+     * @param row the row of the chunk
+     * @param parser the parser which attaches the chunk data from the file mapping
+     * @return the chunk
+     */
+    Chunk createChunk(int row, ChunkTreeParser parser) {
+        final int parentRow = parents[row];
+        final Chunk parent = parentRow == NO_PARENT ? null : createChunk(parentRow, parser);
+        return parser.createChunk(row, getChunkId(row), getSecondaryChunkId(row),
+            offsets[row], getSize(row), parent);
+    }
+}
@@ -0,0 +1,424 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file;
+
+import com.sternkn.djvu.file.chunks.Chunk;
+import com.sternkn.djvu.file.chunks.ChunkId;
+import com.sternkn.djvu.file.chunks.SecondaryChunkId;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/*
+    Reads chunks from an arbitrary position of a file which is available as a byte buffer
+    (usually a memory mapping of the whole file). Unlike DjVuFileReader it does not need to walk
+    the file from the beginning, so a single component of a bundled document can be read using
+    the offset from the DIRM chunk.
+
+    The positions passed to the parser and the chunk offsets are counted from the base offset.
+    It is 0 for a bundled document. Every component file of an indirect document gets its own
+    base offset, so the chunks of different files have distinct offsets in one document.
+ */
+final class ChunkTreeParser {
+
+    private static final int CHUNK_ID_SIZE = 4;
+    private static final int CHUNK_HEADER_SIZE = 8;
+    private static final long ROOT_CHUNK_POSITION = 4;
+
+    /*
+        The magic header, the header of the root chunk and its secondary chunk id.
+     */
+    static final int ROOT_HEADER_SIZE = 16;
+
+    private final ByteBuffer buffer;
+    private final long baseOffset;
+    private final ChunkDataMode dataMode;
+
+    ChunkTreeParser(ByteBuffer buffer, ChunkDataMode dataMode) {
+        this(buffer, 0, dataMode);
+    }
+
+    ChunkTreeParser(ByteBuffer buffer, long baseOffset, ChunkDataMode dataMode) {
+        this.buffer = buffer;
+        this.baseOffset = baseOffset;
+        this.dataMode = dataMode;
+    }
+
+    /*
+        The mapping stays valid after the channel is closed, and it is released
+        when the last chunk which refers to it becomes unreachable.
+     */
+    static MappedByteBuffer mapFile(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new DjVuFileException(String.format("The file %s is too large to be memory-mapped (%d bytes)",
+                        file.getAbsolutePath(), fileSize));
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        }
+        catch (IOException e) {
+            throw new DjVuFileException(String.format("Can not map file %s into memory", file.getAbsolutePath()), e);
+        }
+    }
+
+    /*
+        Reads the first bytes of the file into the heap, so nothing refers to the file afterwards.
+        A shorter file gives a shorter buffer.
+     */
+    static ByteBuffer readFileStart(File file, int length) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, channel.size()));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            return buffer.clear();
+        }
+        catch (IOException e) {
+            throw new DjVuFileException(String.format("Can not read file %s", file.getAbsolutePath()), e);
+        }
+    }
+
+    private MagicHeader readHeader() {
+        return MagicHeader.of(readFourBytesString(baseOffset));
+    }
+
+    /**
+     * Checks the magic header and reads the root FORM:DJVM chunk and the chunks which precede
+     * the first component: DIRM and optional NAVM.
+     *
+     * @return the root chunk followed by the DIRM and NAVM chunks; ids are assigned from 0 in the file order
+     */
+    List<Chunk> readHeaderChunks() {
+        readHeader();
+
+        final List<Chunk> chunks = new ArrayList<>();
+        final Chunk root = readChunk(baseOffset + ROOT_CHUNK_POSITION, null, 0);
+        chunks.add(root);
+
+        if (!root.isComposite()) {
+            throw new DjVuFileException("The DjVu file is missing the DIRM chunk.");
+        }
+
+        long position = firstChildOffset(root);
+        while (position < root.getOffsetEnd()) {
+            ChunkId chunkId = peekChunkId(position);
+            if (chunkId != ChunkId.DIRM && chunkId != ChunkId.NAVM) {
+                break;
+            }
+
+            Chunk chunk = readChunk(position, root, chunks.size());
+            chunks.add(chunk);
+            position = align(chunk.getOffsetEnd());
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Checks the magic header and reads the root chunk of a single component file
+     * of an indirect document. Its descendants are not read.
+     *
+     * @param parent the root chunk of the index file
+     * @param id the id of the component root chunk
+     * @return the component root chunk
+     */
+    Chunk readComponentRoot(Chunk parent, long id) {
+        readHeader();
+        return readChunk(baseOffset + ROOT_CHUNK_POSITION, parent, id);
+    }
+
+    /**
+     * Checks the magic header and reads the headers of all chunks of the file into a compact table.
+     * The chunk data is neither read nor copied.
+     *
+     * @return the chunk table; the chunk ids are the rows in the file order
+     */
+    ChunkTable readChunkTable() {
+        readHeader();
+
+        final ChunkTable table = new ChunkTable();
+        final Deque<Integer> parents = new ArrayDeque<>();
+        long offset = addRow(table, baseOffset + ROOT_CHUNK_POSITION, ChunkTable.NO_PARENT, parents);
+
+        while (!parents.isEmpty()) {
+            offset = align(offset);
+            final int current = parents.peek();
+            if (offset >= table.getOffsetEnd(current)) {
+                parents.pop();
+                continue;
+            }
+
+            offset = addRow(table, offset, current, parents);
+        }
+
+        table.trim();
+        return table;
+    }
+
+    /*
+        Adds the chunk header at the position to the table. A composite chunk is pushed to the parents,
+        so the next position is its first child, otherwise the next position is the end of the chunk.
+     */
+    private long addRow(ChunkTable table, long position, int parent, Deque<Integer> parents) {
+        checkBounds(position, CHUNK_HEADER_SIZE);
+
+        final ChunkId chunkId = readChunkId(position);
+        final long size = Integer.toUnsignedLong(buffer.getInt(index(position) + CHUNK_ID_SIZE));
+        final long offsetStart = position + CHUNK_HEADER_SIZE;
+
+        if (chunkId.isComposite()) {
+            checkBounds(offsetStart, CHUNK_ID_SIZE);
+            final int row = table.add(chunkId, readSecondaryChunkId(offsetStart), offsetStart, size, parent);
+            parents.push(row);
+            return offsetStart + CHUNK_ID_SIZE;
+        }
+
+        checkBounds(offsetStart, size);
+        table.add(chunkId, null, offsetStart, size, parent);
+        return offsetStart + size;
+    }
+
+    /**
+     * Returns the positions of the children of the composite chunk which follow the given position.
+     * Only the chunk headers are read.
+     *
+     * @param composite the composite chunk
+     * @param position the position of the first child to return
+     * @return the positions of the chunk headers
+     */
+    List<Long> getChildPositions(Chunk composite, long position) {
+        final List<Long> positions = new ArrayList<>();
+        long offset = align(position);
+
+        while (offset < composite.getOffsetEnd()) {
+            checkBounds(offset, CHUNK_HEADER_SIZE);
+            positions.add(offset);
+
+            final long size = Integer.toUnsignedLong(buffer.getInt(index(offset) + CHUNK_ID_SIZE));
+            offset = align(offset + CHUNK_HEADER_SIZE + size);
+        }
+
+        return positions;
+    }
+
+    /**
+     * Reads one chunk. The children of a composite chunk are not read.
+     *
+     * @param position the offset of the chunk header (the chunk id)
+     * @param parent the parent chunk; may be {@code null}
+     * @param id the id of the new chunk
+     * @return the chunk
+     */
+    Chunk readChunk(long position, Chunk parent, long id) {
+        checkBounds(position, CHUNK_HEADER_SIZE);
+
+        final ChunkId chunkId = readChunkId(position);
+        final int size = buffer.getInt(index(position) + CHUNK_ID_SIZE);
+        final long offsetStart = position + CHUNK_HEADER_SIZE;
+
+        final Chunk.Builder builder = Chunk.builder()
+            .withId(id)
+            .withChunkId(chunkId)
+            .withSize(size)
+            .withOffsetStart(offsetStart)
+            .withParent(parent);
+
+        if (chunkId.isComposite()) {
+            checkBounds(offsetStart, CHUNK_ID_SIZE);
+            builder.withSecondaryChunkId(readSecondaryChunkId(offsetStart));
+        }
+        else {
+            attachData(builder, offsetStart, size);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Creates a chunk whose header has been read before (for instance, from a chunk index cache).
+     * Only the chunk data is taken from the buffer.
+     *
+     * @param id the id of the chunk
+     * @param chunkId the chunk id
+     * @param secondaryChunkId the secondary chunk id of a composite chunk; {@code null} otherwise
+     * @param offsetStart the offset of the chunk data
+     * @param size the chunk size
+     * @param parent the parent chunk; may be {@code null}
+     * @return the chunk
+     */
+    Chunk createChunk(long id, ChunkId chunkId, SecondaryChunkId secondaryChunkId,
+                      long offsetStart, long size, Chunk parent) {
+        final Chunk.Builder builder = Chunk.builder()
+            .withId(id)
+            .withChunkId(chunkId)
+            .withSecondaryChunkId(secondaryChunkId)
+            .withSize(size)
+            .withOffsetStart(offsetStart)
+            .withParent(parent);
+
+        if (!chunkId.isComposite()) {
+            if (size > Integer.MAX_VALUE) {
+                throw new DjVuFileException(String.format("The chunk %s size %d is too large", chunkId, size));
+            }
+            attachData(builder, offsetStart, (int) size);
+        }
+
+        return builder.build();
+    }
+
+    private void attachData(Chunk.Builder builder, long offsetStart, int size) {
+        checkBounds(offsetStart, size);
+        if (dataMode == ChunkDataMode.MEMORY_MAPPED) {
+            builder.withBuffer(buffer.slice(index(offsetStart), size).asReadOnlyBuffer());
+        }
+        else {
+            byte[] data = new byte[size];
+            buffer.get(index(offsetStart), data);
+            builder.withData(data);
+        }
+    }
+
+    /**
+     * Reads the chunk and (for a composite chunk) all its descendants.
+     *
+     * @param position the offset of the chunk header (the chunk id)
+     * @param parent the parent chunk; may be {@code null}
+     * @param firstId the id of the chunk, its descendants get the next ids in the file order
+     * @return the chunk followed by its descendants in the file order
+     */
+    List<Chunk> readChunkTree(long position, Chunk parent, long firstId) {
+        final List<Chunk> chunks = new ArrayList<>();
+
+        final Chunk top = readChunk(position, parent, firstId);
+        chunks.add(top);
+        chunks.addAll(readDescendants(top, firstId + 1));
+
+        return chunks;
+    }
+
+    /**
+     * Reads all descendants of the chunk which has been read before.
+     *
+     * @param top the chunk
+     * @param firstId the id of the first child, the other descendants get the next ids in the file order
+     * @return the descendants in the file order; an empty list if the chunk is not composite
+     */
+    List<Chunk> readDescendants(Chunk top, long firstId) {
+        final List<Chunk> chunks = new ArrayList<>();
+        if (!top.isComposite()) {
+            return chunks;
+        }
+
+        long id = firstId;
+        final Deque<Chunk> parents = new ArrayDeque<>();
+        parents.push(top);
+        long offset = firstChildOffset(top);
+
+        while (!parents.isEmpty()) {
+            offset = align(offset);
+            final Chunk current = parents.peek();
+            if (offset >= current.getOffsetEnd()) {
+                parents.pop();
+                continue;
+            }
+
+            final Chunk chunk = readChunk(offset, current, id++);
+            chunks.add(chunk);
+
+            if (chunk.isComposite()) {
+                parents.push(chunk);
+                offset = firstChildOffset(chunk);
+            }
+            else {
+                offset = chunk.getOffsetEnd();
+            }
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Returns the chunk id at the given position without reading the chunk.
+     *
+     * @param position the offset of the chunk header
+     * @return the chunk id
+     */
+    ChunkId peekChunkId(long position) {
+        checkBounds(position, CHUNK_HEADER_SIZE);
+        return readChunkId(position);
+    }
+
+    static long firstChildOffset(Chunk composite) {
+        return composite.getOffsetStart() + CHUNK_ID_SIZE;
+    }
+
+    static long align(long offset) {
+        return offset % 2 == 1 ? offset + 1 : offset;
+    }
+
+    private int index(long position) {
+        return (int) (position - baseOffset);
+    }
+
+    private void checkBounds(long position, long length) {
+        final long index = position - baseOffset;
+        if (index < 0 || length < 0 || index + length > buffer.capacity()) {
+            throw new DjVuFileException(String.format("It was unexpected end of file: can not read %d bytes at %d",
+                length, position));
+        }
+    }
+
+    private ChunkId readChunkId(long position) {
+        final String value = readFourBytesString(position);
+        try {
+            return ChunkId.valueOf(value);
+        }
+        catch (IllegalArgumentException e) {
+            throw new DjVuFileException(String.format("Unexpected chunk id: %s", value), e);
+        }
+    }
+
+    private SecondaryChunkId readSecondaryChunkId(long position) {
+        final String value = readFourBytesString(position);
+        try {
+            return SecondaryChunkId.valueOf(value);
+        }
+        catch (IllegalArgumentException e) {
+            throw new DjVuFileException(String.format("Unexpected secondary chunk id: %s", value), e);
+        }
+    }
+
+    private String readFourBytesString(long position) {
+        checkBounds(position, CHUNK_ID_SIZE);
+        byte[] bytes = new byte[CHUNK_ID_SIZE];
+        buffer.get(index(position), bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file;
+
+import com.sternkn.djvu.file.chunks.Chunk;
+import com.sternkn.djvu.file.chunks.ChunkId;
+import com.sternkn.djvu.file.chunks.DirectoryChunk;
+import com.sternkn.djvu.file.chunks.NavmChunk;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+    A document whose structure is held in a ChunkTable. The Chunk objects returned by this class
+    are views created on every call: they are equal (by id) to the views of the same chunk created before,
+    but not identical. Their data is backed by the file mapping.
+
+    Only the DIRM and NAVM chunks are decoded when the document is opened.
+    The document is created only by DjVuFileReader.readFileCompact, the viewer opens documents lazily.
+ */
+class CompactDjVuFile extends AbstractDjVuFile {
+
+    private final ChunkTable table;
+    private final ChunkTreeParser parser;
+    private final DirectoryChunk directoryChunk;
+    private final Optional<NavmChunk> navigationMenu;
+
+    CompactDjVuFile(ChunkTable table, ChunkTreeParser parser) {
+        this.table = table;
+        this.parser = parser;
+
+        final List<Chunk> directories = findChunks(ChunkId.DIRM);
+        final String manyDirectories = String.format("Multiple DIRM chunks were found (%d).", directories.size());
+        this.directoryChunk = new DirectoryChunk(
+            listToOne(directories, "The DjVu file is missing the DIRM chunk.", manyDirectories));
+
+        final List<Chunk> menus = findChunks(ChunkId.NAVM);
+        final String manyMenus = String.format("Multiple NAVM chunks were found (%d).", menus.size());
+        this.navigationMenu = menus.isEmpty()
+            ? Optional.empty()
+            : Optional.of(new NavmChunk(listToOne(menus, "This is impossible case!", manyMenus)));
+    }
+
+    private List<Chunk> findChunks(ChunkId chunkId) {
+        final List<Chunk> chunks = new ArrayList<>();
+        for (int row = 0; row < table.size(); row++) {
+            if (table.getChunkId(row) == chunkId) {
+                chunks.add(table.createChunk(row, parser));
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Returns the views of all chunks. The list is not backed by Chunk objects,
+     * every {@code get} creates a new view.
+     *
+     * @return the chunks in the file order
+     */
+    @Override
+    public List<Chunk> getChunks() {
+        return new AbstractList<>() {
+            @Override
+            public Chunk get(int index) {
+                return table.createChunk(index, parser);
+            }
+
+            @Override
+            public int size() {
+                return table.size();
+            }
+        };
+    }
+
+    /*
+        The children of a chunk are the rows between the chunk row and the end of the chunk data
+        whose parent is the chunk row, so only the subtree of the chunk is scanned.
+     */
+    @Override
+    public List<Chunk> getChildren(Chunk chunk) {
+        final int parentRow = (int) chunk.getId();
+        final long parentEnd = table.getOffsetEnd(parentRow);
+        final List<Chunk> children = new ArrayList<>();
+
+        for (int row = parentRow + 1; row < table.size() && table.getOffsetStart(row) < parentEnd; row++) {
+            if (table.getParent(row) == parentRow) {
+                children.add(parser.createChunk(row, table.getChunkId(row),
+                    table.getSecondaryChunkId(row), table.getOffsetStart(row), table.getSize(row), chunk));
+            }
+        }
+
+        return children;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DirectoryChunk getDirectoryChunk() {
+        return directoryChunk;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<NavmChunk> getNavigationMenu() {
+        return navigationMenu;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Chunk getChunkById(long chunkId) {
+        if (chunkId < 0 || chunkId >= table.size()) {
+            throw new DjVuFileException(String.format("Chunk with id %d not found.", chunkId));
+        }
+
+        return table.createChunk((int) chunkId, parser);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Chunk findChunkByOffset(long chunkOffset) {
+        final int row = table.findByOffset(chunkOffset);
+        return row < 0 ? null : table.createChunk(row, parser);
+    }
+
+    @Override
+    protected Map<ChunkId, List<Chunk>> getSiblings(Chunk chunk) {
+        final Chunk parent = chunk.getParent();
+        if (parent == null) {
+            return Map.of();
+        }
+
+        final Map<ChunkId, List<Chunk>> siblings = new EnumMap<>(ChunkId.class);
+        for (Chunk sibling : getChildren(parent)) {
+            siblings.computeIfAbsent(sibling.getChunkId(), id -> new ArrayList<>()).add(sibling);
+        }
+
+        return siblings;
+    }
+}
@@ -19,6 +19,7 @@ package com.sternkn.djvu.file;
 
 import com.sternkn.djvu.file.chunks.Chunk;
 import com.sternkn.djvu.file.chunks.ChunkId;
+import com.sternkn.djvu.file.chunks.ComponentInfo;
 import com.sternkn.djvu.file.chunks.DirectoryChunk;
 import com.sternkn.djvu.file.chunks.NavmChunk;
 
@@ -35,6 +36,15 @@ public interface DjVuFile {
      */
     List<Chunk> getChunks();
 
+    /**
+     * Returns the children of the composite chunk. Unlike {@link #getChunks()}, a document
+     * whose components are read on demand reads only the component of the given chunk.
+     *
+     * @param chunk the composite chunk
+     * @return the child chunks in the file order; an empty list if the chunk has no children
+     */
+    List<Chunk> getChildren(Chunk chunk);
+
     /**
      * Returns the DjVu file directory chunk (DIRM).
      *
@@ -50,6 +60,16 @@ public interface DjVuFile {
      */
     Optional<NavmChunk> getNavigationMenu();
 
+    /**
+     * Returns the offset which addresses the component in {@link #getChunkByOffset(long)}.
+     * It is the offset from the directory, unless the components are stored in separate files
+     * (an indirect document).
+     *
+     * @param component the component from the directory of this file
+     * @return the component offset
+     */
+    long getComponentOffset(ComponentInfo component);
+
     /**
      * Returns the chunk with the given ID.
      *
@@ -19,36 +19,101 @@ package com.sternkn.djvu.file;
 
 import com.sternkn.djvu.file.chunks.Chunk;
 import com.sternkn.djvu.file.chunks.ChunkId;
-import com.sternkn.djvu.file.chunks.ComponentInfo;
-import com.sternkn.djvu.file.chunks.ComponentType;
 import com.sternkn.djvu.file.chunks.DirectoryChunk;
-import com.sternkn.djvu.file.chunks.InclChunk;
 import com.sternkn.djvu.file.chunks.NavmChunk;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 
-public class DjVuFileImpl implements DjVuFile {
+public class DjVuFileImpl extends AbstractDjVuFile {
     private static final Logger LOG = LoggerFactory.getLogger(DjVuFileImpl.class);
 
-    private static final int OFFSET_ALIGNMENT = 20;
-
     private final List<Chunk> chunks;
     private final DirectoryChunk directoryChunk;
     private final Optional<NavmChunk> navigationMenu;
 
+    /*
+        The indexes are built once, so the lookups which run on every page load
+        do not have to scan the whole chunk list.
+     */
+    private final Map<Long, Chunk> chunksById;
+    private final Map<Long, Chunk> chunksByOffset;
+    private final Map<Long, Map<ChunkId, List<Chunk>>> childrenByParentId;
+
     public DjVuFileImpl(List<Chunk> chunks) {
         this.chunks = chunks;
+        this.chunksById = new HashMap<>();
+        this.chunksByOffset = new HashMap<>();
+        this.childrenByParentId = new HashMap<>();
+        indexChunks(chunks);
+
         this.directoryChunk = findDirectory();
         this.navigationMenu = findNavigationMenu();
     }
 
+    /**
+     * Creates the file with the already decoded directory and navigation menu, which must be
+     * the typed versions of the DIRM and NAVM chunks from the list.
+     */
+    DjVuFileImpl(List<Chunk> chunks, DirectoryChunk directoryChunk, Optional<NavmChunk> navigationMenu) {
+        this.chunks = chunks;
+        this.chunksById = new HashMap<>();
+        this.chunksByOffset = new HashMap<>();
+        this.childrenByParentId = new HashMap<>();
+        indexChunks(chunks);
+
+        this.directoryChunk = directoryChunk;
+        this.navigationMenu = navigationMenu;
+    }
+
+    /**
+     * Adds chunks which were read after this object had been created (for instance, a lazily loaded page).
+     *
+     * @param newChunks the chunks to add; they must not be already added
+     */
+    protected void addChunks(List<Chunk> newChunks) {
+        this.chunks.addAll(newChunks);
+        indexChunks(newChunks);
+    }
+
+    private void indexChunks(List<Chunk> newChunks) {
+        int duplicateIds = 0;
+        int duplicateOffsets = 0;
+
+        for (Chunk chunk : newChunks) {
+            if (chunksById.putIfAbsent(chunk.getId(), chunk) != null) {
+                duplicateIds++;
+            }
+            if (chunksByOffset.putIfAbsent(chunk.getOffsetStart(), chunk) != null) {
+                duplicateOffsets++;
+            }
+
+            Chunk parent = chunk.getParent();
+            if (parent != null) {
+                childrenByParentId
+                    .computeIfAbsent(parent.getId(), id -> new EnumMap<>(ChunkId.class))
+                    .computeIfAbsent(chunk.getChunkId(), id -> new ArrayList<>())
+                    .add(chunk);
+            }
+        }
+
+        if (duplicateIds > 0) {
+            LOG.warn("{} chunks have a non-unique id, only the first chunk with each id can be found.", duplicateIds);
+        }
+        if (duplicateOffsets > 0) {
+            LOG.warn("{} chunks have a non-unique offset, only the first chunk with each offset can be found.",
+                duplicateOffsets);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -57,6 +122,19 @@ public class DjVuFileImpl implements DjVuFile {
         return chunks;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Chunk> getChildren(Chunk chunk) {
+        Map<ChunkId, List<Chunk>> children = childrenByParentId.getOrDefault(chunk.getId(), Map.of());
+
+        return children.values().stream()
+            .flatMap(List::stream)
+            .sorted(Comparator.comparingLong(Chunk::getOffsetStart))
+            .toList();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -104,128 +182,32 @@ public class DjVuFileImpl implements DjVuFile {
      */
     @Override
     public Chunk getChunkById(long chunkId) {
-        List<Chunk> cks = this.chunks.stream()
-                .filter(c -> c.getId() == chunkId).toList();
-
-        final String emptyError = String.format("Chunk with id %d not found.", chunkId);
-        final String manyWarning = String.format("More than one chunk with id %d were found.", chunkId);
-
-        return listToOne(cks, emptyError, manyWarning);
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public Chunk getChunkByOffset(long offset) {
-        final long chunkOffset = OFFSET_ALIGNMENT + offset;
-        final List<Chunk> cks = this.chunks.stream()
-                .filter(c -> chunkOffset == c.getOffsetStart()).toList();
-
-        final String emptyError = String.format("Chunk with offset %d not found.", offset);
-        final String manyWarning = String.format("More than one chunk with offset %d were found.", offset);
+        Chunk chunk = chunksById.get(chunkId);
+        if (chunk == null) {
+            throw new DjVuFileException(String.format("Chunk with id %d not found.", chunkId));
+        }
 
-        return listToOne(cks, emptyError, manyWarning);
+        return chunk;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public Map<ChunkId, List<Chunk>> getAllPageChunks(Chunk chunk) {
-        Chunk parent = chunk.getParent();
-        return this.chunks.stream()
-            .filter(c -> c.getParent() != null && c.getParent().getId() == parent.getId())
-            .collect(Collectors.groupingBy(Chunk::getChunkId));
+    protected Chunk findChunkByOffset(long chunkOffset) {
+        return chunksByOffset.get(chunkOffset);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public List<Chunk> getAllPageChunksWithSameChunkId(Chunk chunk) {
+    protected Map<ChunkId, List<Chunk>> getSiblings(Chunk chunk) {
         Chunk parent = chunk.getParent();
-        return this.chunks.stream()
-            .filter(c -> c.getParent() != null && c.getParent().getId() == parent.getId())
-            .filter(c -> c.getChunkId() == chunk.getChunkId())
-            .toList();
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public Chunk findSharedShapeChunk(Chunk chunk) {
-
-        if (chunk.getChunkId() != ChunkId.Sjbz) {
-            throw new IllegalArgumentException("Chunk id " + chunk.getChunkId() + " is not a JB2 bitonal data chunk");
-        }
-
-        final List<String> sharedComponentIDs = getSharedComponentIDs(chunk);
-        final List<Chunk>  sharedShapeChunks = getSiblingDictionaryChunks(chunk);
-        if (sharedComponentIDs.isEmpty() && sharedShapeChunks.isEmpty()) {
-            LOG.debug("No shared component ID found for chunk - {}", chunk);
-            return null;
-        }
-
-        if (!sharedShapeChunks.isEmpty()) {
-            return listToOne(sharedShapeChunks, "This is not a valid case!",
-                "We have more than one shared chunks for chunk id " + chunk.getChunkId());
-        }
-
-        List<ComponentInfo> components = directoryChunk.getComponents().stream()
-            .filter(c -> sharedComponentIDs.contains(c.getId()))
-            .filter(c -> c.getType() == ComponentType.INCLUDED)
-            .toList();
-
-        if (components.isEmpty()) {
-            LOG.warn("We can not find component for shared component IDs: {}", sharedComponentIDs);
-            return null;
-        }
-
-        Set<Long> offsets = components.stream()
-            .map(c -> c.getOffset() + OFFSET_ALIGNMENT)
-            .collect(Collectors.toSet());
-
-        final Chunk sharedShapeChunk = this.chunks.stream()
-            .filter(c -> c.getChunkId() == ChunkId.Djbz)
-            .filter(c -> offsets.contains(c.getOffsetStart()))
-            .findFirst().orElse(null);
-
-        if (sharedShapeChunk == null) {
-            LOG.debug("No shared shape chunk found for chunk - {}", chunk);
-        }
-
-        return sharedShapeChunk;
-    }
-
-    private Chunk listToOne(List<Chunk> list, String emptyError, String manyWarning) {
-        if (list.isEmpty()) {
-            throw new DjVuFileException(emptyError);
-        }
-
-        if (list.size() > 1) {
-            LOG.warn(manyWarning);
+        if (parent == null) {
+            return Map.of();
         }
 
-        return list.getFirst();
-    }
-
-    private List<Chunk> getSiblingDictionaryChunks(Chunk chunk) {
-        Chunk parent = chunk.getParent();
-        return this.chunks.stream()
-                .filter(c -> c.getParent() != null && c.getParent().getId() == parent.getId())
-                .filter(c -> c.getChunkId() == ChunkId.Djbz)
-                .toList();
-    }
-
-    private List<String> getSharedComponentIDs(Chunk chunk) {
-        Chunk parent = chunk.getParent();
-        return this.chunks.stream()
-                .filter(c -> c.getParent() != null && c.getParent().getId() == parent.getId())
-                .filter(c -> c.getChunkId() == ChunkId.INCL)
-                .map(InclChunk::new)
-                .map(InclChunk::getSharedComponentID)
-                .toList();
+        return childrenByParentId.getOrDefault(parent.getId(), Map.of());
     }
 }
@@ -27,10 +27,16 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Stack;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,25 +47,186 @@ public class DjVuFileReader implements Closeable {
 
     private final File file;
     private final long fileSize;
+    private final ChunkDataMode dataMode;
     private DataInputStream inputStream;
+    private MappedByteBuffer mappedBuffer;
     private long rawOffset;
     private boolean isEndOfFile;
 
 
     public DjVuFileReader(File file) {
+        this(file, ChunkDataMode.IN_MEMORY);
+    }
+
+    public DjVuFileReader(File file, ChunkDataMode dataMode) {
         this.file = file;
         this.fileSize = file.length();
+        this.dataMode = Objects.requireNonNull(dataMode, "data mode can not be null");
         open();
         this.rawOffset = 0;
         this.isEndOfFile = false;
     }
 
+    /**
+     * Reads all chunks of the file. If the file is the index of an indirect document,
+     * the document is opened like {@link #readFileLazily()}, since its components are stored in other files.
+     *
+     * @return the DjVu file
+     */
     public DjVuFile readFile() {
         readHeader();
         final List<Chunk> chunks = readChunks();
+        final DjVuFileImpl djvuFile = new DjVuFileImpl(chunks);
+        if (djvuFile.getDirectoryChunk().isBundled()) {
+            return djvuFile;
+        }
+
+        LOG.debug("The file {} is the index of an indirect document", file.getAbsolutePath());
+        return readFileLazily();
+    }
+
+    /**
+     * Reads the file like {@link #readFile()}, but the chunk structure of a bundled document is taken
+     * from the index cache if the file has not been changed since it was cached. Otherwise, the file is read
+     * and its chunk structure is stored in the cache for the next open.
+     *
+     * @param indexCache the chunk index cache
+     * @return the DjVu file
+     */
+    public DjVuFile readFile(ChunkIndexCache indexCache) {
+        final Optional<DjVuFile> cachedFile = indexCache.load(file, dataMode);
+        if (cachedFile.isPresent()) {
+            return cachedFile.get();
+        }
+
+        final DjVuFile djvuFile = readFile();
+        if (djvuFile.getDirectoryChunk().isBundled()) {
+            indexCache.store(file, djvuFile);
+        }
+        return djvuFile;
+    }
+
+    /**
+     * Opens a bundled multipage document by reading only the magic header and the root FORM:DJVM,
+     * DIRM and NAVM chunks. The pages and the shared components are read from the file only when
+     * they are requested, using the offsets stored in the DIRM chunk.
+     *
+     * <p>An indirect document is opened the same way from its index file. Every component is read
+     * from its own file (located in the directory of the index file) when it is requested for the first time.
+     *
+     * <p>The file is memory-mapped, so the returned object stays usable after this reader is closed.
+     * The chunk data is copied into the heap or backed by the mapping according to the data mode.
+     *
+     * @return the DjVu file whose components are loaded on demand
+     */
+    public DjVuFile readFileLazily() {
+        final MappedByteBuffer buffer = mappedBuffer != null ? mappedBuffer : mapFile();
+        return new LazyDjVuFile(new ChunkTreeParser(buffer, dataMode), file.getAbsoluteFile().getParentFile(), dataMode);
+    }
+
+    /**
+     * Opens the file like {@link #readFileLazily()}, but the root, DIRM and NAVM chunks are taken from
+     * the index cache if the file has not been changed since it was cached, so the directory and the navigation
+     * menu are not decoded again. Otherwise, the file is opened lazily and its header chunks are stored in the cache.
+     *
+     * @param indexCache the chunk index cache
+     * @return the DjVu file whose components are loaded on demand
+     */
+    public DjVuFile readFileLazily(ChunkIndexCache indexCache) {
+        final Optional<DjVuFile> cachedFile = indexCache.loadLazily(file, dataMode);
+        if (cachedFile.isPresent()) {
+            return cachedFile.get();
+        }
+
+        final DjVuFile djvuFile = readFileLazily();
+        indexCache.storeHeader(file, djvuFile);
+        return djvuFile;
+    }
+
+    /**
+     * Reads the headers of all chunks into a compact table of primitive arrays instead of creating
+     * a Chunk object per chunk. The chunks returned by the document are views created on demand,
+     * and their data is always backed by the file mapping, whatever the data mode of this reader is.
+     * It suits very large documents whose structure would otherwise take a lot of heap.
+     *
+     * <p>This is library API for callers which need the whole chunk structure at once. The viewer does not
+     * use it: it opens documents with {@link #readFileLazily(ChunkIndexCache)}, which reads only the chunks
+     * it shows.
+     *
+     * @return the DjVu file backed by the chunk table
+     */
+    public DjVuFile readFileCompact() {
+        final MappedByteBuffer buffer = mappedBuffer != null ? mappedBuffer : mapFile();
+        final ChunkTreeParser parser = new ChunkTreeParser(buffer, ChunkDataMode.MEMORY_MAPPED);
+        return new CompactDjVuFile(parser.readChunkTable(), parser);
+    }
+
+    /**
+     * Reads all chunks of a bundled multipage document like {@link #readFile()}, but every top-level component
+     * (page, shared dictionary, ...) is parsed by its own worker. The results are stitched together,
+     * so the chunk ids, the parent links and the chunk order are the same as after the sequential scan.
+     *
+     * @return the DjVu file
+     */
+    public DjVuFile readFileInParallel() {
+        final MappedByteBuffer buffer = mappedBuffer != null ? mappedBuffer : mapFile();
+        final ChunkTreeParser parser = new ChunkTreeParser(buffer, dataMode);
+
+        final List<Chunk> headerChunks = parser.readHeaderChunks();
+        final Chunk root = headerChunks.getFirst();
+        final Chunk lastHeaderChunk = headerChunks.getLast();
+        final long firstComponentPosition = root == lastHeaderChunk ?
+            ChunkTreeParser.firstChildOffset(root) : lastHeaderChunk.getOffsetEnd();
+
+        final List<Long> positions = parser.getChildPositions(root, firstComponentPosition);
+        LOG.debug("Parsing {} components in parallel", positions.size());
+
+        final List<List<Chunk>> components;
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final List<CompletableFuture<List<Chunk>>> futures = positions.stream()
+                .map(position -> CompletableFuture.supplyAsync(
+                    () -> parser.readChunkTree(position, root, 0), executor))
+                .toList();
+
+            components = futures.stream().map(this::joinComponent).toList();
+        }
+
+        final List<Chunk> chunks = new ArrayList<>(headerChunks);
+        for (List<Chunk> component : components) {
+            chunks.addAll(renumberChunks(component, root, chunks.size()));
+        }
+
         return new DjVuFileImpl(chunks);
     }
 
+    private List<Chunk> joinComponent(CompletableFuture<List<Chunk>> future) {
+        try {
+            return future.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof DjVuFileException cause) {
+                throw cause;
+            }
+            throw new DjVuFileException("Can not parse a component of the file " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /*
+        Every component is parsed with ids starting from 0, so the id of a chunk is also its index
+        in the component list. This is used to find the renumbered parent of each chunk.
+     */
+    private List<Chunk> renumberChunks(List<Chunk> component, Chunk root, long firstId) {
+        final List<Chunk> chunks = new ArrayList<>(component.size());
+        for (Chunk chunk : component) {
+            final Chunk parent = chunk.getParent() == root ? root : chunks.get((int) chunk.getParent().getId());
+            chunks.add(chunk.toBuilder()
+                .withId(firstId + chunks.size())
+                .withParent(parent)
+                .build());
+        }
+        return chunks;
+    }
+
     private List<Chunk> readChunks() {
         List<Chunk> chunks = new ArrayList<>();
         long chunkId = 0;
@@ -82,7 +249,7 @@ public class DjVuFileReader implements Closeable {
     private boolean isLastChunk(Chunk chunk) {
         Objects.requireNonNull(chunk, "chunk can not be null");
 
-        return !chunk.isComposite() && chunk.getOffsetEnd() == fileSize;
+        return !chunk.isComposite() && ChunkTreeParser.align(chunk.getOffsetEnd()) >= fileSize;
     }
 
     private void updateParentChunks(Stack<Chunk> parentChunks, Chunk chunk) {
@@ -93,12 +260,10 @@ public class DjVuFileReader implements Closeable {
             parentChunks.push(chunk);
             return;
         }
-        if (parentChunks.isEmpty()) {
-            return;
-        }
 
-        Chunk lastParent = parentChunks.peek();
-        if (lastParent.getOffsetEnd() == chunk.getOffsetEnd()) {
+        // The padding byte of an odd-sized last child is counted in the size of its parent
+        final long chunkEnd = ChunkTreeParser.align(chunk.getOffsetEnd());
+        while (!parentChunks.isEmpty() && parentChunks.peek().getOffsetEnd() <= chunkEnd) {
             parentChunks.pop();
         }
     }
@@ -127,10 +292,16 @@ public class DjVuFileReader implements Closeable {
         final long offsetStart = rawOffset;
         final SecondaryChunkId secondaryChunkId = chunkId.isComposite() ? readSecondaryChunkId() : null;
         byte[] data = null;
+        ByteBuffer buffer = null;
 
         if (!chunkId.isComposite()) {
-            data = new byte[size];
-            readBytes(data);
+            if (mappedBuffer != null) {
+                buffer = mapChunkData(offsetStart, size);
+            }
+            else {
+                data = new byte[size];
+                readBytes(data);
+            }
         }
 
         Chunk parent = parentChunks.empty() ? null : parentChunks.peek();
@@ -143,9 +314,21 @@ public class DjVuFileReader implements Closeable {
                 .withOffsetStart(offsetStart)
                 .withParent(parent)
                 .withData(data)
+                .withBuffer(buffer)
                 .build();
     }
 
+    private ByteBuffer mapChunkData(long offsetStart, int size) {
+        if (size < 0 || offsetStart + size > fileSize) {
+            throw new DjVuFileException(String.format("The chunk data [%d, %d) is out of the file bounds (%d)",
+                    offsetStart, offsetStart + size, fileSize));
+        }
+
+        final ByteBuffer buffer = mappedBuffer.slice((int) offsetStart, size).asReadOnlyBuffer();
+        skipBytes(size);
+        return buffer;
+    }
+
     @Override
     public void close() {
         if (inputStream == null) {
@@ -167,6 +350,26 @@ public class DjVuFileReader implements Closeable {
         catch (IOException e) {
             throw new DjVuFileException(String.format("Can not open stream for file %s", file.getAbsolutePath()), e);
         }
+
+        if (dataMode == ChunkDataMode.MEMORY_MAPPED) {
+            this.mappedBuffer = mapFile();
+        }
+    }
+
+    private MappedByteBuffer mapFile() {
+        try {
+            return ChunkTreeParser.mapFile(file);
+        }
+        catch (DjVuFileException e) {
+            /* close the stream here rather than via the overridable close() which may be called from the constructor */
+            try {
+                inputStream.close();
+            }
+            catch (IOException closeException) {
+                e.addSuppressed(closeException);
+            }
+            throw e;
+        }
     }
 
     private ChunkId readChunkId() {
@@ -0,0 +1,272 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file;
+
+import com.sternkn.djvu.file.chunks.Chunk;
+import com.sternkn.djvu.file.chunks.ChunkId;
+import com.sternkn.djvu.file.chunks.ComponentInfo;
+import com.sternkn.djvu.file.chunks.DirectoryChunk;
+import com.sternkn.djvu.file.chunks.NavmChunk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.sternkn.djvu.file.ChunkTreeParser.ROOT_HEADER_SIZE;
+
+/*
+    A bundled multipage document which is opened by reading only the magic header, the root FORM:DJVM chunk
+    and the DIRM and NAVM chunks. Every component (page, shared dictionary, ...) is read on demand
+    using its offset from the directory, so the open time does not depend on the number of pages.
+    The root chunk of a component is read first (for instance, when the children of the document root
+    are requested), its descendants are read when the component itself or one of its chunks is requested.
+
+    The header chunks may also be restored from the chunk index cache together with the decoded directory
+    and navigation menu, then the document is opened without reading the chunk headers or decoding DIRM and NAVM.
+
+    An indirect document is opened the same way from its index file (FORM:DJVM with DIRM and NAVM only).
+    Its components are separate files named by the component ids. The root chunk of a component is taken
+    from the first bytes of its file which are copied into the heap, so listing the components of a large
+    book does not map any file. The file is mapped only when the descendants of the component are read,
+    and the parser of the mapping is dropped right after that, so the document never keeps file handles open
+    (in the memory-mapped data mode the chunks keep the mapping alive). Since all component files start at offset 0,
+    every file gets its own range of virtual offsets, and a component is addressed by the virtual offset
+    of its FORM chunk (see getComponentOffset). So pages are addressed exactly as in a bundled document,
+    while the directory keeps the offsets stored in the file.
+
+    Chunk ids are assigned in the order in which the chunks are loaded, so they are unique
+    but they may differ from the ids assigned by a full sequential scan of the file.
+ */
+class LazyDjVuFile extends DjVuFileImpl {
+    private static final Logger LOG = LoggerFactory.getLogger(LazyDjVuFile.class);
+
+    /*
+        The size of the virtual offset range of one component file.
+        A file which can be memory-mapped is never larger.
+     */
+    private static final long COMPONENT_FILE_RANGE = 1L << 32;
+    private static final long COMPONENT_FORM_POSITION = 4;
+    private static final long CHUNK_HEADER_SIZE = 8;
+
+    private final ChunkTreeParser parser;
+    private final File baseDirectory;
+    private final ChunkDataMode dataMode;
+    private final Chunk root;
+    private final boolean isBundled;
+    private final Map<ComponentInfo, Long> componentOffsets;
+    private final Map<Long, ComponentInfo> componentsByOffset;
+    private final Map<Long, Chunk> componentChunks;
+    private final Set<Long> loadedComponents;
+    private long nextId;
+
+    /**
+     * @param parser the parser of the bundled document or of the index file of an indirect document
+     * @param baseDirectory the directory with the component files of an indirect document
+     * @param dataMode the data mode used for the component files of an indirect document
+     */
+    LazyDjVuFile(ChunkTreeParser parser, File baseDirectory, ChunkDataMode dataMode) {
+        this(parser, new DjVuFileImpl(parser.readHeaderChunks()), baseDirectory, dataMode);
+    }
+
+    private LazyDjVuFile(ChunkTreeParser parser, DjVuFileImpl header, File baseDirectory, ChunkDataMode dataMode) {
+        this(parser, header.getChunks(), header.getDirectoryChunk(), header.getNavigationMenu(),
+             baseDirectory, dataMode);
+    }
+
+    /**
+     * Creates the document from the header chunks which have been read before (for instance, from a chunk
+     * index cache) together with the already decoded directory and navigation menu.
+     *
+     * @param parser the parser of the bundled document or of the index file of an indirect document
+     * @param headerChunks the root chunk followed by the DIRM and NAVM chunks
+     * @param directoryChunk the decoded DIRM chunk
+     * @param navigationMenu the decoded NAVM chunk if present
+     * @param baseDirectory the directory with the component files of an indirect document
+     * @param dataMode the data mode used for the component files of an indirect document
+     */
+    LazyDjVuFile(ChunkTreeParser parser, List<Chunk> headerChunks, DirectoryChunk directoryChunk,
+                 Optional<NavmChunk> navigationMenu, File baseDirectory, ChunkDataMode dataMode) {
+        super(new ArrayList<>(headerChunks), directoryChunk, navigationMenu);
+        this.parser = parser;
+        this.baseDirectory = baseDirectory;
+        this.dataMode = dataMode;
+        this.root = headerChunks.getFirst();
+        this.nextId = headerChunks.stream().mapToLong(Chunk::getId).max().orElseThrow() + 1;
+        this.loadedComponents = new HashSet<>();
+        this.componentOffsets = new IdentityHashMap<>();
+        this.componentsByOffset = new LinkedHashMap<>();
+        this.componentChunks = new HashMap<>();
+
+        this.isBundled = directoryChunk.isBundled();
+        List<ComponentInfo> components = directoryChunk.getComponents();
+        for (int ind = 0; ind < components.size(); ind++) {
+            ComponentInfo component = components.get(ind);
+            long offset = isBundled ? component.getOffset() : getComponentFileOffset(ind) + COMPONENT_FORM_POSITION;
+            componentOffsets.put(component, offset);
+            componentsByOffset.put(offset, component);
+        }
+    }
+
+    private static long getComponentFileOffset(int componentIndex) {
+        return (componentIndex + 1) * COMPONENT_FILE_RANGE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getComponentOffset(ComponentInfo component) {
+        Long offset = componentOffsets.get(component);
+        if (offset == null) {
+            throw new DjVuFileException(String.format("The component %s is not found in the directory", component));
+        }
+        return offset;
+    }
+
+    /**
+     * Returns all chunks of the document. Please note that this method reads all components
+     * which have not been loaded yet.
+     *
+     * @return all chunks ordered by their offsets
+     */
+    @Override
+    public synchronized List<Chunk> getChunks() {
+        componentsByOffset.keySet().forEach(this::loadComponent);
+
+        return super.getChunks().stream()
+            .sorted(Comparator.comparingLong(Chunk::getOffsetStart))
+            .toList();
+    }
+
+    /**
+     * Returns the children of the composite chunk. The children of the document root are the DIRM
+     * and NAVM chunks followed by the root chunks of all components (only these chunks are read),
+     * the descendants of a component are read when the children of its root chunk are requested.
+     *
+     * @param chunk the composite chunk
+     * @return the child chunks in the file order
+     */
+    @Override
+    public synchronized List<Chunk> getChildren(Chunk chunk) {
+        if (chunk.getId() == root.getId()) {
+            componentsByOffset.keySet().forEach(this::getComponentChunk);
+        }
+        else if (chunk.getParent() != null && chunk.getParent().getId() == root.getId()) {
+            loadComponent(chunk.getOffsetStart() - CHUNK_HEADER_SIZE);
+        }
+
+        return super.getChildren(chunk);
+    }
+
+    @Override
+    public synchronized Chunk getChunkById(long chunkId) {
+        return super.getChunkById(chunkId);
+    }
+
+    @Override
+    public synchronized Chunk getChunkByOffset(long offset) {
+        return super.getChunkByOffset(offset);
+    }
+
+    @Override
+    public synchronized Map<ChunkId, List<Chunk>> getAllPageChunks(Chunk chunk) {
+        Map<ChunkId, List<Chunk>> pageChunks = new EnumMap<>(ChunkId.class);
+        super.getAllPageChunks(chunk).forEach((chunkId, chunks) -> pageChunks.put(chunkId, List.copyOf(chunks)));
+        return pageChunks;
+    }
+
+    @Override
+    public synchronized List<Chunk> getAllPageChunksWithSameChunkId(Chunk chunk) {
+        return List.copyOf(super.getAllPageChunksWithSameChunkId(chunk));
+    }
+
+    @Override
+    public synchronized Chunk findSharedShapeChunk(Chunk chunk) {
+        return super.findSharedShapeChunk(chunk);
+    }
+
+    @Override
+    protected synchronized Chunk findChunkByOffset(long chunkOffset) {
+        loadComponent(chunkOffset - OFFSET_ALIGNMENT);
+        return super.findChunkByOffset(chunkOffset);
+    }
+
+    /*
+        Reads the root chunk of the component, returns null if there is no component at the offset.
+     */
+    private Chunk getComponentChunk(long componentOffset) {
+        Chunk chunk = componentChunks.get(componentOffset);
+        ComponentInfo component = componentsByOffset.get(componentOffset);
+        if (chunk != null || component == null) {
+            return chunk;
+        }
+
+        if (isBundled) {
+            chunk = parser.readChunk(componentOffset, root, nextId++);
+        }
+        else {
+            ByteBuffer header = ChunkTreeParser.readFileStart(getComponentFile(component), ROOT_HEADER_SIZE);
+            chunk = new ChunkTreeParser(header, getComponentFileBase(componentOffset), dataMode)
+                .readComponentRoot(root, nextId++);
+        }
+
+        componentChunks.put(componentOffset, chunk);
+        addChunks(List.of(chunk));
+        return chunk;
+    }
+
+    private void loadComponent(long componentOffset) {
+        Chunk chunk = getComponentChunk(componentOffset);
+        if (chunk == null || !loadedComponents.add(componentOffset)) {
+            return;
+        }
+
+        ComponentInfo component = componentsByOffset.get(componentOffset);
+        LOG.debug("Loading component {}", component);
+        ChunkTreeParser componentParser = isBundled ? parser : new ChunkTreeParser(
+            ChunkTreeParser.mapFile(getComponentFile(component)), getComponentFileBase(componentOffset), dataMode);
+        List<Chunk> chunks = componentParser.readDescendants(chunk, nextId);
+        nextId += chunks.size();
+        addChunks(chunks);
+    }
+
+    private File getComponentFile(ComponentInfo component) {
+        File file = new File(baseDirectory, component.getId());
+        if (!file.isFile()) {
+            throw new DjVuFileException(String.format("The component file %s of the indirect document is not found",
+                    file.getAbsolutePath()));
+        }
+        return file;
+    }
+
+    private static long getComponentFileBase(long componentOffset) {
+        return componentOffset - COMPONENT_FORM_POSITION;
+    }
+}
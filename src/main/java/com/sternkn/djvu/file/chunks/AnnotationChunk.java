@@ -23,12 +23,12 @@ import com.sternkn.djvu.file.chunks.annotations.BackgroundColor;
 import com.sternkn.djvu.file.chunks.annotations.InitialDisplayLevel;
 import com.sternkn.djvu.file.chunks.annotations.InitialZoom;
 import com.sternkn.djvu.file.chunks.annotations.MapArea;
-import com.sternkn.djvu.file.coders.BSByteInputStream;
+import com.sternkn.djvu.utils.ByteBufferInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import static com.sternkn.djvu.utils.InputStreamUtils.readString;
@@ -58,10 +58,10 @@ public class AnnotationChunk extends Chunk {
     }
 
     private String encodeText() {
-        InputStream byteStream = new ByteArrayInputStream(data);
-        if (this.getChunkId() == ChunkId.ANTz) {
-            byteStream = new BSByteInputStream(byteStream);
-        }
+        final ByteBuffer dataBuffer = getDataBuffer();
+        final InputStream byteStream = this.getChunkId() == ChunkId.ANTz
+            ? createBzzStream(dataBuffer)
+            : new ByteBufferInputStream(dataBuffer);
         return readString(byteStream);
     }
 
@@ -18,13 +18,18 @@
 package com.sternkn.djvu.file.chunks;
 
 import com.sternkn.djvu.file.DjVuFileException;
+import com.sternkn.djvu.file.coders.BSByteInputStream;
 
+import java.nio.ByteBuffer;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.sternkn.djvu.utils.StringUtils.NL;
 
 public class Chunk {
 
+    private static final int PIPELINED_DECODING_SIZE = 256 * 1024;
+
     private final long id;
     private final ChunkId chunkId;
     private final SecondaryChunkId secondaryChunkId;
@@ -32,6 +37,12 @@ public class Chunk {
     private final Chunk parent;
     protected final byte[] data;
 
+    /**
+     * A read-only slice of a memory-mapped file. If it is not null, then {@code data} is null
+     * and the chunk bytes are copied out of the mapping only when {@link #getData()} is called.
+     */
+    private final ByteBuffer buffer;
+
     /**
      * This is true only for ChunkId.FORM
      */
@@ -57,7 +68,8 @@ public class Chunk {
         this.chunkId = chunk.getChunkId();
         this.secondaryChunkId = chunk.getSecondaryChunkId();
         this.parent = chunk.getParent();
-        this.data = chunk.getData();
+        this.data = chunk.data;
+        this.buffer = chunk.buffer;
         this.isComposite = chunk.isComposite();
         this.offsetStart = chunk.getOffsetStart();
         this.offsetEnd = chunk.getOffsetEnd();
@@ -74,6 +86,7 @@ public class Chunk {
         this.size = builder.size;
         this.offsetEnd = this.offsetStart + this.size;
         this.data = builder.data;
+        this.buffer = builder.buffer;
 
         if (this.size <= 0) {
             throw new DjVuFileException(String.format("The chunk %s:%s size is %s - negative value",
@@ -122,8 +135,38 @@ public class Chunk {
         return this.size;
     }
 
+    /**
+     * Returns the chunk data. For a memory-mapped chunk every call copies the mapped bytes into a new array,
+     * so it is meant for the callers that need an array; the chunk parsers read {@link #getDataBuffer()}.
+     *
+     * @return the chunk data; {@code null} for composite chunks
+     */
     public byte[] getData() {
-        return this.data;
+        if (this.buffer == null) {
+            return this.data;
+        }
+
+        final byte[] bytes = new byte[this.buffer.capacity()];
+        this.buffer.get(0, bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns the chunk data without copying it: a read-only view of the memory-mapped bytes or
+     * of the chunk data array. Every call returns a new view positioned at the first data byte.
+     *
+     * @return the chunk data; {@code null} for composite chunks
+     */
+    public ByteBuffer getDataBuffer() {
+        if (this.buffer != null) {
+            return this.buffer.duplicate();
+        }
+
+        return this.data == null ? null : ByteBuffer.wrap(this.data).asReadOnlyBuffer();
+    }
+
+    public boolean isMemoryMapped() {
+        return this.buffer != null;
     }
 
     public String getDataAsText() {
@@ -139,10 +182,36 @@ public class Chunk {
         return buffer.toString();
     }
 
+    /**
+     * Returns a stream which decodes the BZZ data between the buffer position and limit.
+     * The data of several BZZ blocks (e.g. the text, the annotations or the directory of a whole book)
+     * is decoded in the pipelined mode on the common pool, it does not pay off for smaller data.
+     *
+     * @param data the BZZ coded data
+     * @return the decoded stream
+     */
+    protected static BSByteInputStream createBzzStream(ByteBuffer data) {
+        return data.remaining() < PIPELINED_DECODING_SIZE
+            ? new BSByteInputStream(data)
+            : new BSByteInputStream(data, ForkJoinPool.commonPool());
+    }
+
     public static Builder builder() {
         return new Builder();
     }
 
+    public Builder toBuilder() {
+        return new Builder()
+                .withId(this.id)
+                .withChunkId(this.chunkId)
+                .withSecondaryChunkId(this.secondaryChunkId)
+                .withParent(this.parent)
+                .withOffsetStart(this.offsetStart)
+                .withSize(this.size)
+                .withData(this.data)
+                .withBuffer(this.buffer);
+    }
+
     public static class Builder {
         private long id;
         private ChunkId chunkId;
@@ -151,6 +220,7 @@ public class Chunk {
         private long offsetStart;
         private long size;
         private byte[] data;
+        private ByteBuffer buffer;
 
         public Builder() {
         }
@@ -190,6 +260,11 @@ public class Chunk {
             return this;
         }
 
+        public Builder withBuffer(ByteBuffer buffer) {
+            this.buffer = buffer;
+            return this;
+        }
+
         public Chunk build() {
             return new Chunk(this);
         }
@@ -19,10 +19,11 @@ package com.sternkn.djvu.file.chunks;
 
 import com.sternkn.djvu.file.DjVuFileException;
 import com.sternkn.djvu.file.coders.BSByteInputStream;
+import com.sternkn.djvu.utils.ByteBufferInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.stream.IntStream;
 
@@ -54,14 +55,34 @@ public class DirectoryChunk extends Chunk {
 
     public DirectoryChunk(Chunk chunk) {
         super(chunk);
-        final ByteArrayInputStream byteStream = new ByteArrayInputStream(data);
+        final ByteBuffer dataBuffer = chunk.getDataBuffer();
+        final ByteBufferInputStream byteStream = new ByteBufferInputStream(dataBuffer);
         int flags = byteStream.read();
         isBundled = (flags & 0x80) != 0;
         version = flags & 0x7f;
         nFiles = read16(byteStream);
         components = IntStream.range(0, nFiles).mapToObj(i -> new ComponentInfo()).toList();
 
-        readComponents(byteStream);
+        readComponents(byteStream, dataBuffer);
+
+        validateComponents();
+    }
+
+    /**
+     * Creates the directory from the already decoded data (for instance, from a chunk index cache),
+     * so the BZZ-compressed chunk data is not decoded again.
+     *
+     * @param chunk the DIRM chunk
+     * @param isBundled whether the document is bundled
+     * @param version the directory version
+     * @param components the components of the document
+     */
+    public DirectoryChunk(Chunk chunk, boolean isBundled, int version, List<ComponentInfo> components) {
+        super(chunk);
+        this.isBundled = isBundled;
+        this.version = version;
+        this.nFiles = components.size();
+        this.components = List.copyOf(components);
 
         validateComponents();
     }
@@ -129,14 +150,17 @@ public class DirectoryChunk extends Chunk {
         return buffer.toString();
     }
 
-    private void readComponents(ByteArrayInputStream byteStream) {
+    /*
+        The byte stream reads the data buffer, so the BZZ data starts at the buffer position after the offsets.
+     */
+    private void readComponents(ByteBufferInputStream byteStream, ByteBuffer dataBuffer) {
         if (isBundled) {
             for (int ind = 0; ind < nFiles; ind++) {
                 components.get(ind).setOffset(read32(byteStream));
             }
         }
 
-        final BSByteInputStream bzzData = new BSByteInputStream(byteStream);
+        final BSByteInputStream bzzData = createBzzStream(dataBuffer);
 
         for (int ind = 0; ind < nFiles; ind++) {
             components.get(ind).setSize(read24(bzzData));
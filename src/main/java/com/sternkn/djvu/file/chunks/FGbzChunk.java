@@ -19,10 +19,11 @@ package com.sternkn.djvu.file.chunks;
 
 import com.sternkn.djvu.file.DjVuFileException;
 import com.sternkn.djvu.file.coders.BSByteInputStream;
+import com.sternkn.djvu.utils.ByteBufferInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -46,7 +47,8 @@ public class FGbzChunk extends Chunk {
 
     public FGbzChunk(Chunk chunk) {
         super(chunk);
-        final ByteArrayInputStream byteStream = new ByteArrayInputStream(data);
+        final ByteBuffer dataBuffer = chunk.getDataBuffer();
+        final ByteBufferInputStream byteStream = new ByteBufferInputStream(dataBuffer);
         int flags = byteStream.read();
         isShapeTableExist = (flags & 0x80) != 0;
         version = flags & 0x7f;
@@ -71,7 +73,7 @@ public class FGbzChunk extends Chunk {
         if (isShapeTableExist) {
             dataSize  = read24(byteStream);
             indexes = new ArrayList<>(dataSize);
-            final BSByteInputStream bzzData = new BSByteInputStream(byteStream);
+            final BSByteInputStream bzzData = createBzzStream(dataBuffer);
             for (int ind = 0; ind < dataSize; ind++) {
                 indexes.add(read16(bzzData));
             }
@@ -116,7 +118,7 @@ public class FGbzChunk extends Chunk {
         return buffer.toString();
     }
 
-        private Color readColor(ByteArrayInputStream byteStream) {
+        private Color readColor(ByteBufferInputStream byteStream) {
         return new Color(byteStream.read(), byteStream.read(), byteStream.read());
     }
 
@@ -17,10 +17,10 @@
 */
 package com.sternkn.djvu.file.chunks;
 
+import com.sternkn.djvu.utils.ByteBufferInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
 
 import static com.sternkn.djvu.utils.InputStreamUtils.readString;
 import static com.sternkn.djvu.utils.StringUtils.NL;
@@ -32,8 +32,8 @@ public class InclChunk extends Chunk {
 
     public InclChunk(Chunk chunk) {
         super(chunk);
-        final ByteArrayInputStream byteStream = new ByteArrayInputStream(data);
-        this.sharedComponentID = readString(byteStream, data.length);
+        final ByteBufferInputStream byteStream = new ByteBufferInputStream(chunk.getDataBuffer());
+        this.sharedComponentID = readString(byteStream, (int) chunk.getSize());
         LOG.debug("Shared component ID: {}", sharedComponentID);
     }
 
@@ -18,9 +18,9 @@
 package com.sternkn.djvu.file.chunks;
 
 
+import com.sternkn.djvu.utils.ByteBufferInputStream;
 import com.sternkn.djvu.utils.ByteOrder;
 
-import java.io.ByteArrayInputStream;
 
 import static com.sternkn.djvu.utils.InputStreamUtils.read16;
 import static com.sternkn.djvu.utils.StringUtils.NL;
@@ -65,7 +65,7 @@ public class InfoChunk extends Chunk {
 
     public InfoChunk(Chunk chunk) {
         super(chunk);
-        final ByteArrayInputStream byteStream = new ByteArrayInputStream(data);
+        final ByteBufferInputStream byteStream = new ByteBufferInputStream(chunk.getDataBuffer());
         this.width = read16(byteStream);
         this.height = read16(byteStream);
         this.minorVersion = byteStream.read();
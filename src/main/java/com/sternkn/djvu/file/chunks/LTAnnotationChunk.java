@@ -17,10 +17,10 @@
 */
 package com.sternkn.djvu.file.chunks;
 
-import com.sternkn.djvu.file.coders.BSByteInputStream;
+import com.sternkn.djvu.utils.ByteBufferInputStream;
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import static com.sternkn.djvu.utils.InputStreamUtils.readString;
 import static com.sternkn.djvu.utils.StringUtils.NL;
@@ -35,10 +35,10 @@ public class LTAnnotationChunk extends Chunk {
     }
 
     private String encodeText() {
-        InputStream byteStream = new ByteArrayInputStream(data);
-        if (this.getChunkId() == ChunkId.LTAz) {
-            byteStream = new BSByteInputStream(byteStream);
-        }
+        final ByteBuffer dataBuffer = getDataBuffer();
+        final InputStream byteStream = this.getChunkId() == ChunkId.LTAz
+            ? createBzzStream(dataBuffer)
+            : new ByteBufferInputStream(dataBuffer);
         return readString(byteStream);
     }
 
@@ -21,7 +21,6 @@ import com.sternkn.djvu.file.coders.BSByteInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -39,8 +38,7 @@ public class NavmChunk extends Chunk {
 
     public NavmChunk(Chunk chunk) {
         super(chunk);
-        final ByteArrayInputStream byteStream = new ByteArrayInputStream(data);
-        final BSByteInputStream bzzData = new BSByteInputStream(byteStream);
+        final BSByteInputStream bzzData = createBzzStream(chunk.getDataBuffer());
 
         final int countBookmarks = read16(bzzData);
         LOG.debug("countBookmarks = {}", countBookmarks);
@@ -57,6 +55,18 @@ public class NavmChunk extends Chunk {
         }
     }
 
+    /**
+     * Creates the navigation menu from the already decoded bookmarks (for instance, from a chunk index cache),
+     * so the BZZ-compressed chunk data is not decoded again.
+     *
+     * @param chunk the NAVM chunk
+     * @param bookmarks the bookmarks
+     */
+    public NavmChunk(Chunk chunk, List<Bookmark> bookmarks) {
+        super(chunk);
+        this.bookmarks = List.copyOf(bookmarks);
+    }
+
     @Override
     public String getDataAsText() {
         String parentData = super.getDataAsText();
@@ -18,11 +18,10 @@
 package com.sternkn.djvu.file.chunks;
 
 import com.sternkn.djvu.file.DjVuFileException;
-import com.sternkn.djvu.file.coders.BSByteInputStream;
+import com.sternkn.djvu.utils.ByteBufferInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
@@ -78,11 +77,11 @@ public class TextChunk extends Chunk {
     }
 
     private InputStream getInputStream() {
-        InputStream stream = new ByteArrayInputStream(data);
-        if (this.getChunkId() == ChunkId.TXTz) {
-            stream = new BSByteInputStream(stream);
+        if (this.getChunkId() != ChunkId.TXTz) {
+            return new ByteBufferInputStream(getDataBuffer());
         }
-        return stream;
+
+        return createBzzStream(getDataBuffer());
     }
 
     @Override
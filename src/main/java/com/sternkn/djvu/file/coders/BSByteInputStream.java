@@ -23,16 +23,18 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import static com.sternkn.djvu.file.coders.BSByteStreamUtils.CTXIDS;
-import static com.sternkn.djvu.file.coders.BSByteStreamUtils.KILOBYTE;
 import static com.sternkn.djvu.file.coders.BSByteStreamUtils.MAX_BLOCK_SIZE;
 import static com.sternkn.djvu.file.coders.BSByteStreamUtils.getXMTF;
 import static com.sternkn.djvu.utils.NumberUtils.asUnsignedInt;
-import static com.sternkn.djvu.utils.NumberUtils.asUnsignedByte;
 
 /*
 
@@ -41,12 +43,14 @@ public class BSByteInputStream extends InputStream {
 
     private static final Logger LOG = LoggerFactory.getLogger(BSByteInputStream.class);
 
+    private static final byte[] EMPTY = new byte[0];
+
     private int bptr;
     private int blocksize;
     private int size;
 
-    /** Context variable.
-     Variables of type #BitContext# hold a single byte describing how to encode
+    /** Context variables.
+     Each byte of this table holds a single byte describing how to encode
      or decode message bits with similar statistical properties.  This single
      byte simultaneously represents the current estimate of the bit probability
      distribution (which is determined by the frequencies of #1#s and #0#s
@@ -62,79 +66,162 @@ public class BSByteInputStream extends InputStream {
      decoded message bits and decode the current bit using the same context as
      the encoder.  This is critical for proper decoding.
      */
-    private BitContext[] ctx;
+    private final byte[] ctx;
     private boolean eof;
 
-    private int[] gdata;
+    private byte[] gdata;
 
     private final ZPCodecDecoder zpDecoder;
 
+    /* Pipelined mode only: the executor of the inverse sort transform and the block decoded ahead */
+    private final Executor executor;
+    private CompletableFuture<byte[]> nextBlock;
+    private boolean lastBlockDecoded;
 
     public BSByteInputStream(InputStream inputStream) {
-        this.zpDecoder = new ZpCodecInputStream(inputStream);
+        this(new ZpCodecInputStream(inputStream), null);
+    }
+
+    /**
+     * @param data the BZZ coded data between the buffer position and limit, e.g. a slice of a memory-mapped file
+     */
+    public BSByteInputStream(ByteBuffer data) {
+        this(new ZpCodecBufferDecoder(data), null);
+    }
+
+    /**
+     * Creates a pipelined stream: while the inverse sort transform of a block runs on the executor,
+     * the calling thread decodes the symbols of the next block. The decoded data are the same,
+     * it is faster for streams of several blocks (large TXTz, ANTz or DIRM data).
+     *
+     * @param data the BZZ coded data between the buffer position and limit
+     * @param executor the executor of the inverse sort transform
+     */
+    public BSByteInputStream(ByteBuffer data, Executor executor) {
+        this(new ZpCodecBufferDecoder(data), Objects.requireNonNull(executor, "executor"));
+    }
+
+    private BSByteInputStream(ZPCodecDecoder zpDecoder, Executor executor) {
+        this.zpDecoder = zpDecoder;
+        this.executor = executor;
 
         this.bptr = 0;
         this.blocksize = 0;
         this.size = 0;
-        this.ctx = new BitContext[300];
-
-        for (int ind = 0; ind < this.ctx.length; ind++) {
-            ctx[ind] = new BitContext();
-        }
+        this.ctx = new byte[300];
     }
 
     /*
         see  int decode_raw(ZPCodec &zp, int bits) implementation from BSByteStream.cpp
      */
-    private int decodeRaw(int bits, int ... bitContextIndex) {
+    private int decodeRaw(int bits) {
         int n = 1;
         final int m = (1 << bits);
         while (n < m) {
-            final int b;
-            if (bitContextIndex.length > 0) {
-                b = zpDecoder.decoder(ctx[bitContextIndex[0] + n]);
-            }
-            else {
-                b = zpDecoder.decoder();
-            }
-            n = (n << 1) | b;
+            n = (n << 1) | zpDecoder.decoder();
         }
         return n - m;
     }
 
-    private void updateData(int[] mtf, int mtfno, int dataIndex) {
-        gdata[dataIndex] = mtf[mtfno];
+    private int decodeRaw(int bits, int bitContextIndex) {
+        int n = 1;
+        final int m = (1 << bits);
+        while (n < m) {
+            n = (n << 1) | zpDecoder.decoder(ctx, bitContextIndex + n);
+        }
+        return n - m;
+    }
+
+    private static void updateData(byte[] data, int[] mtf, int mtfno, int dataIndex) {
+        final int value = mtf[mtfno];
+        data[dataIndex] = (byte) value;
 
         for (int k = mtfno; k > 0; k--) {
             mtf[k] = mtf[k - 1];
         }
-        mtf[0] = gdata[dataIndex];
+        mtf[0] = value;
     }
 
     private int decode() {
-        this.size = decodeRaw(24);
-        LOG.debug("Decoded block size = {}", this.size);
-
+        this.size = decodeBlockSize();
         if (this.size == 0) {
             return 0;
         }
 
-        if (this.size > MAX_BLOCK_SIZE) {
-            throw new DjVuFileException("Too big BZZ block size: " + this.size +
-                    ". It should be between 10K and 4M");
-        }
-
         if (blocksize < size) {
             blocksize = size;
-            if (gdata == null) {
-                gdata = new int[blocksize];
+            gdata = new byte[blocksize];
+        }
+
+        final int markerpos = decodeSymbols(gdata, size);
+        inverseTransform(gdata, size, markerpos);
+
+        return size;
+    }
+
+    /*
+        Pipelined mode: the symbols of the block are decoded on the calling thread, the inverse
+        sort transform runs on the executor while the calling thread decodes the next block.
+        Returns a future of null for the end of the stream.
+     */
+    private CompletableFuture<byte[]> decodeAsync() {
+        try {
+            final int blockSize = decodeBlockSize();
+            if (blockSize == 0) {
+                lastBlockDecoded = true;
+                return CompletableFuture.completedFuture(null);
             }
+
+            final byte[] data = new byte[blockSize];
+            final int markerpos = decodeSymbols(data, blockSize);
+
+            return CompletableFuture.supplyAsync(() -> {
+                inverseTransform(data, blockSize, markerpos);
+                return data;
+            }, executor);
+        }
+        catch (RuntimeException e) {
+            lastBlockDecoded = true;
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> future) {
+        try {
+            return future.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private int decodeBlockSize() {
+        final int blockSize = decodeRaw(24);
+        LOG.debug("Decoded block size = {}", blockSize);
+
+        if (blockSize == 0) {
+            return 0;
+        }
+
+        if (blockSize > MAX_BLOCK_SIZE) {
+            throw new DjVuFileException("Too big BZZ block size: " + blockSize +
+                    ". It should be between 10K and 4M");
         }
 
         // Decode Estimation Speed
         if (zpDecoder.decoder() != 0) {
             zpDecoder.decoder();
         }
+        return blockSize;
+    }
+
+    /*
+        Decodes the move-to-front coded symbols of the block and returns the marker position
+     */
+    private int decodeSymbols(byte[] data, int size) {
 
         int[] mtf = getXMTF();
 
@@ -145,65 +232,71 @@ public class BSByteInputStream extends InputStream {
         for (int index = 0; index < size; index++) {
             final int ctxid = Math.min(CTXIDS - 1, mtfno);
 
-            if (zpDecoder.decoder(ctx[ctxid]) != 0) {
+            if (zpDecoder.decoder(ctx, ctxid) != 0) {
                 mtfno = 0;
-                updateData(mtf, mtfno, index);
+                updateData(data, mtf, mtfno, index);
                 continue;
             }
 
-            if (zpDecoder.decoder(ctx[CTXIDS + ctxid]) != 0) {
+            if (zpDecoder.decoder(ctx, CTXIDS + ctxid) != 0) {
                 mtfno = 1;
-                updateData(mtf, mtfno, index);
+                updateData(data, mtf, mtfno, index);
                 continue;
             }
 
-            if (zpDecoder.decoder(ctx[2 * CTXIDS]) != 0) {
+            if (zpDecoder.decoder(ctx, 2 * CTXIDS) != 0) {
                 mtfno = 2 + decodeRaw(1, 2 * CTXIDS);
-                updateData(mtf, mtfno, index);
+                updateData(data, mtf, mtfno, index);
                 continue;
             }
 
-            if (zpDecoder.decoder(ctx[2 * CTXIDS + 2]) != 0) {
+            if (zpDecoder.decoder(ctx, 2 * CTXIDS + 2) != 0) {
                 mtfno = 4 + decodeRaw(2, 2 * CTXIDS + 2);
-                updateData(mtf, mtfno, index);
+                updateData(data, mtf, mtfno, index);
                 continue;
             }
 
-            if (zpDecoder.decoder(ctx[2 * CTXIDS + 6]) != 0) {
+            if (zpDecoder.decoder(ctx, 2 * CTXIDS + 6) != 0) {
                 mtfno = 8 + decodeRaw(3, 2 * CTXIDS + 6);
-                updateData(mtf, mtfno, index);
+                updateData(data, mtf, mtfno, index);
                 continue;
             }
 
-            if (zpDecoder.decoder(ctx[2 * CTXIDS + 14]) != 0) {
+            if (zpDecoder.decoder(ctx, 2 * CTXIDS + 14) != 0) {
                 mtfno = 16  + decodeRaw(4, 2 * CTXIDS + 14);
-                updateData(mtf, mtfno, index);
+                updateData(data, mtf, mtfno, index);
                 continue;
             }
 
-            if (zpDecoder.decoder(ctx[2 * CTXIDS + 30]) != 0) {
+            if (zpDecoder.decoder(ctx, 2 * CTXIDS + 30) != 0) {
                 mtfno = 32 + decodeRaw(5, 2 * CTXIDS + 30);
-                updateData(mtf, mtfno, index);
+                updateData(data, mtf, mtfno, index);
                 continue;
             }
 
-            if (zpDecoder.decoder(ctx[2 * CTXIDS + 62]) != 0) {
+            if (zpDecoder.decoder(ctx, 2 * CTXIDS + 62) != 0) {
                 mtfno = 64 + decodeRaw(6, 2 * CTXIDS + 62);
-                updateData(mtf, mtfno, index);
+                updateData(data, mtf, mtfno, index);
                 continue;
             }
 
-            if (zpDecoder.decoder(ctx[2 * CTXIDS + 126]) != 0) {
+            if (zpDecoder.decoder(ctx, 2 * CTXIDS + 126) != 0) {
                 mtfno = 128 + decodeRaw(7, 2 * CTXIDS + 126);
-                updateData(mtf, mtfno, index);
+                updateData(data, mtf, mtfno, index);
                 continue;
             }
 
             mtfno = 256;
-            gdata[index] = 0;
+            data[index] = 0;
             markerpos = index;
         }
+        return markerpos;
+    }
 
+    /*
+        Undoes the sort transform of the decoded block in place
+     */
+    private static void inverseTransform(byte[] data, int size, int markerpos) {
         /////////////////////////////////
         ////////// Reconstruct the string
 
@@ -213,7 +306,7 @@ public class BSByteInputStream extends InputStream {
         }
 
         // Prepare count buffer
-        long[] posn = new long[blocksize];
+        long[] posn = new long[size];
         int[] count = new int [256];
 
         // Fill count buffer
@@ -221,7 +314,7 @@ public class BSByteInputStream extends InputStream {
             if (i == markerpos) {
                 continue;
             }
-            int c = gdata[i];
+            int c = data[i] & 0xFF;
             posn[i] = asUnsignedInt(((long) c << 24) | (count[c] & 0xffffff));
             count[c] += 1;
         }
@@ -240,7 +333,7 @@ public class BSByteInputStream extends InputStream {
         while (last > 0) {
             long n = posn[ind];
             int c = (int) (posn[ind] >> 24);
-            gdata[--last] = c;
+            data[--last] = (byte) c;
             ind = (int) (count[c] + (n & 0xffffff));
         }
 
@@ -249,15 +342,53 @@ public class BSByteInputStream extends InputStream {
             throw new DjVuFileException(String.format("It is corrupted bzz byte stream (ind = %s, markerpos = %s)",
                     ind, markerpos));
         }
+    }
 
-        return size;
+    /*
+        Decodes the next block when the current one is consumed.
+        Returns false if there is no more data.
+     */
+    private boolean fill() {
+        while (size == 0) {
+            if (eof) {
+                return false;
+            }
+
+            bptr = 0;
+            if (executor == null) {
+                if (decode() == 0) {
+                    eof = true;
+                    return false;
+                }
+            }
+            else {
+                if (nextBlock == null) {
+                    nextBlock = decodeAsync();
+                }
+                final CompletableFuture<byte[]> current = nextBlock;
+                nextBlock = lastBlockDecoded ? null : decodeAsync();
+
+                gdata = join(current);
+                if (gdata == null) {
+                    eof = true;
+                    return false;
+                }
+                size = gdata.length;
+            }
+            // the last byte of a block is not a part of the data
+            size -= 1;
+        }
+        return true;
     }
 
     @Override
     public int read() {
-        byte[] bytes = new byte[1];
-        int number = read(bytes);
-        return number > 0 ? asUnsignedByte(bytes[0]) : number;
+        if (!fill()) {
+            return -1;
+        }
+
+        size--;
+        return gdata[bptr++] & 0xFF;
     }
 
     /**
@@ -274,97 +405,98 @@ public class BSByteInputStream extends InputStream {
             throw new IllegalArgumentException("buffer can not be null");
         }
 
-        if (eof) {
-            return -1;
+        return read(buffer, 0, buffer.length);
+    }
+
+    /**
+     * Reads up to {@code len} bytes into the buffer. Unlike the general contract, it blocks
+     * (decodes the following blocks) until {@code len} bytes are read or the end of the stream is reached.
+     */
+    @Override
+    public int read(byte[] b, int off, int len) {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
         }
 
         int copied = 0;
-        int sz = buffer.length;
-        int bufferPtr = 0;
-
-        while (sz > 0 && !eof) {
-            // Decode if needed
-            if (size == 0) {
-                bptr = 0;
-                if (decode() == 0) {
-                    size = 1 ;
-                    eof = true;
-                }
-                size -= 1;
-            }
-
-            // Compute remaining
-            int bytes = Math.min(size, sz);
-
-            // Transfer
-            for (int ind = 0; ind < bytes; ind++) {
-                buffer[bufferPtr] = (byte)(gdata[ind + bptr] & 0xFF);
-                bufferPtr++;
-            }
+        while (copied < len && fill()) {
+            final int bytes = Math.min(size, len - copied);
+            System.arraycopy(gdata, bptr, b, off + copied, bytes);
 
             size -= bytes;
             bptr += bytes;
-            sz -= bytes;
             copied += bytes;
         }
 
-        // Return copied bytes
-        return copied;
+        return copied == 0 ? -1 : copied;
     }
 
     @Override
-    public int read(byte[] b, int off, int len) {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public byte[] readAllBytes() {
+        return readNBytes(Integer.MAX_VALUE);
     }
 
     @Override
-    public byte[] readAllBytes() {
-        byte[] buffer = new byte[KILOBYTE];
-        List<byte[]> data = new ArrayList<>();
-        int number = read(buffer);
-        while (number == KILOBYTE) {
-            data.add(buffer);
-
-            buffer = new byte[KILOBYTE];
-            number = read(buffer);
+    public byte[] readNBytes(int len) {
+        if (len < 0) {
+            throw new IllegalArgumentException("len < 0");
         }
 
-        int total = data.size() * KILOBYTE + number;
+        byte[] result = EMPTY;
+        int length = 0;
+        while (length < len && fill()) {
+            final int bytes = Math.min(size, len - length);
+            if (length + bytes > result.length) {
+                // a stream usually has only one block, so its bytes are copied once
+                final int capacity = length == 0 ? bytes : (int) Math.min(len, Math.max(2L * result.length, length + bytes));
+                result = Arrays.copyOf(result, capacity);
+            }
+            System.arraycopy(gdata, bptr, result, length, bytes);
 
-        byte[] result = new byte[total];
-        int line = 0;
-        for (byte[] arr : data) {
-            System.arraycopy(arr, 0, result, line * KILOBYTE, arr.length);
-            line++;
+            size -= bytes;
+            bptr += bytes;
+            length += bytes;
         }
-        System.arraycopy(buffer, 0, result, line * KILOBYTE, number);
 
-        return result;
-    }
-
-    @Override
-    public byte[] readNBytes(int len) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return length == result.length ? result : Arrays.copyOf(result, length);
     }
 
     @Override
     public long skip(long n) {
-        throw new UnsupportedOperationException("Not supported yet.");
-    }
+        long skipped = 0;
+        while (skipped < n && fill()) {
+            final int bytes = (int) Math.min(size, n - skipped);
 
-    @Override
-    public void skipNBytes(long n) {
-        throw new UnsupportedOperationException("Not supported yet.");
+            size -= bytes;
+            bptr += bytes;
+            skipped += bytes;
+        }
+        return skipped;
     }
 
+    /**
+     * Returns the number of the decoded bytes which are not read yet.
+     * Reading them does not require decoding the next block.
+     */
     @Override
     public int available() {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return size;
     }
 
     @Override
-    public long transferTo(OutputStream out) {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public long transferTo(OutputStream out) throws IOException {
+        Objects.requireNonNull(out, "out");
+
+        long transferred = 0;
+        while (fill()) {
+            out.write(gdata, bptr, size);
+
+            bptr += size;
+            transferred += size;
+            size = 0;
+        }
+        return transferred;
     }
 
     @Override
@@ -23,6 +23,12 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import static com.sternkn.djvu.file.coders.BSByteStreamUtils.CTXIDS;
 import static com.sternkn.djvu.file.coders.BSByteStreamUtils.KILOBYTE;
@@ -42,6 +48,7 @@ public class BSByteOutputStream extends OutputStream {
 
     private final ZPCodecEncoder zpEncoder;
     private final int blocksize;
+    private final BlockSortAlgorithm sortAlgorithm;
 
     private int[] gdata;
     private int bptr;
@@ -49,8 +56,45 @@ public class BSByteOutputStream extends OutputStream {
 
     private BitContext[] ctx;
 
+    /* Parallel mode only: the executor of the block sort and the blocks which wait for encoding in order */
+    private final Executor executor;
+    private final int maxPendingBlocks;
+    private final Deque<PendingBlock> pendingBlocks;
+
+    private record PendingBlock(int[] data, int size, CompletableFuture<Integer> markerpos) {
+    }
+
     public BSByteOutputStream(OutputStream outputStream, int xencoding) {
+        this(outputStream, xencoding, BlockSortAlgorithm.RADIX_QUICKSORT);
+    }
+
+    /**
+     * @param outputStream the target of the encoded data
+     * @param xencoding the block size in kilobytes
+     * @param sortAlgorithm the block sort; the encoded data are the same for every algorithm
+     */
+    public BSByteOutputStream(OutputStream outputStream, int xencoding, BlockSortAlgorithm sortAlgorithm) {
+        this(outputStream, xencoding, sortAlgorithm, null);
+    }
+
+    /**
+     * Creates a stream which sorts the blocks in parallel on the executor. The sorted blocks are
+     * encoded by the writing thread in their order, so the encoded data are the same as the data
+     * of the serial stream. Up to one block per available processor waits for encoding,
+     * every block takes {@code 4 * xencoding} kilobytes.
+     *
+     * @param outputStream the target of the encoded data
+     * @param xencoding the block size in kilobytes
+     * @param sortAlgorithm the block sort
+     * @param executor the executor of the block sort; {@code null} for the serial encoding
+     */
+    public BSByteOutputStream(OutputStream outputStream, int xencoding, BlockSortAlgorithm sortAlgorithm,
+                              Executor executor) {
         zpEncoder = new ZpCodecOutputStream(outputStream);
+        this.sortAlgorithm = sortAlgorithm;
+        this.executor = executor;
+        this.maxPendingBlocks = Runtime.getRuntime().availableProcessors();
+        this.pendingBlocks = new ArrayDeque<>();
 
         int encoding = Math.max(xencoding, MIN_BLOCK);
         if (encoding > MAX_BLOCK) {
@@ -96,7 +140,7 @@ public class BSByteOutputStream extends OutputStream {
             }
 
             int bytes = Math.min(blocksize - 1 - bptr, sz);
-            System.arraycopy(buffer, 0, gdata, bptr, bytes);
+            System.arraycopy(buffer, buffer.length - sz, gdata, bptr, bytes);
 
             bptr += bytes;
             sz -= bytes;
@@ -104,25 +148,69 @@ public class BSByteOutputStream extends OutputStream {
             // Flush when needed
             if (bptr + 1 >= blocksize) {
                 LOG.debug("Flushing during writing");
-                flush();
+                endBlock();
             }
         }
     }
 
     @Override
     public void flush() throws IOException {
+        endBlock();
+        encodePendingBlocks(0);
+    }
+
+    private void endBlock() {
         if (bptr > 0) {
             if (bptr >= blocksize) {
                 throw new DjVuFileException("The bptr (" + bptr + ") is greater than blocksize(" + blocksize + ")");
             }
 
+            // the block ends with zero, the previous block data must not leak into the sort
+            Arrays.fill(gdata, bptr, bptr + OVERFLOW, 0);
             size = bptr + 1;
-            encode();
+
+            if (executor == null) {
+                encode(gdata, size, blocksort(gdata, size));
+            }
+            else {
+                final int[] data = gdata;
+                final int blockSize = size;
+                pendingBlocks.add(new PendingBlock(data, blockSize,
+                    CompletableFuture.supplyAsync(() -> blocksort(data, blockSize), executor)));
+
+                // the next block is written into a new array while this one is being sorted
+                gdata = null;
+                encodePendingBlocks(maxPendingBlocks);
+            }
         }
         size = 0;
         bptr = 0;
     }
 
+    /*
+        Encodes the sorted blocks from the head of the queue. Waits for the sort
+        while there are more than {maxPending} blocks in the queue.
+     */
+    private void encodePendingBlocks(int maxPending) {
+        while (!pendingBlocks.isEmpty()
+                && (pendingBlocks.size() > maxPending || pendingBlocks.peekFirst().markerpos().isDone())) {
+            final PendingBlock block = pendingBlocks.pollFirst();
+            encode(block.data(), block.size(), join(block.markerpos()));
+        }
+    }
+
+    private static int join(CompletableFuture<Integer> future) {
+        try {
+            return future.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
     @Override
     public void close() throws IOException {
         flush();
@@ -133,8 +221,7 @@ public class BSByteOutputStream extends OutputStream {
         zpEncoder.close();
     }
 
-    private long encode() {
-        final int markerpos = blocksort(gdata, size);
+    private long encode(int[] data, int size, int markerpos) {
         LOG.debug("encode: markerpos = {}", markerpos);
 
         encodeRaw(24, size);
@@ -160,7 +247,7 @@ public class BSByteOutputStream extends OutputStream {
         for (int i = 0; i < size; i++)
         {
             // Get MTF data
-            int c = gdata[i];
+            int c = data[i];
             int ctxid = Math.min(CTXIDS - 1, frequenciesContext.mtfno);
 
             frequenciesContext.mtfno = frequenciesContext.rmtf[c];
@@ -243,8 +330,7 @@ public class BSByteOutputStream extends OutputStream {
     }
 
     private int blocksort(int[] data, int size) {
-        BSort bsort = new BSort(data, size);
-        return bsort.run();
+        return sortAlgorithm.sort(data, size);
     }
 
     private static class FrequenciesContext {
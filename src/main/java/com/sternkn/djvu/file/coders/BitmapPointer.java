@@ -0,0 +1,84 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file.coders;
+
+/**
+ * Access to the pixels of the packed {@link GBitmap} storage. The pixel values are stored with
+ * 1 bit (bilevel images), 8 or 16 bits (gray levels or palette indexes) per pixel, most significant first.
+ * A pixel is addressed by its index in the storage, see {@link GBitmap#rowData} and {@link GBitmap#rowOffset}.
+ */
+final class BitmapPointer {
+
+    private BitmapPointer() {
+    }
+
+    /**
+     * @return the value of the pixel {@code index} of the storage {@code data}
+     */
+    static int get(byte[] data, int depth, int index) {
+        return switch (depth) {
+            case 1 -> getBit(data, index);
+            case 8 -> data[index] & 0xFF;
+            default -> ((data[index << 1] & 0xFF) << 8) | (data[(index << 1) + 1] & 0xFF);
+        };
+    }
+
+    /**
+     * Sets the value of the pixel {@code index}. The value is saturated to the maximum value of the depth,
+     * so any non-zero value is stored as 1 in a bilevel storage.
+     */
+    static void set(byte[] data, int depth, int index, int value) {
+        switch (depth) {
+            case 1 -> setBit(data, index, value);
+            case 8 -> data[index] = (byte) Math.min(value, 0xFF);
+            default -> {
+                final int v = Math.min(value, 0xFFFF);
+                data[index << 1] = (byte) (v >> 8);
+                data[(index << 1) + 1] = (byte) v;
+            }
+        }
+    }
+
+    /**
+     * @return the value of the pixel {@code index} of a bilevel storage
+     */
+    static int getBit(byte[] data, int index) {
+        return (data[index >> 3] >> (7 - (index & 7))) & 1;
+    }
+
+    static void setBit(byte[] data, int index, int value) {
+        final int mask = 0x80 >> (index & 7);
+        if (value != 0) {
+            data[index >> 3] |= (byte) mask;
+        }
+        else {
+            data[index >> 3] &= (byte) ~mask;
+        }
+    }
+
+    /**
+     * @return the size of the storage of {@code pixels} pixels in bytes
+     */
+    static int storageSize(int depth, int pixels) {
+        return switch (depth) {
+            case 1 -> (pixels + 7) >> 3;
+            case 8 -> pixels;
+            default -> pixels << 1;
+        };
+    }
+}
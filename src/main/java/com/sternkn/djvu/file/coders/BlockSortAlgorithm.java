@@ -0,0 +1,56 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file.coders;
+
+/**
+ * The block sort used by {@link BSByteOutputStream}. All of them produce the same transformed data,
+ * so the encoded BZZ stream does not depend on the choice.
+ */
+public enum BlockSortAlgorithm {
+
+    /*
+        The DjVuLibre block sort: radix sort, ternary quicksort and rank doubling.
+        It is fast on ordinary data, but slow on highly repetitive data.
+     */
+    RADIX_QUICKSORT {
+        @Override
+        public int sort(int[] data, int size) {
+            return new BSort(data, size).run();
+        }
+    },
+
+    /*
+        The linear time suffix array construction (SA-IS). The running time does not depend
+        on the data, at the cost of more memory.
+     */
+    SUFFIX_ARRAY {
+        @Override
+        public int sort(int[] data, int size) {
+            return new SuffixArraySort(data, size).run();
+        }
+    };
+
+    /**
+     * Replaces the first {@code size} items of the data with their Burrows-Wheeler transform.
+     *
+     * @param data the block data; {@code data[size - 1]} must be zero
+     * @param size the block size including the last zero
+     * @return the position of the end marker in the transformed data
+     */
+    public abstract int sort(int[] data, int size);
+}
@@ -18,7 +18,18 @@
 package com.sternkn.djvu.file.coders;
 
 public enum ColorName {
-    BLUE,
-    GREEN,
-    RED
+    BLUE(0),
+    GREEN(8),
+    RED(16);
+
+    /** The position of the channel in a pixel packed as {0xRRGGBB}. */
+    private final int shift;
+
+    ColorName(int shift) {
+        this.shift = shift;
+    }
+
+    public int getShift() {
+        return shift;
+    }
 }
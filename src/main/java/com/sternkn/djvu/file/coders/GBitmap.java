@@ -22,6 +22,8 @@ import com.sternkn.djvu.file.chunks.Color;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.sternkn.djvu.utils.NumberUtils.asUnsignedShort;
@@ -29,6 +31,9 @@ import static com.sternkn.djvu.utils.NumberUtils.asUnsignedShort;
 public class GBitmap implements Pixmap {
     private static final Logger LOG = LoggerFactory.getLogger(GBitmap.class);
 
+    private static final int RUNOVERFLOWVALUE = 0xc0;
+    private static final int MAXRUNSIZE = 0x3fff;
+
     private int rows;
     private int columns;
     private int border;
@@ -36,8 +41,21 @@ public class GBitmap implements Pixmap {
     private int grays;
     private List<Color> paletteColors;
 
-    private int[] bytes_data;
-    private int[] zero_buffer;
+    /*
+        The pixels are packed according to the depth: 1 bit per pixel for bilevel images,
+        1 byte per pixel for gray levels and palette indexes, and 2 bytes per pixel
+        for the palette indexes of the palettes which have more than 254 colors.
+     */
+    private int depth;
+    private byte[] bytes_data;
+    private byte[] zero_buffer;
+
+    /*
+        The run-length encoded pixels of a compressed bilevel bitmap (bytes_data is null then).
+        The rows are stored from the top row down to the bottom row, every row starts with a run of white pixels
+        and the runs of white and black pixels alternate.
+     */
+    private byte[] rle;
 
     public GBitmap() {
         this.rows = 0;
@@ -45,6 +63,7 @@ public class GBitmap implements Pixmap {
         this.border = 0;
         this.bytes_per_row = 0;
         this.grays = 0;
+        this.depth = 1;
         this.bytes_data = null;
         this.paletteColors = null;
     }
@@ -76,37 +95,86 @@ public class GBitmap implements Pixmap {
         return border;
     }
 
+    /**
+     * @return the bits per pixel of the packed pixel storage (1, 8 or 16)
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the unpacked pixel values including the border, one value per pixel
+     */
     public int[] getBytesData() {
-        return bytes_data;
+        if (isCompressed()) {
+            return new GBitmap(this, border).getBytesData();
+        }
+        if (bytes_data == null) {
+            return null;
+        }
+
+        final int size = rows * bytes_per_row + border;
+        final int[] values = new int[size];
+        for (int index = 0; index < size; index++) {
+            values[index] = BitmapPointer.get(bytes_data, depth, index);
+        }
+        return values;
+    }
+
+    /**
+     * @return the number of gray levels; a bilevel bitmap has two gray levels
+     */
+    public int getGrays() {
+        return grays;
     }
 
     public int rowsize() {
         return bytes_per_row;
     }
 
-    public BufferPointer getRow(int row) {
+    /**
+     * Returns the storage of the row {row} for the allocation free access to the pixels:
+     * the pixel {x} of the row is {BitmapPointer.get(rowData(row), getDepth(), rowOffset(row) + x)}.
+     * The rows outside the bitmap are read from a buffer of white pixels.
+     */
+    byte[] rowData(int row) {
+        uncompress();
         if (row < 0 || row >= rows) {
-            if (zero_buffer.length < bytes_per_row + border) {
+            if (zero_buffer.length < BitmapPointer.storageSize(depth, bytes_per_row + border)) {
                 throw new DjVuFileException("GBitmap.zero_small");
             }
 
-            return new BufferPointer(this.zero_buffer, border);
+            return this.zero_buffer;
         }
 
-        return new BufferPointer(this.bytes_data, row * bytes_per_row + border);
+        return this.bytes_data;
+    }
+
+    /**
+     * @return the index of the first pixel of the row {row} in the storage {rowData(row)}
+     */
+    int rowOffset(int row) {
+        return row < 0 || row >= rows ? border : row * bytes_per_row + border;
     }
 
     @Override
     public PixelColor getPixel(int x, int y) {
+        uncompress();
         int index = y * bytes_per_row + border + x;
-        int value = bytes_data[index];
+        int value = BitmapPointer.get(bytes_data, depth, index);
 
         if (value == 0) {
             return PixelColor.WHITE;
         }
 
         if (this.paletteColors == null) {
-            return PixelColor.BLACK;
+            if (grays <= 2) {
+                return PixelColor.BLACK;
+            }
+
+            // the value is the number of black pixels covered by a subsampled pixel
+            final int level = 255 - Math.min(value, grays - 1) * 255 / (grays - 1);
+            return new PixelColor(level, level, level);
         }
 
         Color color = null;
@@ -134,23 +202,23 @@ public class GBitmap implements Pixmap {
             return;
         }
 
-        BufferPointer p = getRow(-1);
+        final byte[] zero = rowData(-1);
         for (int col = -border; col < columns + border; col++) {
-            if (p.getValue(col) != 0) {
+            if (BitmapPointer.get(zero, depth, border + col) != 0) {
                 throw new DjVuFileException("GBitmap.zero_damaged");
             }
         }
 
         for (int row = 0; row < rows; row++) {
-            p = getRow(row);
+            final int p = rowOffset(row);
             for (int col = -border; col < 0; col++) {
-                if (p.getValue(col) != 0) {
+                if (BitmapPointer.get(bytes_data, depth, p + col) != 0) {
                     throw new DjVuFileException("GBitmap.left_damaged");
                 }
             }
 
             for (int col = columns; col < columns + border; col++) {
-                if (p.getValue(col) != 0) {
+                if (BitmapPointer.get(bytes_data, depth, p + col) != 0) {
                     throw new DjVuFileException("GBitmap.right_damaged");
                 }
             }
@@ -163,12 +231,22 @@ public class GBitmap implements Pixmap {
      */
     public void init(GBitmap ref, int aborder) {
         if (this != ref) {
-            init(ref.rows, ref.columns, aborder);
+            final byte[] runs = ref.rle;
+            init(ref.rows, ref.columns, aborder, ref.depth);
             grays = ref.grays;
 
-            BufferPointer row = new BufferPointer(this.bytes_data, this.border);
-            for (int n = 0; n < rows; n++, row = row.shiftPointer(this.bytes_per_row)) {
-                BufferPointer.copy(row, ref.getRow(n), this.columns);
+            if (ref.bytes_data == null && runs != null) {
+                decode(runs);
+                return;
+            }
+
+            final byte[] src = ref.rowData(0);
+            for (int n = 0; n < rows; n++) {
+                final int drow = rowOffset(n);
+                final int srow = ref.rowOffset(n);
+                for (int col = 0; col < columns; col++) {
+                    BitmapPointer.set(bytes_data, depth, drow + col, BitmapPointer.get(src, depth, srow + col));
+                }
             }
         }
         else if (aborder > border)
@@ -183,10 +261,31 @@ public class GBitmap implements Pixmap {
      * The number of gray levels is initialized to {2}.
      */
     public void init(int arows, int acolumns, int aborder) {
-        init(arows, acolumns, aborder, null, null);
+        init(arows, acolumns, aborder, paletteDepth());
     }
 
-    void init(int arows, int acolumns, int aborder, int[] bytes, int[] buffer) {
+    /**
+     * Initializes this GBitmap with the unpacked pixel values {values} (including the border).
+     * The depth of the storage is chosen according to the maximum value.
+     */
+    void init(int arows, int acolumns, int aborder, int[] values) {
+        final int max = Arrays.stream(values).max().orElse(0);
+        final int valuesDepth = max <= 1 ? 1 : (max <= 0xFF ? 8 : 16);
+
+        init(arows, acolumns, aborder, Math.max(valuesDepth, paletteDepth()));
+
+        final int total_size = rows * bytes_per_row + border;
+        if (values.length != total_size) {
+            throw new DjVuFileException("GBitmap: invalid bytes_data size (expected: "
+                    + total_size + ", but was " + values.length + " )");
+        }
+
+        for (int index = 0; index < total_size; index++) {
+            BitmapPointer.set(bytes_data, depth, index, values[index]);
+        }
+    }
+
+    private void init(int arows, int acolumns, int aborder, int adepth) {
         final int total_size = arows * (acolumns + aborder) + aborder;
 
         if (arows != asUnsignedShort(arows) ||
@@ -201,33 +300,199 @@ public class GBitmap implements Pixmap {
         columns = acolumns;
         border = aborder;
         bytes_per_row = columns + border;
+        depth = adepth;
+        rle = null;
+
+        this.bytes_data = new byte[BitmapPointer.storageSize(depth, total_size)];
+        this.zero_buffer = new byte[BitmapPointer.storageSize(depth, bytes_per_row + border)];
+    }
 
-        if (bytes == null) {
-            this.bytes_data = new int[total_size];
+    /*
+        The pixels of the palette images hold the color index plus one (zero is the white background).
+     */
+    private int paletteDepth() {
+        if (paletteColors == null) {
+            return 1;
         }
-        else {
-            if (bytes.length != total_size) {
-                throw new DjVuFileException("GBitmap: invalid bytes_data size (expected: "
-                        + total_size + ", but was " + bytes.length + " )");
+        return paletteColors.size() < 0xFF ? 8 : 16;
+    }
+
+    /*
+        Repacks the pixels to the depth {adepth}. The values which don't fit the new depth are saturated.
+     */
+    private void repack(int adepth) {
+        if (bytes_data != null) {
+            final int total_size = rows * bytes_per_row + border;
+            final byte[] data = new byte[BitmapPointer.storageSize(adepth, total_size)];
+            for (int index = 0; index < total_size; index++) {
+                BitmapPointer.set(data, adepth, index, BitmapPointer.get(bytes_data, depth, index));
             }
-            this.bytes_data = bytes;
+            bytes_data = data;
+        }
+
+        depth = adepth;
+        zero_buffer = new byte[BitmapPointer.storageSize(depth, bytes_per_row + border)];
+    }
+
+    /**
+     * @return true if the pixels of this bitmap are run-length encoded
+     */
+    public boolean isCompressed() {
+        return bytes_data == null && rle != null;
+    }
+
+    /**
+     * Reduces the memory used by a bilevel bitmap by replacing the pixels with their run-length encoding.
+     * The bitmap is decompressed again on demand, while the compressed bitmaps are blitted from the runs directly.
+     */
+    public synchronized void compress() {
+        if (grays > 2 || depth > 1) {
+            throw new DjVuFileException("GBitmap.cant_compress");
         }
 
-        final int zero_buffer_size = bytes_per_row + border;
-        if (buffer == null) {
-            this.zero_buffer = new int[zero_buffer_size];
+        if (bytes_data != null && rows > 0 && columns > 0) {
+            rle = encode();
+            bytes_data = null;
+        }
+    }
+
+    /**
+     * Restores the pixels of a compressed bitmap.
+     */
+    public synchronized void uncompress() {
+        if (bytes_data == null && rle != null) {
+            bytes_per_row = columns + border;
+            bytes_data = new byte[BitmapPointer.storageSize(depth, rows * bytes_per_row + border)];
+            decode(rle);
+            rle = null;
+        }
+    }
+
+    private byte[] encode() {
+        final ByteArrayOutputStream runs = new ByteArrayOutputStream(columns);
+        for (int n = rows - 1; n >= 0; n--) {
+            final int row = rowOffset(n);
+            int c = 0;
+            while (c < columns) {
+                final int x = c;
+                while (c < columns && BitmapPointer.get(bytes_data, depth, row + c) == 0) {
+                    c++;
+                }
+                append_run(runs, c - x);
+
+                if (c < columns) {
+                    final int x2 = c;
+                    while (c < columns && BitmapPointer.get(bytes_data, depth, row + c) != 0) {
+                        c++;
+                    }
+                    append_run(runs, c - x2);
+                }
+            }
+        }
+        return runs.toByteArray();
+    }
+
+    private void decode(byte[] runs) {
+        final RunReader reader = new RunReader(runs);
+        for (int n = rows - 1; n >= 0; n--) {
+            final int row = rowOffset(n);
+            int c = 0;
+            boolean p = false;
+            while (c < columns) {
+                final int nc = c + reader.next();
+                if (nc > columns) {
+                    throw new DjVuFileException("GBitmap.lost_sync2");
+                }
+                if (p) {
+                    while (c < nc) {
+                        BitmapPointer.set(bytes_data, depth, row + c++, 1);
+                    }
+                }
+                c = nc;
+                p = !p;
+            }
+        }
+    }
+
+    private static void append_run(ByteArrayOutputStream runs, int count) {
+        /*
+            A run which doesn't fit 14 bits is split into maximal runs
+            separated by empty runs of the opposite color.
+         */
+        while (count > MAXRUNSIZE) {
+            runs.write(0xff);
+            runs.write(0xff);
+            runs.write(0);
+            count -= MAXRUNSIZE;
+        }
+
+        if (count < RUNOVERFLOWVALUE) {
+            runs.write(count);
         }
         else {
-            if (buffer.length != zero_buffer_size) {
-                throw new DjVuFileException("GBitmap: invalid zero_buffer size (expected: "
-                        + zero_buffer_size + ", but was " + buffer.length + " )");
+            runs.write((count >> 8) + RUNOVERFLOWVALUE);
+            runs.write(count & 0xff);
+        }
+    }
+
+    private static final class RunReader {
+        private final byte[] runs;
+        private int position;
+
+        RunReader(byte[] runs) {
+            this.runs = runs;
+            this.position = 0;
+        }
+
+        int next() {
+            if (position >= runs.length) {
+                throw new DjVuFileException("GBitmap.lost_sync");
             }
-            this.zero_buffer = buffer;
+
+            final int z = runs[position++] & 0xff;
+            return z >= RUNOVERFLOWVALUE ? ((z & ~RUNOVERFLOWVALUE) << 8) | (runs[position++] & 0xff) : z;
         }
     }
 
-    public void compress() {
-        // TODO: implementation
+    /**
+     * Computes the bounding box of the black pixels of a compressed bitmap without decompressing it.
+     *
+     * @return false if the bitmap is not compressed
+     */
+    boolean compute_rle_bounding_box(LibRect rect) {
+        final byte[] runs = rle;
+        if (runs == null) {
+            return false;
+        }
+
+        int right = -1;
+        int top = -1;
+        int left = columns;
+        int bottom = rows;
+
+        final RunReader reader = new RunReader(runs);
+        for (int n = rows - 1; n >= 0; n--) {
+            int c = 0;
+            boolean p = false;
+            while (c < columns) {
+                final int nc = c + reader.next();
+                if (p && nc > c) {
+                    left = Math.min(left, c);
+                    right = Math.max(right, nc - 1);
+                    top = Math.max(top, n);
+                    bottom = Math.min(bottom, n);
+                }
+                c = nc;
+                p = !p;
+            }
+        }
+
+        // the same values as the scanning of an empty bitmap gives
+        rect.setRight(right);
+        rect.setTop(top);
+        rect.setLeft(right < 0 ? 0 : left);
+        rect.setBottom(top < 0 ? 0 : bottom);
+        return true;
     }
 
     public void minborder(int minimum) {
@@ -243,7 +508,7 @@ public class GBitmap implements Pixmap {
         }
 
         border = minimum;
-        zero_buffer = new int[border + columns + border];
+        zero_buffer = new byte[BitmapPointer.storageSize(depth, border + columns + border)];
     }
 
     public void set_grays(int ngrays) {
@@ -252,9 +517,12 @@ public class GBitmap implements Pixmap {
         }
 
         grays = ngrays;
-//        if (ngrays > 2 && bytes_data == null) {
-//            uncompress();
-//        }
+        if (ngrays > 2 && bytes_data == null) {
+            uncompress();
+        }
+        if (ngrays > 2 && depth == 1) {
+            repack(8);
+        }
     }
 
     void blit(GBitmap bm, int x, int y, Integer colorIndex) {
@@ -267,17 +535,14 @@ public class GBitmap implements Pixmap {
         }
 
         // Perform blit
-        // GMonitorLock lock1(monitor());
-        // GMonitorLock lock2(bm->monitor());
-        if (bm.bytes_data != null)
+        final byte[] runs = bm.rle;
+        final byte[] sdata = bm.bytes_data;
+        if (sdata != null)
         {
-//            if (!bytes_data)
-//                uncompress();
+            uncompress();
             // Blit from bitmap
-            // const unsigned char *srow = bm->bytes + bm->border;
-            BufferPointer srow = new BufferPointer(bm.bytes_data, bm.border);
-            BufferPointer drow = new BufferPointer(bytes_data, border + y * bytes_per_row + x);
-            // unsigned char *drow = bytes_data + border + y * bytes_per_row + x;
+            int srow = bm.border;
+            int drow = border + y * bytes_per_row + x;
             for (int sr = 0; sr < bm.getHeight(); sr++)
             {
                 if ((sr + y >= 0) && (sr + y < this.rows))
@@ -286,56 +551,62 @@ public class GBitmap implements Pixmap {
                     int sc1 = Math.min(bm.getWidth(), this.columns - x);
                     while (sc < sc1)
                     {
-                        int newDrowValue = drow.getValue(sc) + srow.getValue(sc);
-
-                        if (this.paletteColors != null && colorIndex != null && newDrowValue == 1) {
-                            newDrowValue += colorIndex;
-                        }
-
-                        drow.setValue(sc, newDrowValue); // drow[sc] += srow[sc];
+                        // drow[sc] += srow[sc];
+                        add(drow + sc, BitmapPointer.get(sdata, bm.depth, srow + sc), colorIndex);
                         sc += 1;
                     }
                 }
 
-                srow = srow.shiftPointer(bm.bytes_per_row); // += bm->bytes_per_row;
-                drow = drow.shiftPointer(bytes_per_row); // drow += bytes_per_row;
+                srow += bm.bytes_per_row;
+                drow += bytes_per_row;
+            }
+        }
+        else if (runs != null) // for the compressed bitmap
+        {
+            uncompress();
+            // Blit from rle
+            final RunReader reader = new RunReader(runs);
+            int sr = bm.rows - 1;
+            int drow = border + (y + sr) * bytes_per_row + x;
+            int sc = 0;
+            boolean p = false;
+            while (sr >= 0)
+            {
+                final int z = reader.next();
+                if (sc + z > bm.columns) {
+                    throw new DjVuFileException("GBitmap.lost_sync");
+                }
+                int nc = sc + z;
+                if (p && sr + y >= 0 && sr + y < rows)
+                {
+                    if (sc + x < 0) {
+                        sc = Math.min(-x, nc);
+                    }
+                    while (sc < nc && sc + x < columns) {
+                        add(drow + sc++, 1, colorIndex); // drow[sc++] += 1;
+                    }
+                }
+                sc = nc;
+                p = !p;
+                if (sc >= bm.columns)
+                {
+                    p = false;
+                    sc = 0;
+                    drow -= bytes_per_row;
+                    sr -= 1;
+                }
             }
         }
-//        else if (bm.rle) // for the compressed bitmap
-//        {
-//            if (!bytes_data)
-//                uncompress();
-//            // Blit from rle
-//            const unsigned char *runs = bm->rle;
-//            unsigned char *drow = bytes_data + border + y*bytes_per_row + x;
-//            int sr = bm->nrows - 1;
-//            drow += sr * bytes_per_row;
-//            int sc = 0;
-//            char p = 0;
-//            while (sr >= 0)
-//            {
-//                const int z = read_run(runs);
-//                if (sc+z > bm->ncolumns)
-//                    G_THROW( ERR_MSG("GBitmap.lost_sync") );
-//                int nc = sc + z;
-//                if (p && sr+y>=0 && sr+y<nrows)
-//                {
-//                    if (sc + x < 0)
-//                        sc = min(-x, nc);
-//                    while (sc < nc && sc + x<ncolumns)
-//                        drow[sc++] += 1;
-//                }
-//                sc = nc;
-//                p = 1 - p;
-//                if (sc >= bm->ncolumns)
-//                {
-//                    p = 0;
-//                    sc = 0;
-//                    drow -= bytes_per_row;
-//                    sr -= 1;
-//                }
-//            }
-//        }
+    }
+
+    private void add(int index, int value, Integer colorIndex) {
+        int newValue = BitmapPointer.get(bytes_data, depth, index) + value;
+
+        if (this.paletteColors != null && colorIndex != null && newValue == 1) {
+            newValue += colorIndex;
+        }
+
+        BitmapPointer.set(bytes_data, depth, index, newValue);
     }
 
     public void blit(GBitmap bm, int xh, int yh, int subsample, Integer colorIndex) {
@@ -355,87 +626,86 @@ public class GBitmap implements Pixmap {
         }
 
         // Perform subsampling blit
-//        GMonitorLock lock1(monitor());
-//        GMonitorLock lock2(bm->monitor());
-        if (bm.bytes_data != null)
+        final byte[] runs = bm.rle;
+        final byte[] sdata = bm.bytes_data;
+        // the euclidian ratios: zdc = xh / subsample, zdc1 = xh % subsample (rounded down)
+        final int zdc = Math.floorDiv(xh, subsample);
+        final int zdc1 = Math.floorMod(xh, subsample);
+
+        if (sdata != null)
         {
-//            if (!bytes_data)
-//                uncompress();
+            uncompress();
             // Blit from bitmap
-            BitContext dr = new BitContext();
-            BitContext dr1 = new BitContext();
-            BitContext zdc = new BitContext();
-            BitContext zdc1 = new BitContext();
+            int dr = Math.floorDiv(yh, subsample);
+            int dr1 = Math.floorMod(yh, subsample);
 
-            euclidian_ratio(yh, subsample, dr, dr1);
-            euclidian_ratio(xh, subsample, zdc, zdc1);
-
-            BufferPointer srow = new BufferPointer(bm.bytes_data, bm.border);
-            BufferPointer drow = new BufferPointer(bytes_data, border + dr.getValue() * bytes_per_row);
+            int srow = bm.border;
+            int drow = border + dr * bytes_per_row;
             for (int sr = 0; sr < bm.getHeight(); sr++)
             {
-                if (dr.getValue() >= 0 && dr.getValue() < this.rows)
+                if (dr >= 0 && dr < this.rows)
                 {
-                    BitContext dc = new BitContext(zdc.getValue());
-                    BitContext dc1 = new BitContext(zdc1.getValue());
+                    int dc = zdc;
+                    int dc1 = zdc1;
                     for (int sc = 0; sc < bm.getWidth(); sc++)
                     {
-                        int dcValue = dc.getValue();
-                        if (dcValue >= 0 && dcValue < this.columns) {
+                        if (dc >= 0 && dc < this.columns) {
                             // drow[dc] += srow[sc];
-                            drow.setValue(dcValue, drow.getValue(dcValue) + srow.getValue(sc));
+                            final int value = BitmapPointer.get(sdata, bm.depth, srow + sc);
+                            if (value != 0) {
+                                BitmapPointer.set(bytes_data, depth, drow + dc,
+                                        BitmapPointer.get(bytes_data, depth, drow + dc) + value);
+                            }
                         }
-                        dc1.setValue(dc1.getValue() + 1);
-                        if (dc1.getValue() >= subsample)
+                        if (++dc1 >= subsample)
                         {
-                            dc1.setValue(0); // = 0;
-                            dc.setValue(dc.getValue() + 1); // dc += 1;
+                            dc1 = 0;
+                            dc += 1;
                         }
                     }
                 }
                 // next line in source
-                srow.shiftPointer(bm.bytes_per_row); // += bm->bytes_per_row;
+                srow += bm.bytes_per_row;
                 // next line fraction in destination
-                dr1.setValue(dr1.getValue() + 1);
-                if (dr1.getValue() >= subsample)
+                if (++dr1 >= subsample)
                 {
-                    dr1.setValue(0); // = 0;
-                    dr.setValue(dr.getValue() + 1); // dr += 1;
-                    drow.shiftPointer(bytes_per_row);
+                    dr1 = 0;
+                    dr += 1;
+                    drow += bytes_per_row;
                 }
             }
         }
-/*
-        else if (bm->rle)
+        else if (runs != null)
         {
-            if (!bytes_data)
-                uncompress();
+            uncompress();
             // Blit from rle
-            int dr, dr1, zdc, zdc1;
-            euclidian_ratio(yh+bm->nrows-1, subsample, dr, dr1);
-            euclidian_ratio(xh, subsample, zdc, zdc1);
-      const unsigned char *runs = bm->rle;
-            unsigned char *drow = bytes_data + border + dr*bytes_per_row;
-            int sr = bm->nrows -1;
+            int dr = Math.floorDiv(yh + bm.rows - 1, subsample);
+            int dr1 = Math.floorMod(yh + bm.rows - 1, subsample);
+
+            final RunReader reader = new RunReader(runs);
+            int drow = border + dr * bytes_per_row;
+            int sr = bm.rows - 1;
             int sc = 0;
-            char p = 0;
+            boolean p = false;
             int dc = zdc;
             int dc1 = zdc1;
             while (sr >= 0)
             {
-                int z = read_run(runs);
-                if (sc+z > bm->ncolumns)
-                    G_THROW( ERR_MSG("GBitmap.lost_sync") );
+                int z = reader.next();
+                if (sc + z > bm.columns) {
+                    throw new DjVuFileException("GBitmap.lost_sync");
+                }
                 int nc = sc + z;
 
-                if (dr>=0 && dr<nrows)
-                    while (z>0 && dc<ncolumns)
+                if (dr >= 0 && dr < rows) {
+                    while (z > 0 && dc < columns)
                     {
-                        int zd = subsample - dc1;
-                        if (zd > z)
-                            zd = z;
-                        if (p && dc>=0)
-                            drow[dc] += zd;
+                        int zd = Math.min(subsample - dc1, z);
+                        if (p && dc >= 0) {
+                            // drow[dc] += zd;
+                            BitmapPointer.set(bytes_data, depth, drow + dc,
+                                    BitmapPointer.get(bytes_data, depth, drow + dc) + zd);
+                        }
                         z -= zd;
                         dc1 += zd;
                         if (dc1 >= subsample)
@@ -444,15 +714,16 @@ public class GBitmap implements Pixmap {
                             dc += 1;
                         }
                     }
+                }
                 // next fractional row
                 sc = nc;
-                p = 1 - p;
-                if (sc >= bm->ncolumns)
+                p = !p;
+                if (sc >= bm.columns)
                 {
                     sc = 0;
                     dc = zdc;
                     dc1 = zdc1;
-                    p = 0;
+                    p = false;
                     sr -= 1;
                     if (--dr1 < 0)
                     {
@@ -462,17 +733,6 @@ public class GBitmap implements Pixmap {
                     }
                 }
             }
-
- */
-    }
-
-    private void euclidian_ratio(int a, int b, BitContext q, BitContext r) {
-        q.setValue(a / b);
-        r.setValue(a - b * q.getValue());
-        if (r.getValue() < 0)
-        {
-            q.setValue(q.getValue() - 1); // -= 1;
-            r.setValue(r.getValue() + b); // r += b;
         }
     }
 }
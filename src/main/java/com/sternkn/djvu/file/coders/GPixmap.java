@@ -24,11 +24,16 @@ import java.util.Objects;
 
 import static com.sternkn.djvu.utils.NumberUtils.asUnsignedShort;
 
+/**
+ * A color image which keeps every pixel packed into an {@code int} as {@code 0xRRGGBB}.
+ * While the IW44 images are reconstructed the channels hold the signed Y, Cb and Cr values
+ * in the blue, green and red bytes (see {@link IW44Image#get_pixmap()}).
+ */
 public class GPixmap implements Pixmap {
 
     private final int height;
     private final int width;
-    private final PixelColor[] pixels;
+    private final int[] pixels;
 
     public GPixmap(int h, int w) {
         height = h;
@@ -41,10 +46,13 @@ public class GPixmap implements Pixmap {
             throw new DjVuFileException("GPixmap: image size exceeds maximum (corrupted file?)");
         }
 
-        this.pixels = new PixelColor[np];
+        this.pixels = new int[np];
     }
 
-    public PixelColor[] getPixels() {
+    /**
+     * @return the packed pixels, row by row
+     */
+    public int[] getData() {
         return pixels;
     }
 
@@ -54,11 +62,21 @@ public class GPixmap implements Pixmap {
     */
     @Override
     public PixelColor getPixel(int x, int y) {
+        final int rgb = pixels[y * width + x];
+        return new PixelColor(rgb & 0xFF, (rgb >> 8) & 0xFF, (rgb >> 16) & 0xFF);
+    }
+
+    @Override
+    public int getRGB(int x, int y) {
         return pixels[y * width + x];
     }
 
     public void setPixel(int x, int y, PixelColor pixel) {
-        pixels[y * width + x] = pixel;
+        pixels[y * width + x] = (pixel.getRed() << 16) | (pixel.getGreen() << 8) | pixel.getBlue();
+    }
+
+    public void setRGB(int x, int y, int rgb) {
+        pixels[y * width + x] = rgb & 0xFFFFFF;
     }
 
     @Override
@@ -89,7 +107,7 @@ public class GPixmap implements Pixmap {
 
         return pixmap.getHeight() == height &&
                 pixmap.getWidth() == width &&
-                Arrays.equals(pixmap.getPixels(), pixels);
+                Arrays.equals(pixmap.pixels, pixels);
     }
 
     @Override
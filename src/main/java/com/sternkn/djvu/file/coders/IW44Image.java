@@ -18,9 +18,12 @@
 package com.sternkn.djvu.file.coders;
 
 import com.sternkn.djvu.file.DjVuFileException;
+import com.sternkn.djvu.file.chunks.GRectangle;
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static com.sternkn.djvu.utils.InputStreamUtils.read8;
 
@@ -29,11 +32,13 @@ public class IW44Image {
     private int cslice;
     private int cserial;
 
+    // the state of the open chunk
+    private int nslices;
+    private int flag;
+
     private int crcb_delay;
     private int crcb_half;
 
-    private InputStream inputStream;
-
     private IW44ImageDecoder ycodec;
     private IW44ImageDecoder cbcodec;
     private IW44ImageDecoder crcodec;
@@ -62,56 +67,124 @@ public class IW44Image {
     }
 
     public GPixmap get_pixmap() {
+        return get_pixmap(1);
+    }
+
+    /**
+     * Reconstructs the image reduced by the given factor, the inverse wavelet transform stops
+     * at the corresponding scale so the work and the memory shrink with the square of the factor.
+     *
+     * @param subsample the reduction factor, a power of two from 1 to 32
+     * @return the pixmap of ceil(width / subsample) × ceil(height / subsample) pixels
+     */
+    public GPixmap get_pixmap(int subsample) {
+        return get_pixmap(subsample, (ForkJoinPool) null);
+    }
+
+    /**
+     * Reconstructs the image on the pool: the Y, Cb and Cr planes are reconstructed in parallel
+     * and the filter passes of each plane are split into stripes of rows or columns.
+     * The pixmap is the same as the one reconstructed by {@link #get_pixmap(int)}.
+     *
+     * @param subsample the reduction factor, a power of two from 1 to 32
+     * @param pool the pool of the reconstruction tasks, if null the image is reconstructed on the calling thread
+     * @return the pixmap of ceil(width / subsample) × ceil(height / subsample) pixels
+     */
+    public GPixmap get_pixmap(int subsample, ForkJoinPool pool) {
+        // Check presence of data
+        if (ymap == null) {
+            return null;
+        }
+
+        IW44ImageMap.check_subsample(subsample);
+        return get_pixmap(subsample, ymap.rect(subsample), pool);
+    }
+
+    /**
+     * Reconstructs the part {rect} of the image reduced by the given factor. Only the blocks
+     * covering the rectangle and the margin required by the wavelet filters are reconstructed.
+     *
+     * @param subsample the reduction factor, a power of two from 1 to 32
+     * @param rect the rectangle in the pixels of the reduced image (the row 0 is the bottom row)
+     * @return the pixmap of the rectangle size
+     */
+    public GPixmap get_pixmap(int subsample, GRectangle rect) {
+        return get_pixmap(subsample, rect, null);
+    }
+
+    /**
+     * Reconstructs the part {rect} of the image reduced by the given factor on the pool
+     * (see {@link #get_pixmap(int, ForkJoinPool)} and {@link #get_pixmap(int, GRectangle)}).
+     */
+    public GPixmap get_pixmap(int subsample, GRectangle rect, ForkJoinPool pool) {
         // Check presence of data
         if (ymap == null) {
             return null;
         }
 
         // Allocate pixmap
-        int w = ymap.iw;
-        int h = ymap.ih;
-        GPixmap ppm = new GPixmap(h, w);
+        GPixmap ppm = new GPixmap(rect.getHeight(), rect.getWidth());
+
+        boolean color = crmap != null && cbmap != null && crcb_delay >= 0;
 
         // Perform wavelet reconstruction
-        ymap.image(ppm, ColorName.BLUE, 0);
+        if (pool == null) {
+            ymap.image(ppm, ColorName.BLUE, rect, ymap.reconstruct(subsample, rect, 0, null));
 
-        if (crmap != null && cbmap != null && crcb_delay >= 0)
-        {
-            cbmap.image(ppm, ColorName.GREEN, crcb_half);
-            crmap.image(ppm, ColorName.RED, crcb_half);
+            if (color)
+            {
+                cbmap.image(ppm, ColorName.GREEN, rect, cbmap.reconstruct(subsample, rect, crcb_half, null));
+                crmap.image(ppm, ColorName.RED, rect, crmap.reconstruct(subsample, rect, crcb_half, null));
+            }
+        }
+        else if (!color) {
+            ymap.image(ppm, ColorName.BLUE, rect, ymap.reconstruct(subsample, rect, 0, pool));
+        }
+        else {
+            /* The planes are reconstructed into separate buffers, the bytes of a pixel are packed afterward. */
+            ForkJoinTask<IW44ImageMap.Reconstruction> y =
+                    pool.submit(() -> ymap.reconstruct(subsample, rect, 0, pool));
+            ForkJoinTask<IW44ImageMap.Reconstruction> cb =
+                    pool.submit(() -> cbmap.reconstruct(subsample, rect, crcb_half, pool));
+            ForkJoinTask<IW44ImageMap.Reconstruction> cr =
+                    pool.submit(() -> crmap.reconstruct(subsample, rect, crcb_half, pool));
+
+            ymap.image(ppm, ColorName.BLUE, rect, y.join());
+            cbmap.image(ppm, ColorName.GREEN, rect, cb.join());
+            crmap.image(ppm, ColorName.RED, rect, cr.join());
         }
 
         // Convert image data to RGB
-        if (crmap != null && cbmap != null && crcb_delay >= 0)
+        if (color)
         {
             YCbCr_to_RGB(ppm);
         }
         else
         {
-            for (int y = 0; y < h; y++) {
-                for (int x = 0; x < w; x++) {
-                    PixelColor color = ppm.getPixel(x, y);
-                    int grey = 127 - color.getBlue();
-                    PixelColor greyColor = new PixelColor(grey, grey, grey);
-                    ppm.setPixel(x, y, greyColor);
-                }
+            final int[] pixels = ppm.getData();
+            for (int i = 0; i < pixels.length; i++) {
+                int grey = 127 - (byte) pixels[i];
+                pixels[i] = (grey << 16) | (grey << 8) | grey;
             }
         }
 
         return ppm;
     }
 
-    /* Converts YCbCr to RGB. */
+    /*
+        Converts YCbCr to RGB. The signed Y, Cb and Cr values are stored in the blue, green and red bytes.
+     */
     void YCbCr_to_RGB(GPixmap ppm) {
-        for (PixelColor pixelColor : ppm.getPixels()) {
-            YCbCr_to_RGB(pixelColor);
+        final int[] pixels = ppm.getData();
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = YCbCr_to_RGB(pixels[i]);
         }
     }
 
-    void YCbCr_to_RGB(PixelColor pixelColor) {
-        int y = pixelColor.getBlue();
-        int b = pixelColor.getGreen();
-        int r = pixelColor.getRed();
+    static int YCbCr_to_RGB(int pixel) {
+        int y = (byte) pixel;
+        int b = (byte) (pixel >> 8);
+        int r = (byte) (pixel >> 16);
 
         // This is the Pigeon transform
         int t1 = b >> 2 ;
@@ -121,9 +194,7 @@ public class IW44Image {
         int tg = t3 - (t2 >> 1);
         int tb = t3 + (b << 1);
 
-        pixelColor.setColor(ColorName.RED, Math.max(0, Math.min(255, tr)));
-        pixelColor.setColor(ColorName.GREEN, Math.max(0, Math.min(255, tg)));
-        pixelColor.setColor(ColorName.BLUE, Math.max(0, Math.min(255, tb)));
+        return (Math.clamp(tr, 0, 255) << 16) | (Math.clamp(tg, 0, 255) << 8) | Math.clamp(tb, 0, 255);
     }
 
 
@@ -131,10 +202,38 @@ public class IW44Image {
         ycodec = null;
         cbcodec = null;
         crcodec = null;
+        zpDecoder = null;
     }
 
     public int decode_chunk(byte[] data) {
-        this.inputStream = new ByteArrayInputStream(data);
+        return decode_chunk(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Decodes the IW44 chunk data between the buffer position and limit. The buffer
+     * may be a slice of a memory-mapped file, its position is advanced past the chunk headers.
+     *
+     * @param data the chunk data
+     * @return the number of the slices decoded so far
+     */
+    public int decode_chunk(ByteBuffer data) {
+        int total = open_chunk(data);
+        decode_slices(Integer.MAX_VALUE);
+        return total;
+    }
+
+    /**
+     * Reads the headers of the next IW44 chunk, its slices are decoded by {@link #decode_slices(int)}.
+     * The slices left over from the previous chunk are decoded first. The buffer must stay
+     * valid until all the slices of the chunk are decoded.
+     *
+     * @param data the chunk data
+     * @return the number of the slices decoded when the chunk is complete
+     */
+    public int open_chunk(ByteBuffer data) {
+        if (has_pending_slices()) {
+            decode_slices(Integer.MAX_VALUE);
+        }
 
         // Open
         if (ycodec == null) {
@@ -143,16 +242,16 @@ public class IW44Image {
         }
 
         PrimaryHeader primary =  new PrimaryHeader();
-        primary.decode(inputStream);
+        primary.decode(data);
         if (primary.serial != cserial) {
             throw new DjVuFileException("IW44Image.wrong_serial2");
         }
 
-        int nslices = cslice + primary.slices;
+        nslices = cslice + primary.slices;
 
         // Read secondary header
         if (cserial == 0) {
-            secondaryHeader = new IW44SecondaryHeader(inputStream);
+            secondaryHeader = new IW44SecondaryHeader(data);
             int w = secondaryHeader.getWidth();
             int h = secondaryHeader.getHeight();
             crcb_delay = secondaryHeader.getChrominanceDelay();
@@ -168,10 +267,27 @@ public class IW44Image {
             }
         }
 
-        this.zpDecoder = new ZpCodecInputStream(inputStream);
-        int flag = 1;
+        this.zpDecoder = new ZpCodecBufferDecoder(data);
+        this.flag = 1;
 
-        while (flag != 0 && cslice < nslices)
+        cserial += 1;
+        return nslices;
+    }
+
+    /**
+     * Decodes at most {@code budget} more slices of the open chunk. The pixmap reconstructed
+     * in between is a lower quality snapshot of the image which is refined by the next slices.
+     *
+     * @param budget the maximum number of the slices to decode
+     * @return the number of the slices decoded so far
+     */
+    public int decode_slices(int budget) {
+        if (zpDecoder == null) {
+            return cslice;
+        }
+
+        int end = (int) Math.min(nslices, (long) cslice + budget);
+        while (flag != 0 && cslice < end)
         {
             flag = ycodec.code_slice(zpDecoder);
             if (crcodec != null && cbcodec != null && crcb_delay <= cslice) {
@@ -180,9 +296,18 @@ public class IW44Image {
             }
             cslice++;
         }
-        // Return
-        cserial += 1;
-        return nslices;
+
+        if (flag == 0 || cslice >= nslices) {
+            zpDecoder = null;
+        }
+        return cslice;
+    }
+
+    /**
+     * @return true if the open chunk still has slices to decode
+     */
+    public boolean has_pending_slices() {
+        return zpDecoder != null;
     }
 
 
@@ -202,5 +327,10 @@ public class IW44Image {
             serial = read8(inputStream);
             slices = read8(inputStream);
         }
+
+        void decode(ByteBuffer data) {
+            serial = data.get() & 0xff;
+            slices = data.get() & 0xff;
+        }
     }
 }
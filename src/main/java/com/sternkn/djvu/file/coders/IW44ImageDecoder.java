@@ -71,11 +71,13 @@ public class IW44ImageDecoder {
     private int[] coeffState; // 256
     private int[] bucketState; // 16
 
-    // coding context
-    private BitContext[] ctxStart;    // [32]
-    private BitContext[][] ctxBucket; // [10][8]
-    private BitContext ctxMant;
-    private BitContext ctxRoot;
+    // coding context: ctxStart[32], ctxBucket[10][8], ctxMant and ctxRoot in one table
+    private static final int CTX_START = 0;
+    private static final int CTX_BUCKET = CTX_START + 32;
+    private static final int CTX_MANT = CTX_BUCKET + 10 * 8;
+    private static final int CTX_ROOT = CTX_MANT + 1;
+
+    private byte[] contexts;
 
     public IW44ImageDecoder(IW44ImageMap map) {
         this.coeffState = new int[256];
@@ -125,20 +127,7 @@ public class IW44ImageDecoder {
         }
 
         // Initialize coding contexts
-        ctxBucket  = new BitContext[10][8];
-        for (int i = 0; i < ctxBucket.length; i++) {
-            for (j = 0; j < ctxBucket[i].length; j++) {
-                ctxBucket[i][j] = new BitContext();
-            }
-        }
-
-        ctxStart = new BitContext[32];
-        for (int i = 0; i < ctxStart.length; i++) {
-            ctxStart[i] = new BitContext();
-        }
-
-        ctxMant = new BitContext();
-        ctxRoot = new BitContext();
+        contexts = new byte[CTX_ROOT + 1];
     }
 
     public int code_slice(ZPCodecDecoder zpDecoder) {
@@ -215,7 +204,7 @@ public class IW44ImageDecoder {
         }
         else if ((bbstate & UNK_COEFF) != 0)
         {
-            if (zp.decoder(ctxRoot) != 0) {
+            if (zp.decoder(contexts, CTX_ROOT) != 0) {
                 bbstate |= NEW_COEFF;
             }
 
@@ -254,7 +243,7 @@ public class IW44ImageDecoder {
                     }
 
                     // Code
-                    if (zp.decoder(ctxBucket[band][ctx]) != 0) {
+                    if (zp.decoder(contexts, CTX_BUCKET + (band << 3) + ctx) != 0) {
                         this.bucketState[buckno] |= NEW_COEFF;
                     }
 
@@ -323,7 +312,7 @@ public class IW44ImageDecoder {
                             }
 
                             // code difference bit
-                            if (zp.decoder( ctxStart[ctx] ) != 0)
+                            if (zp.decoder(contexts, CTX_START + ctx) != 0)
                             {
                                 // cstate[i] |= NEW;
                                 cstate.setValue(i, cstate.getValue(i) | NEW_COEFF);
@@ -378,7 +367,7 @@ public class IW44ImageDecoder {
                             {
                                 // second mantissa bit
                                 coeff = coeff + (thres >> 2);
-                                if (zp.decoder(ctxMant) != 0) {
+                                if (zp.decoder(contexts, CTX_MANT) != 0) {
                                     coeff = coeff + (thres >> 1);
                                 }
                                 else {
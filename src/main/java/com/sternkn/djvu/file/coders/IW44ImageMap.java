@@ -18,9 +18,12 @@
 package com.sternkn.djvu.file.coders;
 
 import com.sternkn.djvu.file.DjVuFileException;
+import com.sternkn.djvu.file.chunks.GRectangle;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static com.sternkn.djvu.utils.NumberUtils.asUnsignedInt;
 
@@ -33,6 +36,15 @@ public class IW44ImageMap {
     private static final int IW_SHIFT = 6;
     private static final int IW_ROUND = (1 << (IW_SHIFT - 1));
 
+    // the minimum number of the columns or rows of a scale in a parallel stripe
+    private static final int MIN_STRIPE = 64;
+
+    /*
+        Every lifting step of a scale reads the samples up to 3 * scale away, a scale has two steps
+        in each direction: 6 * (16 + 8 + 4 + 2 + 1) = 186 pixels for all the scales.
+     */
+    private static final int FILTER_MARGIN = 192;
+
     // geometry
     int iw;
     int ih;
@@ -84,10 +96,67 @@ public class IW44ImageMap {
     }
 
     public void image(GPixmap ppm, ColorName colorName, int fast) {
+        image(ppm, colorName, 1, fast);
+    }
+
+    /*
+        Reconstructs the image reduced by the subsample factor (a power of two up to the block size).
+        The coefficients of the scales finer than the subsample are never used: only the coarse
+        coefficients are gathered into a buffer of the reduced size and the inverse transform
+        stops at that scale, the remaining low-pass samples are the pixels of the reduced image.
+     */
+    public void image(GPixmap ppm, ColorName colorName, int subsample, int fast) {
+        GRectangle rect = rect(subsample);
+        image(ppm, colorName, rect, reconstruct(subsample, rect, fast, null));
+    }
+
+    /*
+        The reconstruction buffer of the blocks covering a rectangle, its first sample is
+        the pixel (x, y) of the reduced image.
+     */
+    record Reconstruction(int[] data, int x, int y, int rowsize) {
+    }
+
+    /*
+        Returns the rectangle of the whole image reduced by the subsample factor.
+     */
+    GRectangle rect(int subsample) {
+        return new GRectangle(0, 0, (iw + subsample - 1) / subsample, (ih + subsample - 1) / subsample);
+    }
+
+    /*
+        Reconstructs the part {rect} of the reduced image. Only the blocks covering the rectangle and
+        the filter margin around it are gathered, the errors caused by the missing neighbours at the
+        buffer edges do not reach the rectangle, so its pixels are the same as in the whole image.
+        The filter passes are split into stripes which run on the pool if it is not null.
+     */
+    Reconstruction reconstruct(int subsample, GRectangle rect, int fast, ForkJoinPool pool) {
+        check_subsample(subsample);
+
+        // Reduced geometry
+        final int w = (iw + subsample - 1) / subsample;
+        final int h = (ih + subsample - 1) / subsample;
+        if (rect.isEmpty() || rect.xmin() < 0 || rect.ymin() < 0 || rect.xmax() > w || rect.ymax() > h) {
+            throw new DjVuFileException("IW44Image: invalid rectangle " + rect);
+        }
+
+        // Blocks covering the rectangle with the margin
+        final int boxsize = 32 / subsample;
+        final int margin = FILTER_MARGIN / subsample;
+        final int bx0 = Math.max(0, rect.xmin() - margin) / boxsize;
+        final int by0 = Math.max(0, rect.ymin() - margin) / boxsize;
+        final int bx1 = Math.min(bw / 32, (rect.xmax() + margin + boxsize - 1) / boxsize);
+        final int by1 = Math.min(bh / 32, (rect.ymax() + margin + boxsize - 1) / boxsize);
+
+        final int x0 = bx0 * boxsize;
+        final int y0 = by0 * boxsize;
+        final int rowsize = (bx1 - bx0) * boxsize;
+        final int rows = (by1 - by0) * boxsize;
+
         // Allocate reconstruction buffer
         int[] data16;
-        int sz = bw * bh;
-        if ((sz / bw) != bh) { // multiplication overflow
+        int sz = rowsize * rows;
+        if ((sz / rowsize) != rows) { // multiplication overflow
             throw new DjVuFileException("IW44Image: image size exceeds maximum (corrupted file?)");
         }
 
@@ -95,90 +164,139 @@ public class IW44ImageMap {
 
         // Copy coefficients
         int i;
-        BufferPointer p = new BufferPointer(data16);
-        int block_ind = 0;
-        IW44ImageBlock block = null;
-        for (i = 0; i < bh; i += 32)
+        int bmax = Math.max(1, 64 / (subsample * subsample));
+        for (int by = by0; by < by1; by++)
         {
-            for (int j = 0; j < bw; j += 32)
+            for (int bx = bx0; bx < bx1; bx++)
             {
-                block = blocks[block_ind];
-                int[] liftblock = block.write_liftblock(0, 64);
-
-                block_ind++;
+                int[] liftblock = blocks[by * (bw / 32) + bx].write_liftblock(0, bmax);
+                i = (by - by0) * boxsize;
+                int j = (bx - bx0) * boxsize;
+
+                if (subsample == 1) {
+                    for (int ii = 0; ii < 32; ii++) {
+                        // memcpy(( void*)pp, ( void*)pl, 32 * sizeof( short));
+                        System.arraycopy(liftblock, ii * 32, data16, (i + ii) * rowsize + j, 32);
+                    }
+                    continue;
+                }
 
-                BufferPointer pp = p.shiftPointer(j);
-                BufferPointer pl = new BufferPointer(liftblock);
-                for (int ii = 0; ii < 32; ii++, pp = pp.shiftPointer(bw), pl = pl.shiftPointer(32)) {
-                    // memcpy(( void*)pp, ( void*)pl, 32 * sizeof( short));
-                    for (int ind = 0; ind < 32; ind++) {
-                        pp.setValue(ind, pl.getValue(ind));
+                for (int ii = 0; ii < boxsize; ii++) {
+                    int pl = ii * subsample * 32;
+                    int pp = (i + ii) * rowsize + j;
+                    for (int jj = 0; jj < boxsize; jj++, pl += subsample) {
+                        data16[pp + jj] = liftblock[pl];
                     }
                 }
             }
-
-            // next row of blocks
-            p = p.shiftPointer(32 * bw);
         }
 
         // Reconstruction
-        if (fast != 0)
+        final int dw = Math.min(w, x0 + rowsize) - x0;
+        final int dh = Math.min(h, y0 + rows) - y0;
+        if (fast != 0 && subsample == 1)
         {
-            backward(data16, iw, ih, bw, 32, 2);
-            p = new BufferPointer(data16);
-            for (i = 0; i < bh; i += 2, p = p.shiftPointer(bw)) {
-                for (int jj = 0; jj < bw; jj += 2, p = p.shiftPointer(2)) {
-                    p.setValue(1, p.getCurrentValue());
-                    p.setValue(bw + 1, p.getValue(1));
-                    p.setValue(bw, p.getValue(bw + 1));
+            backward(data16, dw, dh, rowsize, 32, 2, pool);
+            int p = 0;
+            for (i = 0; i < rows; i += 2, p += rowsize) {
+                for (int jj = 0; jj < rowsize; jj += 2, p += 2) {
+                    data16[p + 1] = data16[p];
+                    data16[p + rowsize + 1] = data16[p + 1];
+                    data16[p + rowsize] = data16[p + rowsize + 1];
                 }
             }
         }
         else
         {
-            backward(data16, iw, ih, bw, 32, 1);
+            backward(data16, dw, dh, rowsize, boxsize, 1, pool);
         }
 
+        return new Reconstruction(data16, x0, y0, rowsize);
+    }
+
+    /*
+        Copies the part {rect} of the reconstructed image into the pixmap of the rectangle size.
+     */
+    void image(GPixmap ppm, ColorName colorName, GRectangle rect, Reconstruction reconstruction) {
+        final int[] data16 = reconstruction.data();
+        final int rowsize = reconstruction.rowsize();
+
         // Copy result into image
-        p = new BufferPointer(data16);
-        ArrayPointer<PixelColor> row = new ArrayPointer<>(ppm.getPixels());
-        for (i = 0; i < ih; i++)
+        final int[] pixels = ppm.getData();
+        final int shift = colorName.getShift();
+        final int mask = ~(0xFF << shift);
+        int p16 = (rect.ymin() - reconstruction.y()) * rowsize + rect.xmin() - reconstruction.x();
+        int row = 0;
+        for (int i = 0; i < rect.getHeight(); i++)
         {
-            ArrayPointer<PixelColor> pix = row;
-            for (int j = 0; j < iw; j += 1, pix = pix.shiftPointer(1)) // pixsep
+            for (int j = 0; j < rect.getWidth(); j += 1) // pixsep
             {
-                int x = (p.getValue(j) + IW_ROUND) >> IW_SHIFT;
+                int x = (data16[p16 + j] + IW_ROUND) >> IW_SHIFT;
                 if (x < -128) {
                     x = -128;
                 } else if (x > 127) {
                     x = 127;
                 }
 
-                PixelColor pixel = pix.getCurrentValue();
-                if (pixel == null) {
-                    pixel = new PixelColor();
-                    pix.setValue(0, pixel);
-                }
-                pixel.setColor(colorName, x);
+                pixels[row + j] = (pixels[row + j] & mask) | ((x & 0xFF) << shift);
             }
-            row.shift(ppm.getWidth());
-            p.shift(bw);
+            row += ppm.getWidth();
+            p16 += rowsize;
+        }
+    }
+
+    static void check_subsample(int subsample) {
+        if (subsample < 1 || subsample > 32 || Integer.bitCount(subsample) != 1) {
+            throw new DjVuFileException("IW44Image: invalid subsample " + subsample);
         }
     }
 
     void backward(int[] p, int w, int h, int rowsize, int begin, int end) {
+        backward(p, w, h, rowsize, begin, end, null);
+    }
+
+    /*
+        The vertical pass of a scale only mixes the samples of the same column and the horizontal pass
+        the samples of the same row, so the passes are split into stripes of the columns and of the rows.
+     */
+    void backward(int[] p, int w, int h, int rowsize, int begin, int end, ForkJoinPool pool) {
         for (int scale = begin >> 1; scale >= end; scale >>= 1) {
-            filter_bv(p, w, h, rowsize, scale);
-            filter_bh(p, w, h, rowsize, scale);
+            final int sc = scale;
+            forEachStripe(pool, (w + scale - 1) / scale, (from, to) ->
+                filter_bv(p, from * sc, Math.min(to * sc, w) - from * sc, h, rowsize, sc));
+            forEachStripe(pool, (h + scale - 1) / scale, (from, to) ->
+                filter_bh(p, from * sc * rowsize, w, Math.min(to * sc, h) - from * sc, rowsize, sc));
+        }
+    }
+
+    private interface StripeFilter {
+        void apply(int from, int to);
+    }
+
+    private static void forEachStripe(ForkJoinPool pool, int count, StripeFilter filter) {
+        if (pool == null || count < 2 * MIN_STRIPE) {
+            filter.apply(0, count);
+            return;
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> splitStripes(filter, 0, count)));
+    }
+
+    private static void splitStripes(StripeFilter filter, int from, int to) {
+        if (to - from < 2 * MIN_STRIPE) {
+            filter.apply(from, to);
+            return;
         }
+        int middle = (from + to) >>> 1;
+        ForkJoinTask.invokeAll(ForkJoinTask.adapt(() -> splitStripes(filter, from, middle)),
+                               ForkJoinTask.adapt(() -> splitStripes(filter, middle, to)));
     }
 
-    static void filter_bv(int[] p, int w, int h, int rowsize, int scale) {
+    static void filter_bv(int[] p, int offset, int w, int h, int rowsize, int scale) {
         int y = 0;
         int s = scale * rowsize;
         int s3 = s + s + s;
         h = ((h - 1) / scale) + 1;
-        BufferPointer pp = new BufferPointer(p);
+        BufferPointer pp = new BufferPointer(p, offset);
 
         while (y-3 < h)
         {
@@ -290,12 +408,12 @@ public class IW44ImageMap {
         }
     }
 
-    static void filter_bh(int[] p, int w, int h, int rowsize, int scale) {
+    static void filter_bh(int[] p, int offset, int w, int h, int rowsize, int scale) {
         int y = 0;
         int s = scale;
         int s3 = s + s + s;
         rowsize *= scale;
-        BufferPointer pp = new BufferPointer(p);
+        BufferPointer pp = new BufferPointer(p, offset);
         while (y < h)
         {
             BufferPointer q = new BufferPointer(pp);
@@ -0,0 +1,111 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file.coders;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+    Decodes the IW44 chunks of an image step by step. Each step decodes a budget of slices or chunks
+    and the snapshot reconstructed after it is a displayable lower quality version of the image,
+    the next steps resume the decoding from the same state and refine it.
+ */
+public class IW44ProgressiveDecoder {
+
+    private final List<ByteBuffer> chunks;
+    private final IW44Image image;
+    private int nextChunk;
+    private int sliceCount;
+
+    /**
+     * @param chunks a list of IW44 chunk data that belong to the same parent chunk and have the same IW44 chunk ID
+     */
+    public IW44ProgressiveDecoder(List<ByteBuffer> chunks) {
+        this.chunks = chunks.stream().map(ByteBuffer::duplicate).toList();
+        this.image = new IW44Image();
+    }
+
+    public IW44Image getImage() {
+        return image;
+    }
+
+    /**
+     * Decodes at most {@code budget} more slices, the chunks are opened as needed.
+     *
+     * @param budget the maximum number of the slices to decode
+     * @return true if all the slices are decoded
+     */
+    public synchronized boolean decodeSlices(int budget) {
+        while (budget > 0 && !isComplete()) {
+            if (!image.has_pending_slices()) {
+                image.open_chunk(chunks.get(nextChunk++));
+            }
+
+            int decoded = image.decode_slices(budget);
+            budget -= decoded - sliceCount;
+            sliceCount = decoded;
+        }
+        return close();
+    }
+
+    /**
+     * Decodes at most {@code budget} more chunks, the rest of a partially decoded chunk counts as a chunk.
+     *
+     * @param budget the maximum number of the chunks to decode
+     * @return true if all the slices are decoded
+     */
+    public synchronized boolean decodeChunks(int budget) {
+        for (; budget > 0 && !isComplete(); budget--) {
+            if (!image.has_pending_slices()) {
+                image.open_chunk(chunks.get(nextChunk++));
+            }
+            sliceCount = image.decode_slices(Integer.MAX_VALUE);
+        }
+        return close();
+    }
+
+    public synchronized boolean isComplete() {
+        return nextChunk >= chunks.size() && !image.has_pending_slices();
+    }
+
+    /**
+     * Reconstructs the image from the slices decoded so far.
+     *
+     * @param subsample the reduction factor, a power of two from 1 to 32
+     * @return the snapshot pixmap or null if no chunk has been decoded yet
+     */
+    public synchronized GPixmap getPixmap(int subsample) {
+        return image.get_pixmap(subsample);
+    }
+
+    /**
+     * Reconstructs the image from the slices decoded so far on the pool (see {@link IW44Image#get_pixmap(int, ForkJoinPool)}).
+     */
+    public synchronized GPixmap getPixmap(int subsample, ForkJoinPool pool) {
+        return image.get_pixmap(subsample, pool);
+    }
+
+    private boolean close() {
+        if (isComplete()) {
+            image.close_codec();
+            return true;
+        }
+        return false;
+    }
+}
@@ -20,6 +20,7 @@ package com.sternkn.djvu.file.coders;
 import com.sternkn.djvu.file.DjVuFileException;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import static com.sternkn.djvu.utils.InputStreamUtils.read16;
 import static com.sternkn.djvu.utils.InputStreamUtils.read8;
@@ -86,11 +87,18 @@ public class IW44SecondaryHeader {
     private final int crcbHalf;
 
     public IW44SecondaryHeader(InputStream inputStream) {
-        int major = read8(inputStream);
+        this(read8(inputStream), read8(inputStream), read16(inputStream), read16(inputStream), read8(inputStream));
+    }
+
+    public IW44SecondaryHeader(ByteBuffer data) {
+        this(data.get() & 0xff, data.get() & 0xff,
+             data.getShort() & 0xffff, data.getShort() & 0xffff, data.get() & 0xff);
+    }
 
+    private IW44SecondaryHeader(int major, int minor, int w, int h, int value) {
         majorVersion = major & 0x7f;
         colorType    = major & 0x80;
-        minorVersion = read8(inputStream);
+        minorVersion = minor;
 
         if (majorVersion != IWCODEC_MAJOR) {
             throw new DjVuFileException("IW44Image.incompat_codec");
@@ -99,10 +107,9 @@ public class IW44SecondaryHeader {
             throw new DjVuFileException("IW44Image.recent_codec");
         }
 
-        width = read16(inputStream);
-        height = read16(inputStream);
+        width = w;
+        height = h;
 
-        int value = read8(inputStream);
         chrominanceDelay = (colorType != 0) ? -1 : value & 0x7f;
         crcbHalf = ((value & 0x80) != 0) ? 0 : 1;
     }
@@ -0,0 +1,134 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file.coders;
+
+import com.sternkn.djvu.file.chunks.GRectangle;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+/**
+ * A uniform grid over the bounding boxes of the blits of a {JB2Image}. Every grid cell keeps the numbers
+ * of the blits which overlap it, so the blits intersecting a rectangle are found by visiting
+ * the cells covered by the rectangle only.
+ */
+public class JB2BlitIndex {
+
+    static final int CELL_SIZE = 256;
+
+    private final int blitCount;
+    private final int gridColumns;
+    private final int gridRows;
+
+    /*
+        The bounding box of the blit {n} is {xmin, ymin, xmax, ymax} = boxes[4 * n .. 4 * n + 3],
+        the blits without pixels have empty boxes.
+     */
+    private final int[] boxes;
+
+    /*
+        The blit numbers of the cell {n} are stored in cellBlits[cellStart[n] .. cellStart[n + 1] - 1]
+        in ascending order.
+     */
+    private final int[] cellStart;
+    private final int[] cellBlits;
+
+    public JB2BlitIndex(JB2Image image) {
+        this.blitCount = image.get_blit_count();
+        this.gridColumns = Math.max(1, (image.getWidth() + CELL_SIZE - 1) / CELL_SIZE);
+        this.gridRows = Math.max(1, (image.getHeight() + CELL_SIZE - 1) / CELL_SIZE);
+        this.boxes = new int[4 * blitCount];
+
+        final int[] counts = new int[gridColumns * gridRows + 1];
+        for (int blitno = 0; blitno < blitCount; blitno++) {
+            final JB2Blit blit = image.get_blit(blitno);
+            final GBitmap bits = image.getShape(blit.getShapeno()).getBits();
+            final int index = 4 * blitno;
+
+            boxes[index] = blit.getLeft();
+            boxes[index + 1] = blit.getBottom();
+            boxes[index + 2] = blit.getLeft() + (bits == null ? 0 : bits.getWidth());
+            boxes[index + 3] = blit.getBottom() + (bits == null ? 0 : bits.getHeight());
+
+            forEachCell(index, cell -> counts[cell + 1]++);
+        }
+
+        this.cellStart = new int[counts.length];
+        for (int n = 1; n < counts.length; n++) {
+            cellStart[n] = cellStart[n - 1] + counts[n];
+        }
+
+        this.cellBlits = new int[cellStart[cellStart.length - 1]];
+        final int[] position = Arrays.copyOf(cellStart, counts.length - 1);
+        for (int blitno = 0; blitno < blitCount; blitno++) {
+            final int value = blitno;
+            forEachCell(4 * blitno, cell -> cellBlits[position[cell]++] = value);
+        }
+    }
+
+    /*
+        Visits the grid cells overlapped by the box {index}.
+        The blits outside the image are assigned to the border cells.
+     */
+    private void forEachCell(int index, IntConsumer action) {
+        if (boxes[index] >= boxes[index + 2] || boxes[index + 1] >= boxes[index + 3]) {
+            return;
+        }
+
+        final int colmax = cell(boxes[index + 2] - 1, gridColumns);
+        final int rowmax = cell(boxes[index + 3] - 1, gridRows);
+        for (int row = cell(boxes[index + 1], gridRows); row <= rowmax; row++) {
+            for (int col = cell(boxes[index], gridColumns); col <= colmax; col++) {
+                action.accept(row * gridColumns + col);
+            }
+        }
+    }
+
+    private static int cell(int coordinate, int cells) {
+        return Math.clamp(Math.floorDiv(coordinate, CELL_SIZE), 0, cells - 1);
+    }
+
+    /**
+     * @return the numbers of the blits whose bounding boxes intersect the rectangle {rect}
+     *         (the coordinates are relative to the bottom left corner of the image)
+     */
+    public BitSet find(GRectangle rect) {
+        final BitSet result = new BitSet(blitCount);
+        if (rect.isEmpty()) {
+            return result;
+        }
+
+        final int colmax = cell(rect.xmax() - 1, gridColumns);
+        final int rowmax = cell(rect.ymax() - 1, gridRows);
+        for (int row = cell(rect.ymin(), gridRows); row <= rowmax; row++) {
+            for (int col = cell(rect.xmin(), gridColumns); col <= colmax; col++) {
+                final int n = row * gridColumns + col;
+                for (int k = cellStart[n]; k < cellStart[n + 1]; k++) {
+                    final int blitno = cellBlits[k];
+                    final int index = 4 * blitno;
+                    if (boxes[index] < rect.xmax() && boxes[index + 2] > rect.xmin()
+                            && boxes[index + 1] < rect.ymax() && boxes[index + 3] > rect.ymin()) {
+                        result.set(blitno);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
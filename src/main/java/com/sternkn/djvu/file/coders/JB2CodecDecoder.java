@@ -22,8 +22,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
 
+import static com.sternkn.djvu.file.coders.BitmapPointer.getBit;
+import static com.sternkn.djvu.file.coders.BitmapPointer.setBit;
 import static com.sternkn.djvu.utils.NumberUtils.asUnsignedShort;
 
 public class JB2CodecDecoder {
@@ -62,7 +66,7 @@ public class JB2CodecDecoder {
     // Code values
     private BitContext dist_record_type; // NumContext
     private BitContext dist_match_index; // NumContext
-    private BitContext dist_refinement_flag;
+    private final byte[] dist_refinement_flag = new byte[1];
     private BitContext image_size_dist;
 
     private BitContext inherited_shape_count_dist;
@@ -80,14 +84,15 @@ public class JB2CodecDecoder {
     private BitContext rel_size_x;
     private BitContext rel_size_y;
 
-    private BitContext offset_type_dist;
+    private final byte[] offset_type_dist = new byte[1];
 
-    private BitContext[] bitcells;
-    private BitContext[] leftcell;
-    private BitContext[] rightcell;
+    /* The number contexts: ZP context of a tree node and the left/right child node numbers */
+    private byte[] bitcells;
+    private int[] leftcell;
+    private int[] rightcell;
 
-    private BitContext[] bitdist;
-    private BitContext[] cbitdist;
+    private final byte[] bitdist = new byte[1024];
+    private final byte[] cbitdist = new byte[2048];
 
     private int last_left;
     private int last_row_left;
@@ -98,25 +103,23 @@ public class JB2CodecDecoder {
     private int short_list_pos;
 
     private boolean refinementp;
-    
-    private BitContext[] getInitialBitContext(int size) {
-        BitContext[] arr = new BitContext[size];
-        for (int i = 0; i < size; i++) {
-            arr[i] = new BitContext();
-        }
-        return arr;
-    }
+
 
     public JB2CodecDecoder(InputStream inputStream) {
-        this.zpDecoder = new ZpCodecInputStream(inputStream);
+        this(new ZpCodecInputStream(inputStream));
+    }
 
-        this.dist_refinement_flag = new BitContext();
-        this.offset_type_dist = new BitContext();
+    /**
+     * @param data the JB2 coded data between the buffer position and limit, e.g. a slice of a memory-mapped file
+     */
+    public JB2CodecDecoder(ByteBuffer data) {
+        this(new ZpCodecBufferDecoder(data));
+    }
 
-        resetCoder();
+    private JB2CodecDecoder(ZPCodecDecoder zpDecoder) {
+        this.zpDecoder = zpDecoder;
 
-        this.bitdist = getInitialBitContext(1024);
-        this.cbitdist = getInitialBitContext(2048);
+        resetCoder();
 
         this.isStartRecord = false;
         this.refinementp = false;
@@ -335,7 +338,7 @@ public class JB2CodecDecoder {
         int y_diff;
 
         // Code offset type
-        boolean new_row = codeBit(offset_type_dist);
+        boolean new_row = codeBit(offset_type_dist, 0);
         if (new_row)
         {
             // Begin a new row
@@ -434,9 +437,9 @@ public class JB2CodecDecoder {
         this.rel_size_x = new BitContext();
         this.rel_size_y = new BitContext();
 
-        this.bitcells = getInitialBitContext(CELLCHUNK + CELLEXTRA);
-        this.leftcell = getInitialBitContext(CELLCHUNK + CELLEXTRA);
-        this.rightcell = getInitialBitContext(CELLCHUNK + CELLEXTRA);
+        this.bitcells = new byte[CELLCHUNK + CELLEXTRA];
+        this.leftcell = new int[CELLCHUNK + CELLEXTRA];
+        this.rightcell = new int[CELLCHUNK + CELLEXTRA];
 
         this.cur_ncell = 1;
     }
@@ -546,73 +549,90 @@ public class JB2CodecDecoder {
         final int xd2c = (dw/2 - dw + 1) - ((libRect.getRight() - libRect.getLeft() + 1)/2 - libRect.getRight());
         final int yd2c = (dh/2 - dh + 1) - ((libRect.getTop() - libRect.getBottom() + 1)/2 - libRect.getTop());
 
-        // Ensure borders are adequate
+        // Ensure borders are adequate.
+        // The reference bitmap may belong to a shared dictionary which is used by other decoders
+        // at the same time, so it is copied with a wider border (or decompressed) instead of being modified.
         bm.minborder(2);
-        cbm.minborder(2 - xd2c);
-        cbm.minborder(2 + dw + xd2c - cw);
+        final int cborder = Math.max(2 - xd2c, 2 + dw + xd2c - cw);
+        final GBitmap reference = !cbm.isCompressed() && cbm.getBorder() >= cborder ? cbm : new GBitmap(cbm, cborder);
 
         // Initialize row pointers
         final int dy = dh - 1;
         final int cy = dy + yd2c;
 
         bm.check_border();
-        cbm.check_border();
+        reference.check_border();
 
-        code_bitmap_by_cross_coding(bm, cbm, xd2c, dw, dy, cy);
+        code_bitmap_by_cross_coding(bm, reference, xd2c, dw, dy, cy);
     }
 
+    /*
+        The rows are walked by their storages and the offsets of their first pixels,
+        so no objects are allocated per row or per pixel. The JB2 shapes are always bilevel.
+     */
     private void code_bitmap_by_cross_coding(GBitmap bm, GBitmap cbm, int xd2c, int dw, int dy, int cy) {
-        BufferPointer up1 = bm.getRow(dy + 1);
-        BufferPointer up0 = bm.getRow(dy);
-        BufferPointer xup1 = cbm.getRow(cy + 1).shiftPointer(xd2c);
-        BufferPointer xup0 = cbm.getRow(cy).shiftPointer(xd2c);
-        BufferPointer xdn1 = cbm.getRow(cy - 1).shiftPointer(xd2c);
+        byte[] up1 = bm.rowData(dy + 1);
+        int up1p = bm.rowOffset(dy + 1);
+        byte[] up0 = bm.rowData(dy);
+        int up0p = bm.rowOffset(dy);
+        byte[] xup1 = cbm.rowData(cy + 1);
+        int xup1p = cbm.rowOffset(cy + 1) + xd2c;
+        byte[] xup0 = cbm.rowData(cy);
+        int xup0p = cbm.rowOffset(cy) + xd2c;
+        byte[] xdn1 = cbm.rowData(cy - 1);
+        int xdn1p = cbm.rowOffset(cy - 1) + xd2c;
 
         while (dy >= 0)
         {
-            int context = get_cross_context(
-                    up1, up0, xup1, xup0, xdn1, 0);
+            int context = get_cross_context(up1, up1p, up0, up0p, xup1, xup1p, xup0, xup0p, xdn1, xdn1p);
             for(int dx=0; dx < dw;)
             {
-                final int n = zpDecoder.decoder(cbitdist[context]);
-                up0.setValue(dx, n);
+                final int n = zpDecoder.decoder(cbitdist, context);
+                setBit(up0, up0p + dx, n);
                 dx++;
-                context = shift_cross_context(context, n, up1, up0, xup1, xup0, xdn1, dx);
+                context = shift_cross_context(context, n, up1, up1p + dx, xup1, xup1p + dx,
+                                              xup0, xup0p + dx, xdn1, xdn1p + dx);
             }
 
             --dy; // next row
             up1 = up0;
-            up0 = bm.getRow(dy);
+            up1p = up0p;
+            up0 = bm.rowData(dy);
+            up0p = bm.rowOffset(dy);
             xup1 = xup0;
+            xup1p = xup0p;
             xup0 = xdn1;
+            xup0p = xdn1p;
             --cy;
-            xdn1 = cbm.getRow(cy - 1).shiftPointer(xd2c);
-            bm.check_border();
+            xdn1 = cbm.rowData(cy - 1);
+            xdn1p = cbm.rowOffset(cy - 1) + xd2c;
         }
+
+        bm.check_border();
     }
 
-    private int get_cross_context(BufferPointer up1, BufferPointer up0, BufferPointer xup1,
-                                  BufferPointer xup0, BufferPointer xdn1, int column) {
-        return (up1.getValue(column - 1) << 10)  |
-               (up1.getValue(column) <<  9)             |
-               (up1.getValue(column + 1) <<  8)  |
-               (up0.getValue(column - 1) <<  7)  |
-               (xup1.getValue(column) <<  6)            |
-               (xup0.getValue(column - 1) <<  5) |
-               (xup0.getValue(column) <<  4)            |
-               (xup0.getValue(column + 1) <<  3) |
-               (xdn1.getValue(column - 1) <<  2) |
-               (xdn1.getValue(column) <<  1)            |
-               xdn1.getValue(column + 1);
+    private static int get_cross_context(byte[] up1, int up1p, byte[] up0, int up0p, byte[] xup1, int xup1p,
+                                         byte[] xup0, int xup0p, byte[] xdn1, int xdn1p) {
+        return (getBit(up1, up1p - 1) << 10)  |
+               (getBit(up1, up1p) <<  9)      |
+               (getBit(up1, up1p + 1) <<  8)  |
+               (getBit(up0, up0p - 1) <<  7)  |
+               (getBit(xup1, xup1p) <<  6)    |
+               (getBit(xup0, xup0p - 1) <<  5) |
+               (getBit(xup0, xup0p) <<  4)    |
+               (getBit(xup0, xup0p + 1) <<  3) |
+               (getBit(xdn1, xdn1p - 1) <<  2) |
+               (getBit(xdn1, xdn1p) <<  1)    |
+               getBit(xdn1, xdn1p + 1);
     }
 
-    private int shift_cross_context(int context, int n, BufferPointer up1, BufferPointer up0, BufferPointer xup1,
-                                    BufferPointer xup0, BufferPointer xdn1, int column) {
-        return ((context << 1) & 0x636)               |
-               (up1.getValue(column + 1) << 8)  |
-               (xup1.getValue(column) << 6)            |
-               (xup0.getValue(column + 1) << 3) |
-               xdn1.getValue(column + 1)        |
+    private static int shift_cross_context(int context, int n, byte[] up1, int up1p, byte[] xup1, int xup1p,
+                                           byte[] xup0, int xup0p, byte[] xdn1, int xdn1p) {
+        return ((context << 1) & 0x636)        |
+               (getBit(up1, up1p + 1) << 8)    |
+               (getBit(xup1, xup1p) << 6)      |
+               (getBit(xup0, xup0p + 1) << 3)  |
+               getBit(xdn1, xdn1p + 1)         |
                (n << 7);
     }
 
@@ -653,7 +673,7 @@ public class JB2CodecDecoder {
     }
 
     private void code_eventual_lossless_refinement() {
-        this.refinementp = codeBit(dist_refinement_flag);
+        this.refinementp = codeBit(dist_refinement_flag, 0);
     }
 
     private void code_image_size() {
@@ -713,47 +733,56 @@ public class JB2CodecDecoder {
         int dw = bm.getWidth();
         int dy = bm.getHeight() - 1;
 
-        BufferPointer up2 = bm.getRow(dy + 2);
-        BufferPointer up1 = bm.getRow(dy + 1);
-        BufferPointer up0 = bm.getRow(dy);
+        byte[] up2 = bm.rowData(dy + 2);
+        int up2p = bm.rowOffset(dy + 2);
+        byte[] up1 = bm.rowData(dy + 1);
+        int up1p = bm.rowOffset(dy + 1);
+        byte[] up0 = bm.rowData(dy);
+        int up0p = bm.rowOffset(dy);
 
         while (dy >= 0)
         {
-            int context = get_direct_context(up2, up1, up0, 0);
+            int context = get_direct_context(up2, up2p, up1, up1p, up0, up0p);
             for(int dx=0; dx < dw;)
             {
-                int n = zpDecoder.decoder(bitdist[context]);
-                up0.setValue(dx, n);
+                int n = zpDecoder.decoder(bitdist, context);
+                setBit(up0, up0p + dx, n);
                 dx++;
-                context = shift_direct_context(context, n, up2, up1, up0, dx);
+                context = shift_direct_context(context, n, up2, up2p + dx, up1, up1p + dx);
             }
             // next row
             dy -= 1;
             up2 = up1;
+            up2p = up1p;
             up1 = up0;
-            up0 = bm.getRow(dy);
+            up1p = up0p;
+            up0 = bm.rowData(dy);
+            up0p = bm.rowOffset(dy);
         }
 
         bm.check_border();
     }
 
-    public int get_direct_context(BufferPointer up2, BufferPointer up1, BufferPointer up0, int column) {
-        return (up2.getValue(column - 1) << 9) |
-               (up2.getValue(column    ) << 8)        |
-               (up2.getValue(column + 1) << 7) |
-               (up1.getValue(column - 2) << 6) |
-               (up1.getValue(column - 1) << 5) |
-               (up1.getValue(column    ) << 4)        |
-               (up1.getValue(column + 1) << 3) |
-               (up1.getValue(column + 2) << 2) |
-               (up0.getValue(column - 2) << 1) |
-               up0.getValue(column - 1);
+    /*
+        The arguments are the rows (storages and offsets of the current column) above and at the decoded pixel.
+     */
+    private static int get_direct_context(byte[] up2, int up2p, byte[] up1, int up1p, byte[] up0, int up0p) {
+        return (getBit(up2, up2p - 1) << 9) |
+               (getBit(up2, up2p) << 8)     |
+               (getBit(up2, up2p + 1) << 7) |
+               (getBit(up1, up1p - 2) << 6) |
+               (getBit(up1, up1p - 1) << 5) |
+               (getBit(up1, up1p) << 4)     |
+               (getBit(up1, up1p + 1) << 3) |
+               (getBit(up1, up1p + 2) << 2) |
+               (getBit(up0, up0p - 2) << 1) |
+               getBit(up0, up0p - 1);
     }
 
-    public int shift_direct_context(int context, int next, BufferPointer up2, BufferPointer up1, BufferPointer up0, int column) {
-        return ((context << 1) & 0x37a)               |
-               (up1.getValue(column + 2) << 2) |
-               (up2.getValue(column + 1) << 7) |
+    private static int shift_direct_context(int context, int next, byte[] up2, int up2p, byte[] up1, int up1p) {
+        return ((context << 1) & 0x37a)     |
+               (getBit(up1, up1p + 2) << 2) |
+               (getBit(up2, up2p + 1) << 7) |
                next;
     }
 
@@ -773,26 +802,44 @@ public class JB2CodecDecoder {
         int phase = 1;
         int range = 0xffffffff;
 
+        /*
+            The current node and the place its number is stored in: the number context {pctx}
+            for the root node, otherwise the left or right cell of the {parent} node.
+         */
+        int cell = pctx.getValue();
+        int parent = -1;
+        boolean isRight = false;
+
         while(range != 1) {
-            if (pctx.getValue() == 0) {
-                final int max_ncell = bitcells.length;
-                if (cur_ncell >= max_ncell) {
-                    LOG.warn(" cur_ncell ({}) is greater than max_ncell ({})", cur_ncell, max_ncell);
-//                    final int nmax_ncell = max_ncell + CELLCHUNK;
-//                    gbitcells.resize(nmax_ncell);
-//                    gleftcell.resize(nmax_ncell);
-//                    grightcell.resize(nmax_ncell);
+            if (cell == 0) {
+                if (cur_ncell >= bitcells.length) {
+                    final int max_ncell = bitcells.length + CELLCHUNK;
+                    bitcells = Arrays.copyOf(bitcells, max_ncell);
+                    leftcell = Arrays.copyOf(leftcell, max_ncell);
+                    rightcell = Arrays.copyOf(rightcell, max_ncell);
                 }
 
-                pctx.setValue(cur_ncell);
+                cell = cur_ncell;
                 cur_ncell ++;
-                bitcells[pctx.getValue()].setValue(0);
-                leftcell[pctx.getValue()].setValue(0);
-                rightcell[pctx.getValue()].setValue(0);
+                bitcells[cell] = 0;
+                leftcell[cell] = 0;
+                rightcell[cell] = 0;
+
+                if (parent < 0) {
+                    pctx.setValue(cell);
+                }
+                else if (isRight) {
+                    rightcell[parent] = cell;
+                }
+                else {
+                    leftcell[parent] = cell;
+                }
             }
 
-            final boolean decision = (low >= cutoff) || ((high >= cutoff) && codeBit(bitcells[pctx.getValue()]));
-            pctx = decision ? rightcell[pctx.getValue()] : leftcell[pctx.getValue()];
+            final boolean decision = (low >= cutoff) || ((high >= cutoff) && codeBit(bitcells, cell));
+            parent = cell;
+            isRight = decision;
+            cell = decision ? rightcell[cell] : leftcell[cell];
 
             switch (phase)
             {
@@ -842,7 +889,7 @@ public class JB2CodecDecoder {
         return negative ? (- cutoff - 1) : cutoff;
     }
 
-    private boolean codeBit(BitContext ctx) {
-        return zpDecoder.decoder(ctx) != 0;
+    private boolean codeBit(byte[] ctx, int index) {
+        return zpDecoder.decoder(ctx, index) != 0;
     }
 }
@@ -20,10 +20,12 @@ package com.sternkn.djvu.file.coders;
 import com.sternkn.djvu.file.DjVuFileException;
 import com.sternkn.djvu.file.chunks.Color;
 import com.sternkn.djvu.file.chunks.FGbzChunk;
+import com.sternkn.djvu.file.chunks.GRectangle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import static com.sternkn.djvu.utils.NumberUtils.asUnsignedInt;
@@ -36,6 +38,7 @@ public class JB2Image extends JB2Dict implements Dict {
 
     private final List<JB2Blit> blits;
     private final boolean reproduce_old_bug;
+    private volatile JB2BlitIndex blitIndex;
 
     public JB2Image() {
         super();
@@ -76,6 +79,7 @@ public class JB2Image extends JB2Dict implements Dict {
 
         int index = blits.size();
         blits.add(blit);
+        blitIndex = null;
         return index;
     }
 
@@ -87,20 +91,54 @@ public class JB2Image extends JB2Dict implements Dict {
         return this.get_bitmap(1, 1, foregroundColors);
     }
 
+    /**
+     * Renders the image reduced by the factor {subsample}. Every pixel of the result holds the number
+     * of black pixels it covers, i.e. the bitmap has {1 + subsample * subsample} gray levels.
+     */
+    public GBitmap get_bitmap(int subsample) {
+        return this.get_bitmap(subsample, 1, null);
+    }
+
     public GBitmap get_bitmap(int subsample, int align, FGbzChunk foregroundColors) {
         if (this.width == 0 || this.height == 0) {
             throw new DjVuFileException("JB2Image.cant_create");
         }
 
-        int swidth = (width + subsample - 1) / subsample;
-        int sheight = (height + subsample - 1) / subsample;
+        final BitSet blitnos = new BitSet(get_blit_count());
+        blitnos.set(0, get_blit_count());
+
+        return get_bitmap(new GRectangle(0, 0, width, height), subsample, align, foregroundColors, blitnos);
+    }
+
+    /**
+     * Renders the part {rect} of the image (the coordinates are relative to the bottom left corner of the image).
+     * Only the blits which intersect the rectangle are rendered, they are found with the spatial index
+     * built on the first call.
+     */
+    public GBitmap get_bitmap(GRectangle rect, int subsample, int align, FGbzChunk foregroundColors) {
+        if (rect.isEmpty()) {
+            throw new DjVuFileException("JB2Image.cant_create");
+        }
+
+        return get_bitmap(rect, subsample, align, foregroundColors, getBlitIndex().find(rect));
+    }
+
+    private GBitmap get_bitmap(GRectangle rect, int subsample, int align, FGbzChunk foregroundColors,
+                               BitSet blitnos) {
+        int swidth = (rect.getWidth() + subsample - 1) / subsample;
+        int sheight = (rect.getHeight() + subsample - 1) / subsample;
         int border = ((swidth + align - 1) & -align) - swidth;
 
         final int blitCount = get_blit_count();
-        LOG.debug("blitCount = {}", blitCount);
+        LOG.debug("blitCount = {}, rendered blits = {}", blitCount, blitnos.cardinality());
 
+        /*
+            The subsampled pixels hold the coverage instead of the color indexes,
+            so the palette can be applied to the full resolution bitmaps only.
+         */
         List<Color> paletteColors = null;
-        if (foregroundColors != null
+        if (subsample == 1
+                && foregroundColors != null
                 && foregroundColors.getIndexes().size() == blitCount) {
             paletteColors = foregroundColors.getColors();
         }
@@ -109,10 +147,10 @@ public class JB2Image extends JB2Dict implements Dict {
         bm.init(sheight, swidth, border);
         bm.set_grays(1 + subsample * subsample);
 
-        for (int blitno = 0; blitno < blitCount; blitno++)
+        for (int blitno = blitnos.nextSetBit(0); blitno >= 0; blitno = blitnos.nextSetBit(blitno + 1))
         {
-           JB2Blit pblit = get_blit(blitno);
-           JB2Shape  pshape = getShape(pblit.getShapeno());
+            JB2Blit pblit = get_blit(blitno);
+            JB2Shape pshape = getShape(pblit.getShapeno());
             GBitmap pshapeBits = pshape.getBits();
 
             if (pshapeBits != null) {
@@ -123,9 +161,27 @@ public class JB2Image extends JB2Dict implements Dict {
                     colorIndex = foregroundColors.getIndexes().get(blitno);
                 }
 
-                bm.blit(pshapeBits, pblit.getLeft(), pblit.getBottom(), subsample, colorIndex);
+                bm.blit(pshapeBits, pblit.getLeft() - rect.xmin(), pblit.getBottom() - rect.ymin(),
+                        subsample, colorIndex);
             }
         }
         return bm;
     }
+
+    /**
+     * @return the spatial index over the bounding boxes of the blits
+     */
+    public JB2BlitIndex getBlitIndex() {
+        JB2BlitIndex index = blitIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = blitIndex;
+                if (index == null) {
+                    index = new JB2BlitIndex(this);
+                    blitIndex = index;
+                }
+            }
+        }
+        return index;
+    }
 }
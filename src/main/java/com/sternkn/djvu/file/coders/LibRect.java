@@ -31,57 +31,65 @@ public class LibRect {
     public void compute_bounding_box(GBitmap bm) {
         // Avoid trouble
         // GMonitorLock lock(bm.monitor());
+        if (bm.compute_rle_bounding_box(this)) {
+            return;
+        }
+
         // Get size
         final int w = bm.getWidth();
         final int h = bm.getHeight();
         final int s = bm.rowsize();
 
+        final byte[] data = bm.rowData(0);
+        final int depth = bm.getDepth();
+        final int base = bm.rowOffset(0);
+
         // Right border
         for(right = w - 1; right >= 0; --right) {
-            BufferPointer p = bm.getRow(0).shiftPointer(right);
-            BufferPointer pe = p.shiftPointer(s * h);
+            int p = base + right;
+            final int pe = p + s * h;
 
-            while(p.isPointerLess(pe) && p.isCurrentValueZero()) {
-                p = p.shiftPointer(s);
+            while(p < pe && BitmapPointer.get(data, depth, p) == 0) {
+                p += s;
             }
 
-            if (p.isPointerLess(pe)) break;
+            if (p < pe) break;
         }
 
         // Top border
         for(top = h - 1; top >= 0; --top) {
-            BufferPointer p = bm.getRow(top);
-            BufferPointer pe = p.shiftPointer(w);
+            int p = base + s * top;
+            final int pe = p + w;
 
-            while(p.isPointerLess(pe) && p.isCurrentValueZero()) {
-                p = p.shiftPointer(1);
+            while(p < pe && BitmapPointer.get(data, depth, p) == 0) {
+                p += 1;
             }
 
-            if (p.isPointerLess(pe)) break;
+            if (p < pe) break;
         }
 
         // Left border
         for (left = 0; left <= right; ++left) {
-            BufferPointer p = bm.getRow(0).shiftPointer(left);
-            BufferPointer pe = p.shiftPointer(s * h);
+            int p = base + left;
+            final int pe = p + s * h;
 
-            while(p.isPointerLess(pe) && p.isCurrentValueZero()) {
-                p = p.shiftPointer(s);
+            while(p < pe && BitmapPointer.get(data, depth, p) == 0) {
+                p += s;
             }
 
-            if (p.isPointerLess(pe)) break;
+            if (p < pe) break;
         }
 
         // Bottom border
         for(bottom = 0; bottom <= top; ++bottom) {
-            BufferPointer p = bm.getRow(bottom);
-            BufferPointer pe = p.shiftPointer(w);
+            int p = base + s * bottom;
+            final int pe = p + w;
 
-            while(p.isPointerLess(pe) && p.isCurrentValueZero()) {
-                p = p.shiftPointer(1);
+            while(p < pe && BitmapPointer.get(data, depth, p) == 0) {
+                p += 1;
             }
 
-            if (p.isPointerLess(pe)) break;
+            if (p < pe) break;
         }
     }
 
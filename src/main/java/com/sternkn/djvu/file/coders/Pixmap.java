@@ -32,14 +32,19 @@ public interface Pixmap {
 
     PixelColor getPixel(int x, int y);
 
+    /**
+     * @return the color of the pixel packed as {@code 0xRRGGBB}
+     */
+    default int getRGB(int x, int y) {
+        PixelColor pixel = getPixel(x, y);
+        return pixel.getBlue() | (pixel.getGreen() << 8) | (pixel.getRed() << 16);
+    }
+
     default void save(String filename) throws IOException {
         BufferedImage buffer = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
         for (int y = 0; y < getHeight(); y++) {
             for (int x = 0; x < getWidth(); x++) {
-                PixelColor pixel = getPixel(x, y);
-
-                int rgb = pixel.getBlue() | (pixel.getGreen() << 8) | (pixel.getRed() << 16);
-                buffer.setRGB(x, y, rgb);
+                buffer.setRGB(x, y, getRGB(x, y));
             }
         }
 
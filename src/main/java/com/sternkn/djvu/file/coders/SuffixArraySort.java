@@ -0,0 +1,226 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file.coders;
+
+import com.sternkn.djvu.file.DjVuFileException;
+
+import java.util.Arrays;
+
+/*
+    The block sort of the BZZ encoder built on the linear time suffix array construction SA-IS:
+    Ge Nong, Sen Zhang, Wai Hong Chan, "Two Efficient Algorithms for Linear Time Suffix Array Construction".
+
+    BSort orders the suffixes of the block with the last (zero) byte as a unique end marker which
+    is smaller than any byte. So the order of the suffixes is unique and it is the suffix array of the block
+    where the bytes are shifted by one and the marker is 0. Therefore, the result is the same as the BSort result,
+    but the running time does not depend on the repetitions in the data.
+ */
+public class SuffixArraySort {
+    private static final int ALPHABET_SIZE = 257;
+
+    private final int[] data;
+    private final int size;
+
+    public SuffixArraySort(int[] data, int size) {
+        if (size <= 0 || size >= 0x1000000) {
+            throw new DjVuFileException("Invalid size: " + size);
+        }
+
+        this.data = data;
+        this.size = size;
+    }
+
+    /**
+     * Replaces the block data with its Burrows-Wheeler transform.
+     *
+     * @return the position of the end marker in the transformed data
+     */
+    public int run() {
+        if (data[size - 1] != 0) {
+            throw new DjVuFileException("Invalid data state: data[size - 1] should be zero");
+        }
+
+        final int[] text = new int[size];
+        for (int i = 0; i < size - 1; i++) {
+            text[i] = data[i] + 1;
+        }
+
+        final int[] suffixes = new int[size];
+        sais(text, suffixes, size, ALPHABET_SIZE);
+
+        int markerpos = -1;
+        for (int i = 0; i < size; i++) {
+            final int j = suffixes[i];
+            if (j > 0) {
+                data[i] = text[j - 1] - 1;
+            }
+            else {
+                data[i] = 0;
+                markerpos = i;
+            }
+        }
+
+        return markerpos;
+    }
+
+    /*
+        Builds the suffix array {sa} of the text {s} of length {n} over the alphabet 0 .. k - 1.
+        The last symbol of the text is 0 and it does not occur anywhere else.
+     */
+    private static void sais(int[] s, int[] sa, int n, int k) {
+        if (n == 1) {
+            sa[0] = 0;
+            return;
+        }
+
+        // Classify the suffixes: true for S-type, false for L-type
+        final boolean[] stype = new boolean[n];
+        stype[n - 1] = true;
+        for (int i = n - 2; i >= 0; i--) {
+            stype[i] = s[i] < s[i + 1] || (s[i] == s[i + 1] && stype[i + 1]);
+        }
+
+        final int[] buckets = new int[k];
+
+        // Step 1: sort the LMS substrings
+        bucketEnds(s, buckets, n, k);
+        Arrays.fill(sa, 0, n, -1);
+        for (int i = 1; i < n; i++) {
+            if (isLms(stype, i)) {
+                sa[--buckets[s[i]]] = i;
+            }
+        }
+        induce(s, sa, stype, buckets, n, k);
+
+        // Compact the sorted LMS substrings into the first n1 items of sa
+        int n1 = 0;
+        for (int i = 0; i < n; i++) {
+            if (isLms(stype, sa[i])) {
+                sa[n1++] = sa[i];
+            }
+        }
+
+        // Name the LMS substrings, the names are stored at sa[n1 + position / 2]
+        Arrays.fill(sa, n1, n, -1);
+        int name = 0;
+        int prev = -1;
+        for (int i = 0; i < n1; i++) {
+            final int pos = sa[i];
+            boolean diff = false;
+            for (int d = 0; d < n; d++) {
+                if (prev == -1 || s[pos + d] != s[prev + d] || stype[pos + d] != stype[prev + d]) {
+                    diff = true;
+                    break;
+                }
+                if (d > 0 && (isLms(stype, pos + d) || isLms(stype, prev + d))) {
+                    break;
+                }
+            }
+            if (diff) {
+                name++;
+                prev = pos;
+            }
+            sa[n1 + pos / 2] = name - 1;
+        }
+
+        // Step 2: sort the LMS suffixes, recursively if the names are not unique
+        final int[] s1 = new int[n1];
+        for (int i = n1, j = 0; i < n; i++) {
+            if (sa[i] >= 0) {
+                s1[j++] = sa[i];
+            }
+        }
+
+        final int[] sa1 = new int[n1];
+        if (name < n1) {
+            sais(s1, sa1, n1, name);
+        }
+        else {
+            for (int i = 0; i < n1; i++) {
+                sa1[s1[i]] = i;
+            }
+        }
+
+        // Step 3: induce the suffix array from the sorted LMS suffixes
+        for (int i = 1, j = 0; i < n; i++) {
+            if (isLms(stype, i)) {
+                s1[j++] = i;
+            }
+        }
+
+        bucketEnds(s, buckets, n, k);
+        Arrays.fill(sa, 0, n, -1);
+        for (int i = n1 - 1; i >= 0; i--) {
+            final int j = s1[sa1[i]];
+            sa[--buckets[s[j]]] = j;
+        }
+        induce(s, sa, stype, buckets, n, k);
+    }
+
+    /*
+        Induces the order of the L-type suffixes from left to right,
+        then the order of the S-type suffixes from right to left.
+     */
+    private static void induce(int[] s, int[] sa, boolean[] stype, int[] buckets, int n, int k) {
+        bucketStarts(s, buckets, n, k);
+        for (int i = 0; i < n; i++) {
+            final int j = sa[i] - 1;
+            if (j >= 0 && !stype[j]) {
+                sa[buckets[s[j]]++] = j;
+            }
+        }
+
+        bucketEnds(s, buckets, n, k);
+        for (int i = n - 1; i >= 0; i--) {
+            final int j = sa[i] - 1;
+            if (j >= 0 && stype[j]) {
+                sa[--buckets[s[j]]] = j;
+            }
+        }
+    }
+
+    private static boolean isLms(boolean[] stype, int i) {
+        return i > 0 && stype[i] && !stype[i - 1];
+    }
+
+    private static void bucketStarts(int[] s, int[] buckets, int n, int k) {
+        countSymbols(s, buckets, n, k);
+        int sum = 0;
+        for (int c = 0; c < k; c++) {
+            final int count = buckets[c];
+            buckets[c] = sum;
+            sum += count;
+        }
+    }
+
+    private static void bucketEnds(int[] s, int[] buckets, int n, int k) {
+        countSymbols(s, buckets, n, k);
+        int sum = 0;
+        for (int c = 0; c < k; c++) {
+            sum += buckets[c];
+            buckets[c] = sum;
+        }
+    }
+
+    private static void countSymbols(int[] s, int[] buckets, int n, int k) {
+        Arrays.fill(buckets, 0, k, 0);
+        for (int i = 0; i < n; i++) {
+            buckets[s[i]]++;
+        }
+    }
+}
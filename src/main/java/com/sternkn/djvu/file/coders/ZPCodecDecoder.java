@@ -33,6 +33,12 @@ public interface ZPCodecDecoder extends Closeable {
      **/
     int decoder(BitContext ctx);
 
+    /**
+     * Decodes a bit using the context stored as an unsigned byte at {index} of the
+     * context table {ctx}. It may modify this byte in order to perform context adaptation.
+     **/
+    int decoder(byte[] ctx, int index);
+
     @Override
     void close() throws IOException;
 }
@@ -0,0 +1,232 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file.coders;
+
+import com.sternkn.djvu.file.DjVuFileException;
+
+import java.nio.ByteBuffer;
+
+/*
+    The Z´-Coder decoder (see ZpCodecInputStream) which reads the coded data directly from a byte buffer
+    (a heap array wrapped into a buffer or a slice of a memory-mapped file) using an index.
+    There is no InputStream call and no exception handling per byte, the probability tables are shared
+    primitive arrays and the register values fit into ints. The decoded bits are the same as the bits
+    decoded by ZpCodecInputStream from the same data.
+ */
+public class ZpCodecBufferDecoder implements ZPCodecDecoder {
+
+    private static final int BYTE_SIZE = 8;
+    private static final int NO_MORE_BYTE = -1;
+
+    private static final byte[] FFZT = ZpCodecUtils.getFFZTable();
+    private static final int[] P;
+    private static final int[] M;
+    private static final int[] UP;
+    private static final int[] DN;
+
+    static {
+        final ZpCodecTable[] table = ZpCodecUtils.getDefaultTable();
+        P = new int[table.length];
+        M = new int[table.length];
+        UP = new int[table.length];
+        DN = new int[table.length];
+        for (int index = 0; index < table.length; index++) {
+            P[index] = table[index].p();
+            M[index] = table[index].m();
+            UP[index] = table[index].up();
+            DN[index] = table[index].dn();
+        }
+    }
+
+    private final ByteBuffer data;
+    private final int limit;
+    private int position;
+
+    private int delay;
+    private int bufferSize;
+    private int buffer;
+
+    private int fence;
+    private int a;
+    private int c;
+
+    /* The bit decoded by the last call of decode(int), the new context state is returned as its result */
+    private int bit;
+
+    /**
+     * @param data the coded data between the buffer position and limit; the buffer itself is not modified
+     */
+    public ZpCodecBufferDecoder(ByteBuffer data) {
+        this.data = data;
+        this.position = data.position();
+        this.limit = data.limit();
+
+        init();
+    }
+
+    public ZpCodecBufferDecoder(byte[] data) {
+        this(ByteBuffer.wrap(data));
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+
+    private void init() {
+        this.a = 0;
+        this.c = (nextByte() << BYTE_SIZE) | nextByte();
+
+        /* Compute initial fence */
+        this.fence = Math.min(this.c, 0x7fff);
+
+        /* Preload buffer */
+        this.delay = 25;
+        this.bufferSize = 0;
+        this.buffer = 0;
+        preloadBuffer();
+    }
+
+    /*
+        All the bits after the end of the data are assumed to be 1.
+     */
+    private int nextByte() {
+        return position < limit ? data.get(position++) & 0xff : 0xff;
+    }
+
+    private void preloadBuffer() {
+        while (this.bufferSize <= 3 * BYTE_SIZE) {
+            int value = position < limit ? data.get(position++) & 0xff : NO_MORE_BYTE;
+            if (value == NO_MORE_BYTE) {
+                value = 0xff;
+                if (--this.delay < 1) {
+                    throw new DjVuFileException("End of djvu file");
+                }
+            }
+
+            this.buffer = (this.buffer << BYTE_SIZE) | value;
+            this.bufferSize += BYTE_SIZE;
+        }
+    }
+
+    @Override
+    public int decoder() {
+        return decodeWithoutContext(0x8000 + (this.a >> 1));
+    }
+
+    @Override
+    public int IWdecoder() {
+        return decodeWithoutContext(0x8000 + ((this.a + this.a + this.a) >> 3));
+    }
+
+    private int decodeWithoutContext(int z) {
+        if (z > this.c) {
+            z = 0x10000 - z;
+            this.a += z;
+            this.c += z;
+            renormalizeLps();
+            return 1;
+        }
+
+        this.a = z;
+        renormalizeMps();
+        return 0;
+    }
+
+    @Override
+    public int decoder(BitContext ctx) {
+        final int index = ctx.getValue();
+        final int state = decode(index);
+        if (state != index) {
+            ctx.setValue(state);
+        }
+        return this.bit;
+    }
+
+    @Override
+    public int decoder(byte[] ctx, int index) {
+        final int state = ctx[index] & 0xff;
+        final int next = decode(state);
+        if (next != state) {
+            ctx[index] = (byte) next;
+        }
+        return this.bit;
+    }
+
+    /**
+     * Decodes a bit with the context in the given state.
+     *
+     * @param index the context state
+     * @return the new context state; the decoded bit is stored in {@link #bit}
+     */
+    private int decode(int index) {
+        int z = this.a + P[index];
+
+        if (z <= this.fence) {
+            this.a = z;
+            this.bit = index & 1;
+            return index;
+        }
+
+        final int d = 0x6000 + ((z + this.a) >> 2);
+        if (z > d) {
+            z = d;
+        }
+
+        /* Test MPS/LPS */
+        if (z > this.c) {
+            this.bit = 1 - (index & 1);
+
+            z = 0x10000 - z;
+            this.a += z;
+            this.c += z;
+            renormalizeLps();
+            return DN[index];
+        }
+
+        this.bit = index & 1;
+        final int state = this.a >= M[index] ? UP[index] : index;
+        this.a = z;
+        renormalizeMps();
+        return state;
+    }
+
+    private int ffz(int x) {
+        return (x >= 0xff00) ? (FFZT[x & 0xff] + 8) : FFZT[(x >> 8) & 0xff];
+    }
+
+    private void renormalizeMps() {
+        shift(1);
+    }
+
+    private void renormalizeLps() {
+        shift(ffz(this.a));
+    }
+
+    private void shift(int shift) {
+        this.bufferSize -= shift;
+        this.a = (this.a << shift) & 0xffff;
+        final int nextBits = (this.buffer >>> this.bufferSize) & ((1 << shift) - 1);
+        this.c = ((this.c << shift) | nextBits) & 0xffff;
+        this.fence = Math.min(this.c, 0x7fff);
+
+        if (this.bufferSize < 2 * BYTE_SIZE) {
+            preloadBuffer();
+        }
+    }
+}
@@ -63,6 +63,9 @@ public class ZpCodecInputStream implements ZPCodecDecoder {
     private long a;
     private long c;
 
+    /* The bit decoded by the last call of decode(int) */
+    private int bit;
+
     enum SymbolType {
         MPS, // more probable symbol
         LPS  // less probable symbol
@@ -206,17 +209,38 @@ public class ZpCodecInputStream implements ZPCodecDecoder {
     @Override
     public int decoder(BitContext ctx) {
         final int index = ctx.getValue();
+        final int state = decode(index);
+        if (state != index) {
+            ctx.setValue(state);
+        }
+        return this.bit;
+    }
+
+    @Override
+    public int decoder(byte[] ctx, int index) {
+        final int state = ctx[index] & 0xff;
+        final int next = decode(state);
+        if (next != state) {
+            ctx[index] = (byte) next;
+        }
+        return this.bit;
+    }
 
+    /*
+        Decodes a bit with the context in the state {index}, stores the bit into {bit}
+        and returns the new context state.
+     */
+    private int decode(int index) {
         if (index < 0 || index >= this.table.length ) {
             throw new IllegalArgumentException("The index should be in range 0 .. " + (this.table.length - 1));
         }
 
         long z = this.a + table[index].p();
-        // dumpState(z, ctx);
 
         if (z <= this.fence) {
             this.a = z;
-            return (index & 1);
+            this.bit = index & 1;
+            return index;
         }
 
         final long d = asUnsignedInt(0x6000 + ((z + this.a) >> 2));
@@ -224,31 +248,29 @@ public class ZpCodecInputStream implements ZPCodecDecoder {
             z = d;
         }
 
-        final int bit;
+        final int state;
         final SymbolType symbolType;
 
         /* Test MPS/LPS */
         if (z > this.c) {
             symbolType = SymbolType.LPS;
-            bit = 1 - (index & 1); // B := 1 - (K(i)(mod 2))
+            this.bit = 1 - (index & 1); // B := 1 - (K(i)(mod 2))
 
             z = 0x10000 - z;
             this.a = this.a + z;
             this.c = this.c + z;
-            ctx.setValue(table[index].dn());
+            state = table[index].dn();
         }
         else {
             symbolType = SymbolType.MPS;
-            bit = (index & 1);  // B := K(i) (mod 2)
+            this.bit = (index & 1);  // B := K(i) (mod 2)
 
-            if (this.a >= table[index].m()) {
-                ctx.setValue(table[index].up());
-            }
+            state = this.a >= table[index].m() ? table[index].up() : index;
             this.a = z;
         }
 
         renormalization(symbolType);
-        return bit;
+        return state;
     }
 
     private int ffz(long x) {
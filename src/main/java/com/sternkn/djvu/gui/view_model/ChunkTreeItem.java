@@ -0,0 +1,58 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.gui.view_model;
+
+import com.sternkn.djvu.file.DjVuFile;
+import com.sternkn.djvu.file.chunks.Chunk;
+import javafx.collections.ObservableList;
+import javafx.scene.control.TreeItem;
+
+/*
+    The children of a chunk are requested from the document only when the node is expanded,
+    so a document whose components are read on demand reads only the expanded components.
+ */
+public class ChunkTreeItem extends TreeItem<ChunkTreeNode> {
+    private final DjVuFile djvuFile;
+    private final Chunk chunk;
+    private boolean childrenLoaded = false;
+
+    public ChunkTreeItem(DjVuFile djvuFile, Chunk chunk) {
+        super(new ChunkTreeNode(chunk));
+        this.djvuFile = djvuFile;
+        this.chunk = chunk;
+    }
+
+    @Override
+    public ObservableList<TreeItem<ChunkTreeNode>> getChildren() {
+        if (!childrenLoaded) {
+            childrenLoaded = true;
+            super.getChildren().setAll(
+                djvuFile.getChildren(chunk).stream()
+                    .map(child -> new ChunkTreeItem(djvuFile, child))
+                    .toList()
+            );
+        }
+
+        return super.getChildren();
+    }
+
+    @Override
+    public boolean isLeaf() {
+        return !chunk.isComposite();
+    }
+}
@@ -17,6 +17,8 @@
 */
 package com.sternkn.djvu.gui.view_model;
 
+import com.sternkn.djvu.file.ChunkDataMode;
+import com.sternkn.djvu.file.ChunkIndexCache;
 import com.sternkn.djvu.file.DjVuFile;
 import com.sternkn.djvu.file.DjVuFileReader;
 import javafx.concurrent.Task;
@@ -30,6 +32,8 @@ import static com.sternkn.djvu.utils.ExceptionUtils.getStackTraceAsString;
 public class DjVuFileTask extends Task<DjVuFile> {
     private static final Logger LOG = LoggerFactory.getLogger(DjVuFileTask.class);
 
+    private static final ChunkIndexCache INDEX_CACHE = new ChunkIndexCache();
+
     private final File file;
 
     public DjVuFileTask(File file) {
@@ -38,9 +42,11 @@ public class DjVuFileTask extends Task<DjVuFile> {
 
     @Override
     public DjVuFile call() {
-        try (DjVuFileReader reader = new DjVuFileReader(file)) {
+        try (DjVuFileReader reader = new DjVuFileReader(file, ChunkDataMode.MEMORY_MAPPED)) {
             try {
-                return reader.readFile();
+                // only the DIRM and NAVM chunks are read here (or taken from the index cache),
+                // pages are read when they are shown
+                return reader.readFileLazily(INDEX_CACHE);
             }
             catch (Exception e) {
                 LOG.error(getStackTraceAsString(e));
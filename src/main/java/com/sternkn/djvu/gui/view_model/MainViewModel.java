@@ -31,6 +31,7 @@ import com.sternkn.djvu.model.Page;
 import com.sternkn.djvu.model.PageCache;
 import com.sternkn.djvu.model.PageData;
 import com.sternkn.djvu.model.SimplePageCache;
+import com.sternkn.djvu.utils.AppDirectories;
 import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
@@ -51,7 +52,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -61,7 +61,7 @@ import static com.sternkn.djvu.utils.ImageUtils.toImage;
 public class MainViewModel {
     private static final Logger LOG = LoggerFactory.getLogger(MainViewModel.class);
 
-    public static final String APP_NAME = "DjVuViewer";
+    public static final String APP_NAME = AppDirectories.APP_NAME;
     public static final int ZOOM_DELTA = 10;
 
     private final FileTaskFactory fileTaskFactory;
@@ -97,6 +97,7 @@ public class MainViewModel {
     private final ObjectProperty<PageData> pageData;
 
     private PageCache pageCache;
+    private Page loadingPage;
 
     private Task<Void> thumbnailLoadingTask;
 
@@ -206,7 +207,15 @@ public class MainViewModel {
         setInProgress();
         setProgressMessage("Loading page ...");
 
-        pageCache.getFromCacheOrLoad(page.getPage()).whenComplete((data, exception) -> {
+        final Page requestedPage = page.getPage();
+        loadingPage = requestedPage;
+
+        pageCache.getFromCacheOrLoad(requestedPage, preview -> Platform.runLater(() -> {
+            // the preview is dropped if another page has been requested meanwhile
+            if (requestedPage.equals(loadingPage)) {
+                setPageData(new PageData(preview, null));
+            }
+        })).whenComplete((data, exception) -> {
             if (exception != null) {
                 Platform.runLater(() -> {
                     LOG.error(getStackTraceAsString(exception));
@@ -228,26 +237,9 @@ public class MainViewModel {
     }
 
     private TreeItem<ChunkTreeNode> getRootNode(DjVuFile djvuFile) {
-        List<Chunk> chunks = djvuFile.getChunks();
-
-        TreeItem<ChunkTreeNode> root = null;
-        List<TreeItem<ChunkTreeNode>> nodes = new ArrayList<>(chunks.size());
-
-        for (Chunk chunk : chunks) {
-            TreeItem<ChunkTreeNode> node = new TreeItem<>(new ChunkTreeNode(chunk));
-            if (root == null) {
-                root = node;
-            }
-            nodes.add(node);
-
-            Chunk parentChunk = chunk.getParent();
-            if (parentChunk != null) {
-                TreeItem<ChunkTreeNode> parentNode = nodes.get((int) parentChunk.getId());
-                parentNode.getChildren().add(node);
-            }
-        }
-
-        return root;
+        // the DIRM chunk is a child of the root FORM:DJVM chunk
+        Chunk root = djvuFile.getDirectoryChunk().getParent();
+        return new ChunkTreeItem(djvuFile, root);
     }
 
     public void showChunkInfo(long chunkId) {
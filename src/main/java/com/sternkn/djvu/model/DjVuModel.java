@@ -19,6 +19,7 @@ package com.sternkn.djvu.model;
 
 import java.io.File;
 import java.util.List;
+import java.util.function.Consumer;
 import javafx.scene.image.Image;
 
 public interface DjVuModel {
@@ -31,10 +32,28 @@ public interface DjVuModel {
 
     PageData loadAsync(Page page);
 
+    /**
+     * Loads the page data, a lower quality preview of the page background is passed
+     * to the {@code preview} consumer as soon as the first slices of it are decoded.
+     */
+    PageData loadAsync(Page page, Consumer<Image> preview);
+
     PageData load(Page page);
 
     Image getPageImageAsync(Page page);
 
+    /**
+     * Returns the page image rendered at a reduced resolution which still covers
+     * the {@code targetWidth} × {@code targetHeight} rectangle (e.g. for thumbnails).
+     */
+    Image getPageImageAsync(Page page, int targetWidth, int targetHeight);
+
+    /**
+     * Returns the page image, a lower quality preview of the background composed from its first slices
+     * is passed to the {@code preview} consumer while the rest of the page is decoded.
+     */
+    Image getPageImageAsync(Page page, Consumer<Image> preview);
+
     ChunkInfo getChunkInfo(long chunkId);
 
     String getChunkStatistics();
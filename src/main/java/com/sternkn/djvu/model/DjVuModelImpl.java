@@ -31,7 +31,9 @@ import com.sternkn.djvu.file.chunks.LTAnnotationChunk;
 import com.sternkn.djvu.file.chunks.NavmChunk;
 import com.sternkn.djvu.file.chunks.TextChunk;
 import com.sternkn.djvu.file.coders.IW44Image;
+import com.sternkn.djvu.file.coders.IW44ProgressiveDecoder;
 import com.sternkn.djvu.file.coders.IW44SecondaryHeader;
+import com.sternkn.djvu.file.coders.JB2Dict;
 import com.sternkn.djvu.file.coders.JB2Image;
 import com.sternkn.djvu.file.coders.Pixmap;
 import javafx.scene.image.Image;
@@ -41,6 +43,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +51,8 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -55,19 +60,39 @@ import java.util.stream.IntStream;
 import static com.sternkn.djvu.utils.ImageUtils.composeImage;
 import static com.sternkn.djvu.utils.ImageUtils.createBlank;
 import static com.sternkn.djvu.utils.ImageUtils.decodeJB2Image;
-import static com.sternkn.djvu.utils.ImageUtils.decodeIW44Image;
+import static com.sternkn.djvu.utils.ImageUtils.decodeIW44Buffers;
 import static com.sternkn.djvu.utils.StringUtils.NL;
 import static com.sternkn.djvu.utils.StringUtils.padRight;
 
 public class DjVuModelImpl implements DjVuModel {
     private static final Logger LOG = LoggerFactory.getLogger(DjVuModelImpl.class);
 
+    /*
+        A subsampled JB2 bitmap has 1 + subsample * subsample gray levels which must not exceed 256.
+     */
+    private static final int MAX_SUBSAMPLE = 15;
+
+    /*
+        The inverse wavelet transform can stop at any scale up to the size of the IW44 block.
+     */
+    private static final int MAX_IW44_SUBSAMPLE = 32;
+
+    /*
+        The preview background is reconstructed at half the resolution from its first slices.
+     */
+    private static final int PREVIEW_SLICES = 20;
+    private static final int PREVIEW_SUBSAMPLE = 2;
+
     private final DjVuFile djvuFile;
+    private final JB2DictCache dictionaryCache;
+    private final ParsedChunkCache parsedChunks;
     private List<Page> pages;
     private List<MenuNode> menuNodes;
 
     public DjVuModelImpl(DjVuFile djvuFile) {
         this.djvuFile = djvuFile;
+        this.dictionaryCache = new JB2DictCache();
+        this.parsedChunks = new ParsedChunkCache();
         pages = null;
         menuNodes = null;
     }
@@ -75,7 +100,7 @@ public class DjVuModelImpl implements DjVuModel {
     private List<Page> calculatePages() {
         return djvuFile.getDirectoryChunk().getComponents().stream()
             .filter(c -> c.getType() == ComponentType.PAGE)
-            .map(c -> new Page(c.getOffset(), c.getId()))
+            .map(c -> new Page(djvuFile.getComponentOffset(c), c.getId()))
             .toList();
     }
 
@@ -174,7 +199,17 @@ public class DjVuModelImpl implements DjVuModel {
     public PageData loadAsync(Page page) {
         PageChunks chunks = getPageChunks(page.getOffset());
 
-        Image image = getPageImageAsync(chunks);
+        Image image = getPageImageAsync(chunks, 1);
+        TextChunk text = getTextChunk(chunks);
+
+        return new PageData(image, text);
+    }
+
+    @Override
+    public PageData loadAsync(Page page, Consumer<Image> preview) {
+        PageChunks chunks = getPageChunks(page.getOffset());
+
+        Image image = getPageImageAsync(chunks, preview);
         TextChunk text = getTextChunk(chunks);
 
         return new PageData(image, text);
@@ -193,12 +228,12 @@ public class DjVuModelImpl implements DjVuModel {
     private TextChunk getTextChunk(PageChunks chunks) {
         Chunk chunk = getChunk(chunks.pageChunks(), ChunkId.TXTz);
         if (chunk != null) {
-            return new TextChunk(chunk);
+            return parsedChunks.get(chunk, TextChunk.class, TextChunk::new);
         }
 
         chunk = getChunk(chunks.pageChunks(), ChunkId.TXTa);
         if (chunk != null) {
-            return new TextChunk(chunk);
+            return parsedChunks.get(chunk, TextChunk.class, TextChunk::new);
         }
 
         return null;
@@ -209,7 +244,7 @@ public class DjVuModelImpl implements DjVuModel {
 
     private PageChunks getPageChunks(Long offset) {
         Chunk chunk = djvuFile.getChunkByOffset(offset);
-        InfoChunk info = new InfoChunk(chunk);
+        InfoChunk info = parsedChunks.get(chunk, InfoChunk.class, InfoChunk::new);
 
         LOG.debug("Page offset = {}, info = {}", offset, info);
 
@@ -221,28 +256,98 @@ public class DjVuModelImpl implements DjVuModel {
     @Override
     public Image getPageImageAsync(Page page) {
         PageChunks chunks = getPageChunks(page.getOffset());
-        return getPageImageAsync(chunks);
+        return getPageImageAsync(chunks, 1);
+    }
+
+    @Override
+    public Image getPageImageAsync(Page page, int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            throw new IllegalArgumentException("Invalid size");
+        }
+
+        PageChunks chunks = getPageChunks(page.getOffset());
+        InfoChunk info = chunks.info();
+        int subsample = Math.min(info.getWidth() / targetWidth, info.getHeight() / targetHeight);
+
+        return getPageImageAsync(chunks, Math.clamp(subsample, 1, MAX_SUBSAMPLE));
     }
 
-    private Image getPageImageAsync(PageChunks chunks) {
+    private Image getPageImageAsync(PageChunks chunks, int subsample) {
         InfoChunk info = chunks.info();
         Map<ChunkId, List<Chunk>> pageChunks = chunks.pageChunks();
 
         Image image = null;
+        int height = (info.getHeight() + subsample - 1) / subsample;
+        int width = (info.getWidth() + subsample - 1) / subsample;
         try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
 
+            final int targetWidth = width;
             CompletableFuture<Pixmap> backgroundFuture = CompletableFuture.supplyAsync(
-                    () -> getColorImage(pageChunks, ChunkId.BG44), executor);
+                    () -> getColorImage(pageChunks, ChunkId.BG44, targetWidth), executor);
+            CompletableFuture<Pixmap> foregroundFuture = CompletableFuture.supplyAsync(
+                    () -> getColorImage(pageChunks, ChunkId.FG44, targetWidth), executor);
+            CompletableFuture<Pixmap> maskFuture = CompletableFuture.supplyAsync(
+                    () -> getBitonalImage(pageChunks, subsample), executor);
+
+            Pixmap mask = maskFuture.join();
+            if (mask != null) {
+                // the palette masks are always rendered at the full resolution
+                height = mask.getHeight();
+                width = mask.getWidth();
+            }
+
+            image = composeImage(mask, backgroundFuture.join(), foregroundFuture.join(),
+                    height, width, ImageRotationType.UPSIDE_DOWN);
+        }
+
+        if (image == null) {
+            image = createBlank(width, height);
+        }
+
+        return image;
+    }
+
+    @Override
+    public Image getPageImageAsync(Page page, Consumer<Image> preview) {
+        PageChunks chunks = getPageChunks(page.getOffset());
+        return getPageImageAsync(chunks, preview);
+    }
+
+    private Image getPageImageAsync(PageChunks chunks, Consumer<Image> preview) {
+        InfoChunk info = chunks.info();
+        Map<ChunkId, List<Chunk>> pageChunks = chunks.pageChunks();
+
+        IW44ProgressiveDecoder background = createProgressiveDecoder(pageChunks, ChunkId.BG44);
+        if (background == null) {
+            return getPageImageAsync(chunks, 1);
+        }
+
+        Image image = null;
+        int height = info.getHeight();
+        int width = info.getWidth();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+
             CompletableFuture<Pixmap> foregroundFuture = CompletableFuture.supplyAsync(
                     () -> getColorImage(pageChunks, ChunkId.FG44), executor);
             CompletableFuture<Pixmap> maskFuture = CompletableFuture.supplyAsync(
                     () -> getBitonalImage(pageChunks), executor);
-            image = composeImage(maskFuture.join(), backgroundFuture.join(), foregroundFuture.join(),
-                    info.getHeight(), info.getWidth(), ImageRotationType.UPSIDE_DOWN);
+
+            /*
+                The preview does not wait for the mask and the foreground: the background alone
+                is shown while the rest of the page is decoded.
+             */
+            if (!background.decodeSlices(PREVIEW_SLICES)) {
+                preview.accept(composeImage(null, background.getPixmap(PREVIEW_SUBSAMPLE), null,
+                        height, width, ImageRotationType.UPSIDE_DOWN));
+                background.decodeSlices(Integer.MAX_VALUE);
+            }
+
+            image = composeImage(maskFuture.join(), background.getPixmap(1, ForkJoinPool.commonPool()),
+                    foregroundFuture.join(), height, width, ImageRotationType.UPSIDE_DOWN);
         }
 
         if (image == null) {
-            image = createBlank(info.getWidth(), info.getHeight());
+            image = createBlank(width, height);
         }
 
         return image;
@@ -279,7 +384,11 @@ public class DjVuModelImpl implements DjVuModel {
         Chunk chunk = this.djvuFile.getChunkById(chunkId);
 
         try (FileOutputStream outputStream = new FileOutputStream(file)) {
-            outputStream.write(chunk.getData());
+            /* The mapped chunk data is written straight from the mapping */
+            final ByteBuffer data = chunk.getDataBuffer();
+            while (data.hasRemaining()) {
+                outputStream.getChannel().write(data);
+            }
         }
         catch (IOException e) {
             throw new RuntimeException(e);
@@ -305,12 +414,12 @@ public class DjVuModelImpl implements DjVuModel {
 
         Chunk decodedChunk = switch (chunkType) {
             case ChunkId.DIRM -> this.djvuFile.getDirectoryChunk();
-            case ChunkId.INFO -> new InfoChunk(chunk);
-            case ChunkId.NAVM -> new NavmChunk(chunk);
-            case ChunkId.INCL -> new InclChunk(chunk);
-            case ChunkId.FGbz -> new FGbzChunk(chunk);
-            case ChunkId.ANTz, ChunkId.ANTa -> new AnnotationChunk(chunk);
-            case ChunkId.LTAz, ChunkId.LTAa -> new LTAnnotationChunk(chunk);
+            case ChunkId.INFO -> parsedChunks.get(chunk, InfoChunk.class, InfoChunk::new);
+            case ChunkId.NAVM -> parsedChunks.get(chunk, NavmChunk.class, NavmChunk::new);
+            case ChunkId.INCL -> parsedChunks.get(chunk, InclChunk.class, InclChunk::new);
+            case ChunkId.FGbz -> parsedChunks.get(chunk, FGbzChunk.class, FGbzChunk::new);
+            case ChunkId.ANTz, ChunkId.ANTa -> parsedChunks.get(chunk, AnnotationChunk.class, AnnotationChunk::new);
+            case ChunkId.LTAz, ChunkId.LTAa -> parsedChunks.get(chunk, LTAnnotationChunk.class, LTAnnotationChunk::new);
             default -> chunk;
         };
 
@@ -355,7 +464,7 @@ public class DjVuModelImpl implements DjVuModel {
             return null;
         }
 
-        TextChunk textChunk = new TextChunk(chunk);
+        TextChunk textChunk = parsedChunks.get(chunk, TextChunk.class, TextChunk::new);
 
         return new ChunkInfo(chunk.getId())
             .setTextData(textChunk.getDataAsText())
@@ -365,8 +474,8 @@ public class DjVuModelImpl implements DjVuModel {
 
     private ChunkInfo getIW44ChunkImage(Chunk chunk) {
         List<Chunk> chunks = this.djvuFile.getAllPageChunksWithSameChunkId(chunk);
-        List<byte[]> data = chunks.stream().map(Chunk::getData).toList();
-        IW44Image image = decodeIW44Image(data);
+        List<ByteBuffer> data = chunks.stream().map(Chunk::getDataBuffer).toList();
+        IW44Image image = decodeIW44Buffers(data);
 
         IW44SecondaryHeader header = image.getSecondaryHeader();
         Pixmap bitmap = image.get_pixmap();
@@ -404,6 +513,14 @@ public class DjVuModelImpl implements DjVuModel {
     }
 
     private Pixmap getBitonalImage(Map<ChunkId, List<Chunk>> pageChunks) {
+        return getBitonalImage(pageChunks, 1);
+    }
+
+    /*
+        The subsampled mask keeps the coverage of every pixel as a gray level (see JB2Image.get_bitmap),
+        the masks with the foreground colors (FGbz) are rendered at the full resolution.
+     */
+    private Pixmap getBitonalImage(Map<ChunkId, List<Chunk>> pageChunks, int subsample) {
         Chunk sjbz = getChunk(pageChunks, ChunkId.Sjbz);
 
         if (sjbz == null) {
@@ -411,27 +528,51 @@ public class DjVuModelImpl implements DjVuModel {
         }
 
         Chunk fgbz = getChunk(pageChunks, ChunkId.FGbz);
-        FGbzChunk foregroundColors = fgbz == null ? null : new FGbzChunk(fgbz);
+        FGbzChunk foregroundColors = fgbz == null ? null : parsedChunks.get(fgbz, FGbzChunk.class, FGbzChunk::new);
 
         Chunk sharedShape = this.djvuFile.findSharedShapeChunk(sjbz);
 
-        byte[] data = sjbz.getData();
-        byte[] dict = sharedShape == null ? null : sharedShape.getData();
-
-        JB2Image image = decodeJB2Image(data, dict);
+        JB2Dict dictionary = sharedShape == null ? null : dictionaryCache.get(sharedShape);
+        JB2Image image = decodeJB2Image(sjbz.getDataBuffer(), dictionary);
 
-        return foregroundColors == null ? image.get_bitmap() : image.get_bitmap(foregroundColors);
+        return foregroundColors == null ? image.get_bitmap(subsample) : image.get_bitmap(foregroundColors);
     }
 
     private Pixmap getColorImage(Map<ChunkId, List<Chunk>> pageChunks, ChunkId chunkId) {
+        IW44Image image = decodeColorImage(pageChunks, chunkId);
+        return image == null ? null : image.get_pixmap(1, ForkJoinPool.commonPool());
+    }
+
+    /*
+        The color layers are reconstructed at the largest power of two reduction
+        which keeps them at least as wide as the target image.
+     */
+    private Pixmap getColorImage(Map<ChunkId, List<Chunk>> pageChunks, ChunkId chunkId, int targetWidth) {
+        IW44Image image = decodeColorImage(pageChunks, chunkId);
+        if (image == null) {
+            return null;
+        }
+
+        int subsample = Integer.highestOneBit(Math.clamp(image.getWidth() / targetWidth, 1, MAX_IW44_SUBSAMPLE));
+        return image.get_pixmap(subsample, ForkJoinPool.commonPool());
+    }
+
+    private IW44ProgressiveDecoder createProgressiveDecoder(Map<ChunkId, List<Chunk>> pageChunks, ChunkId chunkId) {
         List<Chunk> chunks = pageChunks.get(chunkId);
         if (chunks == null || chunks.isEmpty()) {
             return null;
         }
 
-        List<byte[]> data = chunks.stream().map(Chunk::getData).toList();
-        IW44Image image = decodeIW44Image(data);
+        return new IW44ProgressiveDecoder(chunks.stream().map(Chunk::getDataBuffer).toList());
+    }
+
+    private IW44Image decodeColorImage(Map<ChunkId, List<Chunk>> pageChunks, ChunkId chunkId) {
+        List<Chunk> chunks = pageChunks.get(chunkId);
+        if (chunks == null || chunks.isEmpty()) {
+            return null;
+        }
 
-        return image.get_pixmap();
+        List<ByteBuffer> data = chunks.stream().map(Chunk::getDataBuffer).toList();
+        return decodeIW44Buffers(data);
     }
 }
@@ -0,0 +1,126 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.model;
+
+import com.sternkn.djvu.file.chunks.Chunk;
+import com.sternkn.djvu.file.coders.JB2Dict;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static com.sternkn.djvu.utils.ImageUtils.decodeJB2Dict;
+
+/*
+    Decoded shared shape dictionaries (Djbz chunks) of one document keyed by the chunk id.
+    Many pages include the same dictionary, so it is decoded once and then shared read-only
+    by the pages which are decoded at the same time.
+
+    The cache keeps the most recently used dictionaries. If several pages request a dictionary
+    which is not decoded yet, only one of them decodes it and the others wait for the result.
+ */
+public class JB2DictCache {
+    private static final Logger LOG = LoggerFactory.getLogger(JB2DictCache.class);
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private final Map<Long, CompletableFuture<JB2Dict>> cache;
+
+    public JB2DictCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public JB2DictCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The cache capacity must be positive: " + capacity);
+        }
+
+        this.cache = new LinkedHashMap<>(capacity + 1, 1.0f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CompletableFuture<JB2Dict>> eldest) {
+                if (size() > capacity) {
+                    LOG.debug("Evicting shape dictionary of chunk {}", eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the decoded dictionary of the {@code Djbz} chunk. The dictionary must not be modified.
+     *
+     * @param dictionaryChunk the {@code Djbz} chunk
+     * @return the decoded shape dictionary
+     */
+    public JB2Dict get(Chunk dictionaryChunk) {
+        final Long key = dictionaryChunk.getId();
+        final CompletableFuture<JB2Dict> future;
+        final boolean isDecoder;
+
+        synchronized (cache) {
+            CompletableFuture<JB2Dict> cached = cache.get(key);
+            isDecoder = cached == null;
+            if (isDecoder) {
+                cached = new CompletableFuture<>();
+                cache.put(key, cached);
+            }
+            future = cached;
+        }
+
+        if (!isDecoder) {
+            LOG.debug("cache HIT shape dictionary: {}", key);
+            return join(future);
+        }
+
+        LOG.debug("cache MISS shape dictionary: {}", key);
+        try {
+            future.complete(decodeJB2Dict(dictionaryChunk.getDataBuffer()));
+        }
+        catch (RuntimeException e) {
+            synchronized (cache) {
+                cache.remove(key, future);
+            }
+            future.completeExceptionally(e);
+            throw e;
+        }
+
+        return future.join();
+    }
+
+    private static JB2Dict join(CompletableFuture<JB2Dict> future) {
+        try {
+            return future.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+}
@@ -18,8 +18,10 @@
 package com.sternkn.djvu.model;
 
 import com.sternkn.djvu.file.DjVuFileException;
+import javafx.scene.image.Image;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface PageCache {
 
@@ -31,4 +33,15 @@ public interface PageCache {
      * @throws DjVuFileException if the page is not found
      */
     CompletableFuture<PageData> getFromCacheOrLoad(Page page);
+
+    /**
+     * Returns the data for the requested page, if the page is not cached yet
+     * a preview of its image is passed to the {@code preview} consumer while it is decoded.
+     *
+     * @param page the page whose data should be retrieved from the cache or decoded
+     * @param preview the consumer of the page image preview
+     * @return the page data
+     * @throws DjVuFileException if the page is not found
+     */
+    CompletableFuture<PageData> getFromCacheOrLoad(Page page, Consumer<Image> preview);
 }
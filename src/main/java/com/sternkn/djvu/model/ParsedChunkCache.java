@@ -0,0 +1,91 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.model;
+
+import com.sternkn.djvu.file.chunks.Chunk;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/*
+    Typed chunk objects (InfoChunk, TextChunk, FGbzChunk, ...) of one document keyed by the chunk id
+    and the type. Some of them are BZZ-decoded, so they are parsed once and reused when the page is loaded
+    again or the chunk is shown in the inspector again. The cache keeps the most recently used objects.
+
+    The cached objects are shared, so they must not be modified.
+ */
+public class ParsedChunkCache {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private record Key(long chunkId, Class<? extends Chunk> type) {
+    }
+
+    private final Map<Key, Chunk> cache;
+
+    public ParsedChunkCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ParsedChunkCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The cache capacity must be positive: " + capacity);
+        }
+
+        this.cache = new LinkedHashMap<>(capacity + 1, 1.0f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Chunk> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the typed object of the chunk, parsing the chunk if the object is not cached.
+     * The parser runs outside the lock, so several threads can parse different chunks at the same time.
+     *
+     * @param chunk the raw chunk
+     * @param type the type of the parsed object
+     * @param parser creates the typed object from the raw chunk
+     * @return the typed object
+     */
+    public <T extends Chunk> T get(Chunk chunk, Class<T> type, Function<Chunk, T> parser) {
+        final Key key = new Key(chunk.getId(), type);
+
+        synchronized (cache) {
+            final Chunk cached = cache.get(key);
+            if (cached != null) {
+                return type.cast(cached);
+            }
+        }
+
+        final T parsed = parser.apply(chunk);
+
+        synchronized (cache) {
+            final Chunk previous = cache.putIfAbsent(key, parsed);
+            return previous == null ? parsed : type.cast(previous);
+        }
+    }
+
+    int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+}
@@ -18,6 +18,7 @@
 package com.sternkn.djvu.model;
 
 import com.sternkn.djvu.file.DjVuFileException;
+import javafx.scene.image.Image;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,6 +29,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -64,13 +66,18 @@ public class SimplePageCache implements PageCache {
 
     @Override
     public CompletableFuture<PageData> getFromCacheOrLoad(Page page) {
+        return getFromCacheOrLoad(page, null);
+    }
+
+    @Override
+    public CompletableFuture<PageData> getFromCacheOrLoad(Page page, Consumer<Image> preview) {
         CompletableFuture<PageData> cachedPage = cache.get(page);
         if (cachedPage != null) {
             LOG.debug("cache HIT page: {}", page);
         }
         else {
             LOG.debug("cache MISS page: {}", page);
-            cachedPage = CompletableFuture.supplyAsync(() -> this.model.loadAsync(page), executor);
+            cachedPage = CompletableFuture.supplyAsync(() -> load(page, preview), executor);
             cache.put(page, cachedPage);
         }
 
@@ -79,6 +86,10 @@ public class SimplePageCache implements PageCache {
         return cachedPage;
     }
 
+    private PageData load(Page page, Consumer<Image> preview) {
+        return preview == null ? model.loadAsync(page) : model.loadAsync(page, preview);
+    }
+
     private void refreshCache(Page page) {
         final List<Page> pages = model.getPages();
         final int currentPageIndex = pages.indexOf(page);
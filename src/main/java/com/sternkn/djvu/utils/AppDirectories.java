@@ -0,0 +1,91 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.utils;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/*
+    The per-user directories of the application, placed according to the conventions of the OS:
+    ~/Library on macOS, %LOCALAPPDATA% on Windows and the XDG base directories otherwise.
+ */
+public final class AppDirectories {
+    public static final String APP_NAME = "DjVuViewer";
+
+    private static final String OS = System.getProperty("os.name", "").toLowerCase();
+    private static final String USER_HOME = System.getProperty("user.home");
+
+    private AppDirectories() {
+    }
+
+    public static Path getLogDir() {
+        if (isMac()) {
+            return Paths.get(USER_HOME, "Library", "Logs", APP_NAME);
+        }
+
+        if (isWindows()) {
+            return getLocalAppDataDir().resolve("Logs");
+        }
+
+        return getXdgDir("XDG_STATE_HOME", ".local", "state").resolve("logs");
+    }
+
+    public static Path getCacheDir() {
+        if (isMac()) {
+            return Paths.get(USER_HOME, "Library", "Caches", APP_NAME);
+        }
+
+        if (isWindows()) {
+            return getLocalAppDataDir().resolve("Cache");
+        }
+
+        return getXdgDir("XDG_CACHE_HOME", ".cache");
+    }
+
+    private static boolean isMac() {
+        return OS.contains("mac");
+    }
+
+    private static boolean isWindows() {
+        return OS.contains("win");
+    }
+
+    private static Path getLocalAppDataDir() {
+        String localAppData = System.getenv("LOCALAPPDATA");
+        if (StringUtils.isBlank(localAppData)) {
+            return Paths.get(USER_HOME, "AppData", "Local", APP_NAME);
+        }
+        else {
+            return Paths.get(localAppData, APP_NAME);
+        }
+    }
+
+    /*
+        Returns the application directory in the XDG base directory given by the environment variable,
+        or in its default location relative to the user home.
+     */
+    private static Path getXdgDir(String variable, String... defaultPath) {
+        String baseDir = System.getenv(variable);
+        if (StringUtils.isBlank(baseDir)) {
+            return Paths.get(USER_HOME, defaultPath).resolve(APP_NAME);
+        }
+        else {
+            return Paths.get(baseDir, APP_NAME);
+        }
+    }
+}
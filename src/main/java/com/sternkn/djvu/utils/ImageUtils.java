@@ -18,11 +18,11 @@
 package com.sternkn.djvu.utils;
 
 import com.sternkn.djvu.file.chunks.ImageRotationType;
+import com.sternkn.djvu.file.coders.GBitmap;
 import com.sternkn.djvu.file.coders.IW44Image;
 import com.sternkn.djvu.file.coders.JB2CodecDecoder;
 import com.sternkn.djvu.file.coders.JB2Dict;
 import com.sternkn.djvu.file.coders.JB2Image;
-import com.sternkn.djvu.file.coders.PixelColor;
 import com.sternkn.djvu.file.coders.Pixmap;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
@@ -36,9 +36,9 @@ import org.slf4j.LoggerFactory;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 public final class ImageUtils {
@@ -68,12 +68,9 @@ public final class ImageUtils {
 
         for (int x = 0; x < bitmap.getWidth(); x++) {
             for (int y = 0; y < bitmap.getHeight(); y++) {
-                PixelColor pixel = bitmap.getPixel(x, y);
-                Color color = Color.rgb(pixel.getRed(), pixel.getGreen(), pixel.getBlue());
-
                 int newY = rotatedY(x, y, rotationType, height);
                 int newX = rotatedX(x, y, rotationType, width);
-                pixelWriter.setColor(newX, newY, color);
+                pixelWriter.setArgb(newX, newY, 0xFF000000 | bitmap.getRGB(x, y));
             }
         }
 
@@ -263,6 +260,12 @@ public final class ImageUtils {
         PixelReader fgReader = imageForeground == null ? null : imageForeground.getPixelReader();
         PixelReader bgReader = imageBackground.getPixelReader();
 
+        /*
+            A subsampled mask holds the coverage of the pixels as gray levels,
+            so it is used as an alpha mask which blends the foreground with the background.
+         */
+        final boolean alphaMask = mask instanceof GBitmap bitmap && bitmap.getGrays() > 2;
+
         for (int y = 0; y < height; y++) {
             for (int x = 0; x < width; x++) {
                 Color color = maskReader.getColor(x, y);
@@ -280,7 +283,13 @@ public final class ImageUtils {
                         resultColor = fgReader.getColor(srcX, srcY);
                     }
                     else {
-                        resultColor = color;
+                        resultColor = alphaMask ? Color.BLACK : color;
+                    }
+
+                    if (alphaMask) {
+                        int srcX = Math.min((int) (x * bgScale), (int)(imageBackground.getWidth() - 1));
+                        int srcY = Math.min((int) (y * bgScale), (int)(imageBackground.getHeight() - 1));
+                        resultColor = bgReader.getColor(srcX, srcY).interpolate(resultColor, 1.0 - color.getRed());
                     }
                 }
 
@@ -299,17 +308,57 @@ public final class ImageUtils {
      * @return the JB2-decoded image
      */
     public static JB2Image decodeJB2Image(byte[] data, byte[] dict) {
-        JB2Dict dictionary = null;
-        if (dict != null) {
-            dictionary = new JB2Dict();
-            JB2CodecDecoder decoder = new JB2CodecDecoder(new ByteArrayInputStream(dict));
-            decoder.decode(dictionary);
-        }
+        return decodeJB2Image(data, dict == null ? null : decodeJB2Dict(dict));
+    }
 
+    /**
+     * Returns a JB2-decoded shape dictionary
+     *
+     * @param dict the {@code Djbz} chunk (shape dictionary) data
+     * @return the JB2-decoded shape dictionary
+     */
+    public static JB2Dict decodeJB2Dict(byte[] dict) {
+        return decodeJB2Dict(ByteBuffer.wrap(dict));
+    }
+
+    /**
+     * Returns a JB2-decoded shape dictionary
+     *
+     * @param dict the {@code Djbz} chunk (shape dictionary) data, e.g. a slice of a memory-mapped file
+     * @return the JB2-decoded shape dictionary
+     */
+    public static JB2Dict decodeJB2Dict(ByteBuffer dict) {
+        JB2Dict dictionary = new JB2Dict();
+        JB2CodecDecoder decoder = new JB2CodecDecoder(dict);
+        decoder.decode(dictionary);
+
+        return dictionary;
+    }
+
+    /**
+     * Returns a JB2-decoded image
+     *
+     * @param data the {@code Sjbz} chunk data
+     * @param dictionary the decoded shape dictionary; may be {@code null}. It is not modified,
+     *                   so it can be shared by the images which are decoded at the same time.
+     * @return the JB2-decoded image
+     */
+    public static JB2Image decodeJB2Image(byte[] data, JB2Dict dictionary) {
+        return decodeJB2Image(ByteBuffer.wrap(data), dictionary);
+    }
+
+    /**
+     * Returns a JB2-decoded image
+     *
+     * @param data the {@code Sjbz} chunk data, e.g. a slice of a memory-mapped file
+     * @param dictionary the decoded shape dictionary; may be {@code null}
+     * @return the JB2-decoded image
+     */
+    public static JB2Image decodeJB2Image(ByteBuffer data, JB2Dict dictionary) {
         JB2Image image = new JB2Image();
         image.setInheritedDictionary(dictionary);
 
-        JB2CodecDecoder decoder = new JB2CodecDecoder(new ByteArrayInputStream(data));
+        JB2CodecDecoder decoder = new JB2CodecDecoder(data);
         decoder.decode(image);
 
         return image;
@@ -323,6 +372,17 @@ public final class ImageUtils {
      * @return an IW44-decoded image
      */
     public static IW44Image decodeIW44Image(List<byte[]> data) {
+        return decodeIW44Buffers(data.stream().map(ByteBuffer::wrap).toList());
+    }
+
+    /**
+     * Returns an IW44-decoded image
+     *
+     * @param data a list of IW44 chunk data (e.g. slices of a memory-mapped file) that belong to the same
+     *             parent chunk and have the same IW44 chunk ID
+     * @return an IW44-decoded image
+     */
+    public static IW44Image decodeIW44Buffers(List<ByteBuffer> data) {
         final IW44Image image = new IW44Image();
         data.forEach(image::decode_chunk);
         image.close_codec();
@@ -19,13 +19,10 @@ package com.sternkn.djvu.utils;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 
-import static com.sternkn.djvu.gui.view_model.MainViewModel.APP_NAME;
+import static com.sternkn.djvu.utils.AppDirectories.getLogDir;
 
 public final class LogUtils {
-    private static final String OS = System.getProperty("os.name", "").toLowerCase();
-    private static final String USER_HOME = System.getProperty("user.home");
 
     private LogUtils() {
     }
@@ -41,28 +38,4 @@ public final class LogUtils {
 
         System.setProperty("djvu.viewer.log.dir", logDir.toString());
     }
-
-    private static Path getLogDir() {
-        if (OS.contains("mac")) {
-            return Paths.get(USER_HOME, "Library", "Logs", APP_NAME);
-        }
-
-        if (OS.contains("win")) {
-            String localAppData = System.getenv("LOCALAPPDATA");
-            if (StringUtils.isBlank(localAppData)) {
-                return Paths.get(USER_HOME, "AppData", "Local", APP_NAME, "Logs");
-            }
-            else {
-                return Paths.get(localAppData, APP_NAME, "Logs");
-            }
-        }
-
-        String xdgStateHome = System.getenv("XDG_STATE_HOME");
-        if (StringUtils.isBlank(xdgStateHome)) {
-            return Paths.get(USER_HOME, ".local", "state", APP_NAME, "logs");
-        }
-        else {
-            return Paths.get(xdgStateHome, APP_NAME, "logs");
-        }
-    }
 }
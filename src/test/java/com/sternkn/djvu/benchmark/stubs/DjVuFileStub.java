@@ -20,6 +20,7 @@ package com.sternkn.djvu.benchmark.stubs;
 import com.sternkn.djvu.file.DjVuFile;
 import com.sternkn.djvu.file.chunks.Chunk;
 import com.sternkn.djvu.file.chunks.ChunkId;
+import com.sternkn.djvu.file.chunks.ComponentInfo;
 import com.sternkn.djvu.file.chunks.DirectoryChunk;
 import com.sternkn.djvu.file.chunks.NavmChunk;
 
@@ -39,6 +40,11 @@ public class DjVuFileStub implements DjVuFile {
         return List.of();
     }
 
+    @Override
+    public List<Chunk> getChildren(Chunk chunk) {
+        return List.of();
+    }
+
     @Override
     public DirectoryChunk getDirectoryChunk() {
         return null;
@@ -49,6 +55,11 @@ public class DjVuFileStub implements DjVuFile {
         return Optional.empty();
     }
 
+    @Override
+    public long getComponentOffset(ComponentInfo component) {
+        return component.getOffset();
+    }
+
     @Override
     public Chunk getChunkById(long chunkId) {
         return null;
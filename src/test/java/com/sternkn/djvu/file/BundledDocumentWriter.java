@@ -0,0 +1,216 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file;
+
+import com.sternkn.djvu.file.coders.BSByteOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Writes small synthetic multipage documents (FORM:DJVM with DIRM, optional NAVM and components)
+    which are used to test the file readers. The document is either bundled into one file
+    or indirect: an index file and one file per component.
+ */
+public class BundledDocumentWriter {
+
+    public static final int INCLUDED = 0;
+    public static final int PAGE = 1;
+
+    private static final int ROOT_DATA_OFFSET = 16;
+
+    private final List<Component> components = new ArrayList<>();
+    private final List<Long> offsets = new ArrayList<>();
+    private byte[] navigationMenu;
+
+    private record Component(String id, int flag, String formType, List<String> chunkIds, List<byte[]> chunks) {
+    }
+
+    public BundledDocumentWriter addComponent(String id, int flag, String formType) {
+        components.add(new Component(id, flag, formType, new ArrayList<>(), new ArrayList<>()));
+        return this;
+    }
+
+    public BundledDocumentWriter addChunk(String chunkId, byte[] data) {
+        Component component = components.getLast();
+        component.chunkIds().add(chunkId);
+        component.chunks().add(data);
+        return this;
+    }
+
+    public BundledDocumentWriter setNavigationMenu(byte[] data) {
+        this.navigationMenu = data;
+        return this;
+    }
+
+    /**
+     * @return the offsets of the component FORM chunks (as they are stored in DIRM) after the last write
+     */
+    public List<Long> getOffsets() {
+        return offsets;
+    }
+
+    public File write(File directory, String fileName) throws IOException {
+        File file = new File(directory, fileName);
+        Files.write(file.toPath(), toByteArray());
+        return file;
+    }
+
+    /**
+     * Writes the indirect document: the index file and the component files named by the component ids.
+     *
+     * @return the index file
+     */
+    public File writeIndirect(File directory, String indexName) throws IOException {
+        List<byte[]> forms = encodeForms();
+        for (int ind = 0; ind < components.size(); ind++) {
+            File componentFile = new File(directory, components.get(ind).id());
+            Files.write(componentFile.toPath(), document(forms.get(ind)));
+        }
+
+        ByteArrayOutputStream directoryData = new ByteArrayOutputStream();
+        directoryData.write(1);
+        directoryData.write(components.size() >>> 8);
+        directoryData.write(components.size());
+        directoryData.writeBytes(encodeDirectoryData());
+
+        File file = new File(directory, indexName);
+        Files.write(file.toPath(), document(dataChunk("FORM", rootData(directoryData.toByteArray(), List.of()))));
+        return file;
+    }
+
+    public byte[] toByteArray() throws IOException {
+        List<byte[]> forms = encodeForms();
+
+        byte[] bzzData = encodeDirectoryData();
+        int directorySize = 3 + 4 * components.size() + bzzData.length;
+
+        long offset = ROOT_DATA_OFFSET + 8 + align(directorySize);
+        if (navigationMenu != null) {
+            offset += 8 + align(navigationMenu.length);
+        }
+
+        offsets.clear();
+        for (byte[] form : forms) {
+            offsets.add(offset);
+            offset += form.length;
+        }
+
+        ByteArrayOutputStream directory = new ByteArrayOutputStream();
+        DataOutputStream stream = new DataOutputStream(directory);
+        stream.writeByte(0x80 | 1);
+        stream.writeShort(components.size());
+        for (long componentOffset : offsets) {
+            stream.writeInt((int) componentOffset);
+        }
+        stream.write(bzzData);
+
+        return document(dataChunk("FORM", rootData(directory.toByteArray(), forms)));
+    }
+
+    private List<byte[]> encodeForms() {
+        List<byte[]> forms = new ArrayList<>();
+        for (Component component : components) {
+            ByteArrayOutputStream form = new ByteArrayOutputStream();
+            form.writeBytes(chunkId(component.formType()));
+            for (int ind = 0; ind < component.chunks().size(); ind++) {
+                form.writeBytes(dataChunk(component.chunkIds().get(ind), component.chunks().get(ind)));
+            }
+            forms.add(dataChunk("FORM", form.toByteArray()));
+        }
+        return forms;
+    }
+
+    private byte[] rootData(byte[] directoryData, List<byte[]> forms) {
+        ByteArrayOutputStream root = new ByteArrayOutputStream();
+        root.writeBytes(chunkId("DJVM"));
+        root.writeBytes(dataChunk("DIRM", directoryData));
+        if (navigationMenu != null) {
+            root.writeBytes(dataChunk("NAVM", navigationMenu));
+        }
+        forms.forEach(root::writeBytes);
+        return root.toByteArray();
+    }
+
+    private static byte[] document(byte[] form) {
+        ByteArrayOutputStream document = new ByteArrayOutputStream();
+        document.writeBytes(chunkId("AT&T"));
+        document.writeBytes(form);
+        return document.toByteArray();
+    }
+
+    private byte[] encodeDirectoryData() throws IOException {
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        for (byte[] form : formSizes()) {
+            plain.writeBytes(form);
+        }
+        for (Component component : components) {
+            plain.write(component.flag());
+        }
+        for (Component component : components) {
+            plain.writeBytes(component.id().getBytes(StandardCharsets.UTF_8));
+            plain.write(0);
+        }
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        try (BSByteOutputStream bzz = new BSByteOutputStream(encoded, 10)) {
+            bzz.write(plain.toByteArray());
+        }
+        return encoded.toByteArray();
+    }
+
+    private List<byte[]> formSizes() {
+        List<byte[]> sizes = new ArrayList<>();
+        for (Component component : components) {
+            int size = 12;
+            for (byte[] chunk : component.chunks()) {
+                size += 8 + align(chunk.length);
+            }
+            sizes.add(new byte[] {(byte) (size >> 16), (byte) (size >> 8), (byte) size});
+        }
+        return sizes;
+    }
+
+    public static byte[] dataChunk(String id, byte[] data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.writeBytes(chunkId(id));
+        bytes.write(data.length >>> 24);
+        bytes.write(data.length >>> 16);
+        bytes.write(data.length >>> 8);
+        bytes.write(data.length);
+        bytes.writeBytes(data);
+        if (data.length % 2 == 1) {
+            bytes.write(0);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] chunkId(String id) {
+        return id.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static int align(int size) {
+        return size + size % 2;
+    }
+}
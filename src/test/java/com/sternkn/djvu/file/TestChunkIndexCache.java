@@ -0,0 +1,220 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file;
+
+import com.sternkn.djvu.file.chunks.Chunk;
+import com.sternkn.djvu.file.coders.TestSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static com.sternkn.djvu.file.BundledDocumentWriter.INCLUDED;
+import static com.sternkn.djvu.file.BundledDocumentWriter.PAGE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestChunkIndexCache extends TestSupport {
+
+    private final BundledDocumentWriter writer = new BundledDocumentWriter()
+        .setNavigationMenu(readByteBuffer("NAVM_1.data"))
+        .addComponent("Ab0009_0001.djbz", INCLUDED, "DJVI")
+            .addChunk("Djbz", readByteBuffer("Abert_Djbz_3.data"))
+        .addComponent("Ab0001_0001.djvu", PAGE, "DJVU")
+            .addChunk("INFO", readByteBuffer("INFO_13.data"))
+            .addChunk("Sjbz", readByteBuffer("Abert_Sjbz_40.data"))
+        .addComponent("Ab0002_0001.djvu", PAGE, "DJVU")
+            .addChunk("INFO", readByteBuffer("INFO_18.data"))
+            .addChunk("BG44", readByteBuffer("BG44_8.data"));
+
+    @Test
+    public void testStoreAndLoad(@TempDir File tempDir) throws IOException {
+        File file = writer.write(tempDir, "document.djvu");
+        ChunkIndexCache cache = new ChunkIndexCache(tempDir.toPath().resolve("index"));
+
+        assertTrue(cache.load(file, ChunkDataMode.IN_MEMORY).isEmpty());
+
+        DjVuFile expected;
+        try (DjVuFileReader reader = new DjVuFileReader(file)) {
+            expected = reader.readFile(cache);
+        }
+
+        for (ChunkDataMode dataMode : ChunkDataMode.values()) {
+            Optional<DjVuFile> actual = cache.load(file, dataMode);
+            assertTrue(actual.isPresent());
+            assertDocument(expected, actual.get());
+            assertEquals(dataMode == ChunkDataMode.MEMORY_MAPPED, actual.get().getChunks().get(1).isMemoryMapped());
+        }
+    }
+
+    @Test
+    public void testModifiedFile(@TempDir File tempDir) throws IOException {
+        File file = writer.write(tempDir, "document.djvu");
+        ChunkIndexCache cache = new ChunkIndexCache(tempDir.toPath().resolve("index"));
+
+        try (DjVuFileReader reader = new DjVuFileReader(file)) {
+            cache.store(file, reader.readFile());
+        }
+        assertTrue(cache.load(file, ChunkDataMode.IN_MEMORY).isPresent());
+
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(file.lastModified() + 2000));
+        assertTrue(cache.load(file, ChunkDataMode.IN_MEMORY).isEmpty());
+
+        try (DjVuFileReader reader = new DjVuFileReader(file)) {
+            reader.readFile(cache);
+        }
+        assertTrue(cache.load(file, ChunkDataMode.IN_MEMORY).isPresent());
+    }
+
+    @Test
+    public void testCorruptedIndex(@TempDir File tempDir) throws IOException {
+        File file = writer.write(tempDir, "document.djvu");
+        Path indexDir = tempDir.toPath().resolve("index");
+        ChunkIndexCache cache = new ChunkIndexCache(indexDir);
+
+        try (DjVuFileReader reader = new DjVuFileReader(file)) {
+            cache.store(file, reader.readFile());
+        }
+
+        List<Path> indexFiles;
+        try (var files = Files.list(indexDir)) {
+            indexFiles = files.toList();
+        }
+        assertEquals(1, indexFiles.size());
+
+        byte[] index = Files.readAllBytes(indexFiles.getFirst());
+        Files.write(indexFiles.getFirst(), Arrays.copyOf(index, index.length / 2));
+        assertFalse(cache.load(file, ChunkDataMode.IN_MEMORY).isPresent());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsRemoved(@TempDir File tempDir) throws IOException {
+        File first = writer.write(tempDir, "first.djvu");
+        File second = writer.write(tempDir, "second.djvu");
+        File third = writer.write(tempDir, "third.djvu");
+        Path indexDir = tempDir.toPath().resolve("index");
+        ChunkIndexCache cache = new ChunkIndexCache(indexDir, 2);
+
+        for (File file : List.of(first, second)) {
+            try (DjVuFileReader reader = new DjVuFileReader(file)) {
+                cache.store(file, reader.readFile());
+            }
+        }
+
+        FileTime lastUse = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        try (var files = Files.list(indexDir)) {
+            for (Path indexFile : files.toList()) {
+                Files.setLastModifiedTime(indexFile, lastUse);
+            }
+        }
+        assertTrue(cache.load(first, ChunkDataMode.IN_MEMORY).isPresent());
+
+        try (DjVuFileReader reader = new DjVuFileReader(third)) {
+            cache.store(third, reader.readFile());
+        }
+
+        try (var files = Files.list(indexDir)) {
+            assertEquals(2, files.count());
+        }
+        assertTrue(cache.load(first, ChunkDataMode.IN_MEMORY).isPresent());
+        assertFalse(cache.load(second, ChunkDataMode.IN_MEMORY).isPresent());
+        assertTrue(cache.load(third, ChunkDataMode.IN_MEMORY).isPresent());
+    }
+
+    @Test
+    public void testStoreHeaderAndLoadLazily(@TempDir File tempDir) throws IOException {
+        File file = writer.write(tempDir, "document.djvu");
+        ChunkIndexCache cache = new ChunkIndexCache(tempDir.toPath().resolve("index"));
+
+        DjVuFile expected;
+        try (DjVuFileReader reader = new DjVuFileReader(file)) {
+            expected = reader.readFileLazily(cache);
+        }
+
+        // a header entry is not enough to restore all chunks
+        assertTrue(cache.load(file, ChunkDataMode.IN_MEMORY).isEmpty());
+
+        Optional<DjVuFile> cachedFile = cache.loadLazily(file, ChunkDataMode.IN_MEMORY);
+        assertTrue(cachedFile.isPresent());
+        assertDocument(expected, cachedFile.get());
+    }
+
+    @Test
+    public void testLoadLazilyFromCompleteEntry(@TempDir File tempDir) throws IOException {
+        File file = writer.write(tempDir, "document.djvu");
+        ChunkIndexCache cache = new ChunkIndexCache(tempDir.toPath().resolve("index"));
+
+        DjVuFile expected;
+        try (DjVuFileReader reader = new DjVuFileReader(file)) {
+            reader.readFile(cache);
+            expected = reader.readFileLazily();
+        }
+
+        Optional<DjVuFile> cachedFile = cache.loadLazily(file, ChunkDataMode.MEMORY_MAPPED);
+        assertTrue(cachedFile.isPresent());
+        assertDocument(expected, cachedFile.get());
+    }
+
+    @Test
+    public void testLoadIndirectDocumentLazily(@TempDir File tempDir) throws IOException {
+        File file = writer.writeIndirect(tempDir, "index.djvu");
+        ChunkIndexCache cache = new ChunkIndexCache(tempDir.toPath().resolve("index"));
+
+        DjVuFile expected;
+        try (DjVuFileReader reader = new DjVuFileReader(file)) {
+            expected = reader.readFileLazily(cache);
+        }
+
+        Optional<DjVuFile> cachedFile = cache.loadLazily(file, ChunkDataMode.IN_MEMORY);
+        assertTrue(cachedFile.isPresent());
+        assertFalse(cachedFile.get().getDirectoryChunk().isBundled());
+        assertDocument(expected, cachedFile.get());
+    }
+
+    private void assertDocument(DjVuFile expected, DjVuFile actual) {
+        List<Chunk> expectedChunks = expected.getChunks();
+        List<Chunk> actualChunks = actual.getChunks();
+        assertEquals(expectedChunks.size(), actualChunks.size());
+        for (int ind = 0; ind < expectedChunks.size(); ind++) {
+            assertEquals(expectedChunks.get(ind).toString(), actualChunks.get(ind).toString());
+            assertArrayEquals(expectedChunks.get(ind).getData(), actualChunks.get(ind).getData());
+        }
+
+        assertEquals(expected.getDirectoryChunk().isBundled(), actual.getDirectoryChunk().isBundled());
+        assertEquals(expected.getDirectoryChunk().getVersion(), actual.getDirectoryChunk().getVersion());
+        assertEquals(expected.getDirectoryChunk().getComponents(), actual.getDirectoryChunk().getComponents());
+        assertEquals(expected.getNavigationMenu().orElseThrow().getBookmarks(),
+            actual.getNavigationMenu().orElseThrow().getBookmarks());
+
+        Chunk page = actual.getChunkByOffset(getPageOffset(actual));
+        assertEquals(expected.getChunkByOffset(getPageOffset(expected)).getId(), page.getId());
+    }
+
+    private static long getPageOffset(DjVuFile djvuFile) {
+        return djvuFile.getComponentOffset(djvuFile.getDirectoryChunk().getComponents().get(2));
+    }
+}
@@ -275,6 +275,26 @@ public class TestDjVuFileImpl extends TestSupport {
         assertEquals(List.of(bg1, bg2, bg3), bgChunks);
     }
 
+    @Test
+    public void testGetAllPageChunksWithSameChunkIdNotFound() {
+        Chunk root = createChunk(1L, ChunkId.FORM, SecondaryChunkId.DJVM, 12L);
+        Chunk dir = readChunk(2L, "DIRM_with_shared_annotation.data", ChunkId.DIRM, root, 24L);
+
+        Chunk page = createChunk(3L, ChunkId.FORM, SecondaryChunkId.DJVU, root, 68522L);
+        Chunk info = createChunk(4L, ChunkId.INFO, null, page, 68576L);
+
+        Chunk otherPage = createChunk(5L, ChunkId.FORM, SecondaryChunkId.DJVU, root, 69522L);
+        Chunk otherInfo = createChunk(6L, ChunkId.INFO, null, otherPage, 69576L);
+        Chunk bg = createChunk(7L, ChunkId.BG44, null, otherPage, 69786L);
+
+        List<Chunk> chunks = List.of(root,  dir, page, info, otherPage, otherInfo, bg);
+        DjVuFile file = new DjVuFileImpl(chunks);
+
+        assertEquals(List.of(), file.getAllPageChunksWithSameChunkId(createChunk(8L, ChunkId.BG44, null, page, 1L)));
+        assertEquals(Map.of(ChunkId.INFO, List.of(info)), file.getAllPageChunks(info));
+        assertEquals(Map.of(), file.getAllPageChunks(root));
+    }
+
     private Chunk createChunk(Long id, ChunkId chunkId, SecondaryChunkId secondaryId, Long offsetStart) {
         return createChunk(id, chunkId, secondaryId, null, offsetStart);
     }
@@ -0,0 +1,336 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file;
+
+import com.sternkn.djvu.file.chunks.Chunk;
+import com.sternkn.djvu.file.chunks.ChunkId;
+import com.sternkn.djvu.file.chunks.ComponentInfo;
+import com.sternkn.djvu.file.chunks.SecondaryChunkId;
+import com.sternkn.djvu.file.coders.TestSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.sternkn.djvu.file.BundledDocumentWriter.INCLUDED;
+import static com.sternkn.djvu.file.BundledDocumentWriter.PAGE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestDjVuFileReader extends TestSupport {
+
+    private static final String DICTIONARY_ID = "Ab0009_0001.djbz";
+
+    private final BundledDocumentWriter writer = new BundledDocumentWriter()
+        .setNavigationMenu(readByteBuffer("NAVM_1.data"))
+        .addComponent(DICTIONARY_ID, INCLUDED, "DJVI")
+            .addChunk("Djbz", readByteBuffer("Abert_Djbz_3.data"))
+        .addComponent("Ab0001_0001.djvu", PAGE, "DJVU")
+            .addChunk("INFO", readByteBuffer("INFO_13.data"))
+            .addChunk("INCL", DICTIONARY_ID.getBytes(StandardCharsets.UTF_8))
+            .addChunk("Sjbz", readByteBuffer("Abert_Sjbz_40.data"))
+            .addChunk("TXTz", readByteBuffer("Abert_TXTz_41.data"))
+        .addComponent("Ab0002_0001.djvu", PAGE, "DJVU")
+            .addChunk("INFO", readByteBuffer("INFO_18.data"))
+            .addChunk("BG44", readByteBuffer("BG44_8.data"))
+            .addChunk("BG44", readByteBuffer("BG44_9.data"));
+
+    @Test
+    public void testReadFileInMemory(@TempDir File tempDir) throws IOException {
+        File file = writer.write(tempDir, "document.djvu");
+
+        try (DjVuFileReader reader = new DjVuFileReader(file)) {
+            DjVuFile djvuFile = reader.readFile();
+            assertDocument(djvuFile.getChunks());
+            assertFalse(djvuFile.getChunks().get(1).isMemoryMapped());
+        }
+    }
+
+    @Test
+    public void testReadFileMemoryMapped(@TempDir File tempDir) throws IOException {
+        File file = writer.write(tempDir, "document.djvu");
+
+        DjVuFile djvuFile;
+        try (DjVuFileReader reader = new DjVuFileReader(file, ChunkDataMode.MEMORY_MAPPED)) {
+            djvuFile = reader.readFile();
+        }
+
+        List<Chunk> chunks = djvuFile.getChunks();
+        assertDocument(chunks);
+        assertTrue(chunks.get(1).isMemoryMapped());
+        assertNull(chunks.get(0).getData());
+        assertEquals(3, djvuFile.getDirectoryChunk().getNumberOfComponents());
+        assertTrue(djvuFile.getDirectoryChunk().isMemoryMapped());
+        assertTrue(djvuFile.getNavigationMenu().isPresent());
+    }
+
+    @Test
+    public void testReadFileLazily(@TempDir File tempDir) throws IOException {
+        File file = writer.write(tempDir, "document.djvu");
+        List<Long> offsets = writer.getOffsets();
+
+        DjVuFile djvuFile;
+        try (DjVuFileReader reader = new DjVuFileReader(file, ChunkDataMode.MEMORY_MAPPED)) {
+            djvuFile = reader.readFileLazily();
+        }
+
+        assertEquals(3, djvuFile.getDirectoryChunk().getNumberOfComponents());
+        assertTrue(djvuFile.getNavigationMenu().isPresent());
+        assertThrows(DjVuFileException.class, () -> djvuFile.getChunkById(3L));
+
+        Chunk info = djvuFile.getChunkByOffset(offsets.get(2));
+        assertEquals(ChunkId.INFO, info.getChunkId());
+        assertArrayEquals(readByteBuffer("INFO_18.data"), info.getData());
+        assertEquals(info, djvuFile.getChunkById(info.getId()));
+
+        Map<ChunkId, List<Chunk>> pageChunks = djvuFile.getAllPageChunks(info);
+        assertEquals(Set.of(ChunkId.INFO, ChunkId.BG44), pageChunks.keySet());
+        assertEquals(2, pageChunks.get(ChunkId.BG44).size());
+        assertArrayEquals(readByteBuffer("BG44_9.data"), pageChunks.get(ChunkId.BG44).get(1).getData());
+
+        Chunk mask = djvuFile.getAllPageChunks(djvuFile.getChunkByOffset(offsets.get(1))).get(ChunkId.Sjbz).getFirst();
+        Chunk dictionary = djvuFile.findSharedShapeChunk(mask);
+        assertArrayEquals(readByteBuffer("Abert_Djbz_3.data"), dictionary.getData());
+        assertEquals(SecondaryChunkId.DJVI, dictionary.getParent().getSecondaryChunkId());
+
+        assertDocument(djvuFile.getChunks());
+    }
+
+    @Test
+    public void testGetChildrenLazily(@TempDir File tempDir) throws IOException {
+        File file = writer.write(tempDir, "document.djvu");
+
+        DjVuFile expected;
+        DjVuFile actual;
+        try (DjVuFileReader reader = new DjVuFileReader(file)) {
+            expected = reader.readFile();
+            actual = reader.readFileLazily();
+        }
+
+        Chunk root = actual.getDirectoryChunk().getParent();
+        List<Chunk> components = actual.getChildren(root);
+        assertEquals(List.of("DIRM", "NAVM", "FORM:DJVI", "FORM:DJVU", "FORM:DJVU"),
+                     components.stream().map(Chunk::getCompositeChunkId).toList());
+        // only the root chunks of the components have been read
+        assertThrows(DjVuFileException.class, () -> actual.getChunkById(components.size() + 1));
+
+        Chunk page = components.get(3);
+        List<Chunk> pageChunks = actual.getChildren(page);
+        List<Chunk> expectedChunks = expected.getChildren(expected.getChunks().get(5));
+        assertEquals(List.of("INFO", "INCL", "Sjbz", "TXTz"),
+                     pageChunks.stream().map(Chunk::getCompositeChunkId).toList());
+        assertEquals(expectedChunks.stream().map(Chunk::getOffsetStart).toList(),
+                     pageChunks.stream().map(Chunk::getOffsetStart).toList());
+        assertEquals(page, pageChunks.getFirst().getParent());
+        assertArrayEquals(readByteBuffer("Abert_TXTz_41.data"), pageChunks.getLast().getData());
+
+        assertThrows(DjVuFileException.class, () -> actual.getChunkById(components.size() + pageChunks.size() + 1));
+    }
+
+    @Test
+    public void testReadFileLazilyInMemory(@TempDir File tempDir) throws IOException {
+        File file = writer.write(tempDir, "document.djvu");
+
+        try (DjVuFileReader reader = new DjVuFileReader(file)) {
+            DjVuFile djvuFile = reader.readFileLazily();
+
+            Chunk info = djvuFile.getChunkByOffset(writer.getOffsets().get(1));
+            assertFalse(info.isMemoryMapped());
+            assertArrayEquals(readByteBuffer("INFO_13.data"), info.getData());
+        }
+    }
+
+    @Test
+    public void testReadFileInParallel(@TempDir File tempDir) throws IOException {
+        File file = writer.write(tempDir, "document.djvu");
+
+        List<Chunk> expected;
+        try (DjVuFileReader reader = new DjVuFileReader(file)) {
+            expected = reader.readFile().getChunks();
+        }
+
+        for (ChunkDataMode dataMode : ChunkDataMode.values()) {
+            try (DjVuFileReader reader = new DjVuFileReader(file, dataMode)) {
+                List<Chunk> actual = reader.readFileInParallel().getChunks();
+
+                assertDocument(actual);
+                assertSameChunks(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testReadIndirectFile(@TempDir File tempDir) throws IOException {
+        File index = writer.writeIndirect(tempDir, "index.djvu");
+
+        for (ChunkDataMode dataMode : ChunkDataMode.values()) {
+            DjVuFile djvuFile;
+            try (DjVuFileReader reader = new DjVuFileReader(index, dataMode)) {
+                djvuFile = reader.readFile();
+            }
+
+            assertFalse(djvuFile.getDirectoryChunk().isBundled());
+            assertTrue(djvuFile.getNavigationMenu().isPresent());
+
+            List<ComponentInfo> components = djvuFile.getDirectoryChunk().getComponents();
+            assertEquals(0L, components.get(2).getOffset());
+
+            Chunk info = djvuFile.getChunkByOffset(djvuFile.getComponentOffset(components.get(2)));
+            assertArrayEquals(readByteBuffer("INFO_18.data"), info.getData());
+            assertEquals(2, djvuFile.getAllPageChunks(info).get(ChunkId.BG44).size());
+
+            Chunk page = djvuFile.getChunkByOffset(djvuFile.getComponentOffset(components.get(1)));
+            Chunk mask = djvuFile.getAllPageChunks(page).get(ChunkId.Sjbz).getFirst();
+            assertArrayEquals(readByteBuffer("Abert_Djbz_3.data"), djvuFile.findSharedShapeChunk(mask).getData());
+
+            assertDocument(djvuFile.getChunks());
+        }
+    }
+
+    @Test
+    public void testReadIndirectFileLazily(@TempDir File tempDir) throws IOException {
+        File index = writer.writeIndirect(tempDir, "index.djvu");
+        assertTrue(new File(tempDir, "Ab0001_0001.djvu").delete());
+
+        try (DjVuFileReader reader = new DjVuFileReader(index)) {
+            DjVuFile djvuFile = reader.readFileLazily();
+            List<ComponentInfo> components = djvuFile.getDirectoryChunk().getComponents();
+            assertEquals(3, components.size());
+
+            Chunk info = djvuFile.getChunkByOffset(djvuFile.getComponentOffset(components.get(2)));
+            assertArrayEquals(readByteBuffer("INFO_18.data"), info.getData());
+            assertEquals(SecondaryChunkId.DJVU, info.getParent().getSecondaryChunkId());
+            assertEquals(djvuFile.getChunkById(0), info.getParent().getParent());
+
+            long missingPageOffset = djvuFile.getComponentOffset(components.get(1));
+            assertThrows(DjVuFileException.class, () -> djvuFile.getChunkByOffset(missingPageOffset));
+        }
+    }
+
+    @Test
+    public void testGetChildrenOfIndirectFile(@TempDir File tempDir) throws IOException {
+        File index = writer.writeIndirect(tempDir, "index.djvu");
+
+        for (ChunkDataMode dataMode : ChunkDataMode.values()) {
+            DjVuFile djvuFile;
+            try (DjVuFileReader reader = new DjVuFileReader(index, dataMode)) {
+                djvuFile = reader.readFileLazily();
+            }
+
+            Chunk root = djvuFile.getDirectoryChunk().getParent();
+            List<Chunk> components = djvuFile.getChildren(root);
+            assertEquals(List.of("DIRM", "NAVM", "FORM:DJVI", "FORM:DJVU", "FORM:DJVU"),
+                         components.stream().map(Chunk::getCompositeChunkId).toList());
+
+            List<Chunk> pageChunks = djvuFile.getChildren(components.getLast());
+            assertEquals(List.of("INFO", "BG44", "BG44"),
+                         pageChunks.stream().map(Chunk::getCompositeChunkId).toList());
+            assertEquals(components.getLast(), pageChunks.getFirst().getParent());
+            assertArrayEquals(readByteBuffer("INFO_18.data"), pageChunks.getFirst().getData());
+            assertArrayEquals(readByteBuffer("BG44_9.data"), pageChunks.getLast().getData());
+        }
+    }
+
+    @Test
+    public void testReadFileCompact(@TempDir File tempDir) throws IOException {
+        File file = writer.write(tempDir, "document.djvu");
+        List<Long> offsets = writer.getOffsets();
+
+        DjVuFile expected;
+        DjVuFile actual;
+        try (DjVuFileReader reader = new DjVuFileReader(file)) {
+            expected = reader.readFile();
+            actual = reader.readFileCompact();
+        }
+
+        assertSameChunks(expected.getChunks(), actual.getChunks());
+        assertDocument(actual.getChunks());
+        assertTrue(actual.getChunks().get(1).isMemoryMapped());
+        assertSameChunks(expected.getChildren(expected.getChunks().get(5)),
+                         actual.getChildren(actual.getChunks().get(5)));
+        assertEquals(expected.getDirectoryChunk().getComponents(), actual.getDirectoryChunk().getComponents());
+        assertEquals(expected.getNavigationMenu(), actual.getNavigationMenu());
+        assertEquals(expected.getChunkById(12), actual.getChunkById(12));
+        assertThrows(DjVuFileException.class, () -> actual.getChunkById(14));
+
+        Chunk info = actual.getChunkByOffset(offsets.get(2));
+        assertEquals(expected.getChunkByOffset(offsets.get(2)), info);
+        Map<ChunkId, List<Chunk>> pageChunks = actual.getAllPageChunks(info);
+        assertEquals(Set.of(ChunkId.INFO, ChunkId.BG44), pageChunks.keySet());
+        assertSameChunks(expected.getAllPageChunksWithSameChunkId(pageChunks.get(ChunkId.BG44).getFirst()),
+            actual.getAllPageChunksWithSameChunkId(pageChunks.get(ChunkId.BG44).getFirst()));
+
+        Chunk mask = actual.getAllPageChunks(actual.getChunkByOffset(offsets.get(1))).get(ChunkId.Sjbz).getFirst();
+        assertArrayEquals(readByteBuffer("Abert_Djbz_3.data"), actual.findSharedShapeChunk(mask).getData());
+    }
+
+    @Test
+    public void testReadFileCompactManyPages(@TempDir File tempDir) throws IOException {
+        BundledDocumentWriter manyPages = new BundledDocumentWriter();
+        for (int page = 0; page < 100; page++) {
+            manyPages.addComponent("page" + page + ".djvu", PAGE, "DJVU")
+                .addChunk("INFO", readByteBuffer("INFO_13.data"))
+                .addChunk("BG44", readByteBuffer("BG44_8.data"));
+        }
+        File file = manyPages.write(tempDir, "document.djvu");
+
+        try (DjVuFileReader reader = new DjVuFileReader(file)) {
+            List<Chunk> expected = reader.readFile().getChunks();
+            DjVuFile actual = reader.readFileCompact();
+            assertSameChunks(expected, actual.getChunks());
+
+            Chunk lastPage = actual.getChunkByOffset(manyPages.getOffsets().getLast());
+            assertEquals(expected.get(expected.size() - 2), lastPage);
+            assertEquals(2, actual.getAllPageChunks(lastPage).size());
+        }
+    }
+
+    private void assertSameChunks(List<Chunk> expected, List<Chunk> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int ind = 0; ind < expected.size(); ind++) {
+            assertEquals(expected.get(ind).toString(), actual.get(ind).toString());
+            assertArrayEquals(expected.get(ind).getData(), actual.get(ind).getData());
+        }
+    }
+
+    private void assertDocument(List<Chunk> chunks) {
+        List<String> chunkIds = chunks.stream().map(Chunk::getCompositeChunkId).toList();
+        assertEquals(List.of("FORM:DJVM", "DIRM", "NAVM", "FORM:DJVI", "Djbz", "FORM:DJVU", "INFO", "INCL",
+            "Sjbz", "TXTz", "FORM:DJVU", "INFO", "BG44", "BG44"), chunkIds);
+
+        Chunk root = chunks.get(0);
+        Chunk page = chunks.get(5);
+        assertEquals(root, chunks.get(1).getParent());
+        assertEquals(root, page.getParent());
+        assertEquals(page, chunks.get(9).getParent());
+        assertEquals(chunks.get(10), chunks.get(13).getParent());
+
+        assertArrayEquals(readByteBuffer("NAVM_1.data"), chunks.get(2).getData());
+        assertArrayEquals(readByteBuffer("Abert_TXTz_41.data"), chunks.get(9).getData());
+        assertArrayEquals(readByteBuffer("BG44_9.data"), chunks.get(13).getData());
+    }
+}
@@ -17,12 +17,21 @@
 */
 package com.sternkn.djvu.file.coders;
 
+import com.sternkn.djvu.file.DjVuFileException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
@@ -104,4 +113,115 @@ public class TestBSByteInputStream extends TestSupport {
             assertArrayEquals(expectedData, data);
         }
     }
+
+    @Test
+    public void testReadIntoBufferRange() {
+        inputStream = readStream("ANTz_137.data");
+
+        BSByteInputStream bsByteInputStream = new BSByteInputStream(inputStream);
+        byte[] buffer = new byte[20];
+
+        assertEquals(10, bsByteInputStream.read(buffer, 5, 10));
+        assertEquals("(maparea \"", new String(buffer, 5, 10, StandardCharsets.UTF_8));
+        assertEquals(0, bsByteInputStream.read(buffer, 0, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> bsByteInputStream.read(buffer, 15, 10));
+    }
+
+    @Test
+    public void testSkipAndAvailable() {
+        inputStream = readStream("ANTz_137.data");
+
+        BSByteInputStream bsByteInputStream = new BSByteInputStream(inputStream);
+        assertEquals(0, bsByteInputStream.available());
+
+        assertEquals('(', bsByteInputStream.read());
+        final int available = bsByteInputStream.available();
+        assertEquals(62, available);
+
+        assertEquals(8, bsByteInputStream.skip(8));
+        assertEquals(available - 8, bsByteInputStream.available());
+        assertEquals('"', bsByteInputStream.read());
+
+        assertEquals(available - 9, bsByteInputStream.skip(1000));
+        assertEquals(-1, bsByteInputStream.read());
+        assertEquals(0, bsByteInputStream.available());
+    }
+
+    @Test
+    public void testReadNBytes() {
+        inputStream = readStream("ANTz_137.data");
+
+        BSByteInputStream bsByteInputStream = new BSByteInputStream(inputStream);
+
+        assertEquals("(maparea", new String(bsByteInputStream.readNBytes(8), StandardCharsets.UTF_8));
+        assertEquals(" \"#463\" \"\" (rect 78 3999 1464 96 ) (border #0000FF ) ) ",
+                     new String(bsByteInputStream.readNBytes(1000), StandardCharsets.UTF_8));
+        assertEquals(0, bsByteInputStream.readNBytes(10).length);
+    }
+
+    @Test
+    public void testTransferTo() throws IOException {
+        inputStream = readStream("DIRM_2.bzz");
+
+        try (InputStream decodedStream = readStream("DIRM_decoded.data")) {
+            BSByteInputStream bsByteInputStream = new BSByteInputStream(inputStream);
+            ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+            byte[] expectedData = decodedStream.readAllBytes();
+
+            assertEquals(expectedData.length, bsByteInputStream.transferTo(target));
+            assertArrayEquals(expectedData, target.toByteArray());
+        }
+    }
+
+    @Test
+    public void testReadAcrossBufferBoundaries() throws IOException {
+        final byte[] data = new byte[45 * 1024];
+        final Random random = new Random(5);
+        for (int ind = 0; ind < data.length; ind++) {
+            data[ind] = (byte) ('a' + random.nextInt(6));
+        }
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new BSByteOutputStream(encoded, 64)) {
+            outputStream.write(data);
+        }
+        inputStream = new ByteArrayInputStream(encoded.toByteArray());
+
+        BSByteInputStream bsByteInputStream = new BSByteInputStream(inputStream);
+        byte[] head = new byte[15000];
+        assertEquals(head.length, bsByteInputStream.read(head));
+        assertArrayEquals(Arrays.copyOf(data, head.length), head);
+        assertEquals(data[head.length] & 0xFF, bsByteInputStream.read());
+
+        byte[] tail = bsByteInputStream.readAllBytes();
+        assertArrayEquals(Arrays.copyOfRange(data, head.length + 1, data.length), tail);
+    }
+
+    @Test
+    public void testPipelinedDecoding() throws IOException {
+        inputStream = readStream("DIRM_2.bzz");
+
+        try (InputStream decodedStream = readStream("DIRM_decoded.data");
+             ExecutorService executor = Executors.newSingleThreadExecutor()) {
+
+            BSByteInputStream bsByteInputStream =
+                new BSByteInputStream(ByteBuffer.wrap(inputStream.readAllBytes()), executor);
+
+            assertArrayEquals(decodedStream.readAllBytes(), bsByteInputStream.readAllBytes());
+            assertEquals(-1, bsByteInputStream.read());
+        }
+    }
+
+    @Test
+    public void testPipelinedDecodingOfCorruptedData() {
+        inputStream = readStream("ANTz_137.data");
+
+        byte[] data = Arrays.copyOf(readByteBuffer("ANTz_137.data"), 12);
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            BSByteInputStream bsByteInputStream = new BSByteInputStream(ByteBuffer.wrap(data), executor);
+
+            assertThrows(DjVuFileException.class, bsByteInputStream::readAllBytes);
+        }
+    }
 }
@@ -20,11 +20,17 @@ package com.sternkn.djvu.file.coders;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 
@@ -68,4 +74,67 @@ public class TestBSByteOutputStream extends TestSupport {
         decodedStream.close();
         inputStream.close();
     }
+
+    @Test
+    public void testSuffixArraySortEncoding() throws IOException {
+        try (InputStream inputStream = readStream("DIRM_2.bzz");
+             InputStream decodedStream = readStream("DIRM_decoded.data")) {
+
+            OutputStream outputStream = new BSByteOutputStream(target, 13, BlockSortAlgorithm.SUFFIX_ARRAY);
+            outputStream.write(decodedStream.readAllBytes());
+            outputStream.close();
+
+            assertArrayEquals(inputStream.readAllBytes(), target.toByteArray());
+        }
+    }
+
+    @Test
+    public void testSeveralBlocksEncoding() throws IOException {
+        final byte[] data = createText(75 * 1024);
+
+        try (OutputStream outputStream = new BSByteOutputStream(target, 10)) {
+            outputStream.write(data, 0, 1000);
+            outputStream.write(Arrays.copyOfRange(data, 1000, data.length));
+        }
+
+        BSByteInputStream inputStream = new BSByteInputStream(new ByteArrayInputStream(target.toByteArray()));
+        assertArrayEquals(data, inputStream.readAllBytes());
+    }
+
+    @Test
+    public void testParallelEncoding() throws IOException {
+        final byte[] data = createText(200 * 1024);
+
+        try (OutputStream outputStream = new BSByteOutputStream(target, 10)) {
+            outputStream.write(data);
+        }
+        final byte[] expected = target.toByteArray();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            ByteArrayOutputStream parallelTarget = new ByteArrayOutputStream();
+            try (OutputStream outputStream =
+                     new BSByteOutputStream(parallelTarget, 10, BlockSortAlgorithm.RADIX_QUICKSORT, executor)) {
+                outputStream.write(data);
+            }
+            assertArrayEquals(expected, parallelTarget.toByteArray());
+
+            BSByteInputStream inputStream = new BSByteInputStream(ByteBuffer.wrap(expected), executor);
+            assertArrayEquals(data, inputStream.readAllBytes());
+        }
+    }
+
+    private static byte[] createText(int size) {
+        final String[] words = {"djvu ", "page ", "text ", "zone ", "line ", "word ", "\n"};
+        final Random random = new Random(7);
+        final byte[] data = new byte[size];
+        int ind = 0;
+        while (ind < size) {
+            for (byte b : words[random.nextInt(words.length)].getBytes(StandardCharsets.UTF_8)) {
+                if (ind < size) {
+                    data[ind++] = b;
+                }
+            }
+        }
+        return data;
+    }
 }
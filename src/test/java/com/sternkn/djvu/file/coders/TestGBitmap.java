@@ -17,9 +17,14 @@
 */
 package com.sternkn.djvu.file.coders;
 
+import com.sternkn.djvu.file.chunks.Color;
 import org.junit.jupiter.api.Test;
 
+import java.util.Collections;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 
 public class TestGBitmap {
@@ -81,7 +86,7 @@ public class TestGBitmap {
         final int width = 12;
         final int border = 4;
 
-        bitmap.init(height, width, border, old_bytes_data, null);
+        bitmap.init(height, width, border, old_bytes_data);
 
         assertEquals(height, bitmap.getHeight());
         assertEquals(width, bitmap.getWidth());
@@ -96,4 +101,113 @@ public class TestGBitmap {
         assertEquals(5, bitmap.getBorder());
         assertArrayEquals(new_bytes_data, bitmap.getBytesData());
     }
+
+    @Test
+    public void testPackedDepth() {
+        final GBitmap bitmap = new GBitmap();
+        bitmap.init(2, 10, 1, new int[] {
+            0, 1, 0, 1, 1, 0, 0, 1, 0, 0, 1,
+            0, 0, 1, 1, 1, 1, 0, 0, 0, 0, 1,
+            0
+        });
+
+        assertEquals(1, bitmap.getDepth());
+        assertEquals(1, getValue(bitmap, 0, 0));
+        assertEquals(0, getValue(bitmap, 0, 1));
+        assertEquals(1, getValue(bitmap, 1, 4));
+        assertEquals(0, getValue(bitmap, 2, 4));
+
+        bitmap.set_grays(5);
+        assertEquals(8, bitmap.getDepth());
+        assertEquals(1, getValue(bitmap, 1, 4));
+
+        setValue(bitmap, 1, 4, 4);
+        assertEquals(4, getValue(bitmap, 1, 4));
+        assertEquals(0, getValue(bitmap, 1, 5));
+    }
+
+    @Test
+    public void testPaletteDepth() {
+        final GBitmap small = new GBitmap(Collections.nCopies(254, new Color(0, 0, 0)));
+        small.init(3, 3, 0);
+        assertEquals(8, small.getDepth());
+
+        final GBitmap large = new GBitmap(Collections.nCopies(1000, new Color(0, 0, 0)));
+        large.init(3, 3, 0);
+        assertEquals(16, large.getDepth());
+
+        setValue(large, 1, 1, 1000);
+        assertEquals(1000, getValue(large, 1, 1));
+        assertEquals(0, getValue(large, 1, 2));
+    }
+
+    @Test
+    public void testCompressAndUncompress() {
+        final GBitmap bitmap = createBitmap(3, 20000);
+        final int[] expected = bitmap.getBytesData();
+
+        bitmap.compress();
+        assertTrue(bitmap.isCompressed());
+        assertArrayEquals(expected, bitmap.getBytesData());
+        assertTrue(bitmap.isCompressed());
+
+        bitmap.uncompress();
+        assertFalse(bitmap.isCompressed());
+        assertArrayEquals(expected, bitmap.getBytesData());
+    }
+
+    @Test
+    public void testBoundingBoxOfCompressedBitmap() {
+        final GBitmap bitmap = createBitmap(7, 11);
+        final LibRect expected = new LibRect();
+        expected.compute_bounding_box(bitmap);
+
+        bitmap.compress();
+        final LibRect actual = new LibRect();
+        actual.compute_bounding_box(bitmap);
+
+        assertEquals(expected.toString(), actual.toString());
+        assertTrue(bitmap.isCompressed());
+    }
+
+    @Test
+    public void testBlitCompressedBitmap() {
+        for (int subsample = 1; subsample <= 3; subsample++) {
+            final GBitmap shape = createBitmap(7, 11);
+            final GBitmap expected = blit(shape, subsample);
+
+            shape.compress();
+            final GBitmap actual = blit(shape, subsample);
+
+            assertArrayEquals(expected.getBytesData(), actual.getBytesData());
+        }
+    }
+
+    private static GBitmap blit(GBitmap shape, int subsample) {
+        final GBitmap bitmap = new GBitmap();
+        bitmap.init(6, 8, 0);
+        bitmap.set_grays(1 + subsample * subsample);
+        bitmap.blit(shape, -2, 3, subsample, null);
+        bitmap.blit(shape, 5, -1, subsample, null);
+        return bitmap;
+    }
+
+    private static GBitmap createBitmap(int height, int width) {
+        final GBitmap bitmap = new GBitmap();
+        bitmap.init(height, width, 2);
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                setValue(bitmap, row, col, (row * col) % 5 == 1 || col > width - 3 ? 1 : 0);
+            }
+        }
+        return bitmap;
+    }
+
+    private static int getValue(GBitmap bitmap, int row, int col) {
+        return BitmapPointer.get(bitmap.rowData(row), bitmap.getDepth(), bitmap.rowOffset(row) + col);
+    }
+
+    private static void setValue(GBitmap bitmap, int row, int col, int value) {
+        BitmapPointer.set(bitmap.rowData(row), bitmap.getDepth(), bitmap.rowOffset(row) + col, value);
+    }
 }
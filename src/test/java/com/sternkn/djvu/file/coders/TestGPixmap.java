@@ -0,0 +1,56 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file.coders;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class TestGPixmap {
+
+    @Test
+    public void testPackedPixels() {
+        GPixmap pixmap = new GPixmap(2, 3);
+        pixmap.setPixel(2, 1, new PixelColor(10, 20, 30));
+        pixmap.setRGB(0, 1, 0xFF123456);
+
+        assertEquals(new PixelColor(10, 20, 30), pixmap.getPixel(2, 1));
+        assertEquals(0x1E140A, pixmap.getRGB(2, 1));
+        assertEquals(new PixelColor(0x56, 0x34, 0x12), pixmap.getPixel(0, 1));
+        assertEquals(PixelColor.BLACK, pixmap.getPixel(0, 0));
+        assertEquals(6, pixmap.getData().length);
+    }
+
+    @Test
+    public void testEquals() {
+        GPixmap pixmap1 = new GPixmap(2, 2);
+        GPixmap pixmap2 = new GPixmap(2, 2);
+        pixmap1.setRGB(1, 1, 0x010203);
+        assertNotEquals(pixmap1, pixmap2);
+
+        pixmap2.setPixel(1, 1, new PixelColor(3, 2, 1));
+        assertEquals(pixmap1, pixmap2);
+        assertEquals(pixmap1.hashCode(), pixmap2.hashCode());
+    }
+
+    @Test
+    public void testYCbCrToRGB() {
+        assertEquals(0x808080, IW44Image.YCbCr_to_RGB(0));
+    }
+}
@@ -17,9 +17,19 @@
 */
 package com.sternkn.djvu.file.coders;
 
+import com.sternkn.djvu.file.DjVuFileException;
+import com.sternkn.djvu.file.chunks.GRectangle;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestIW44Image extends TestSupport {
 
@@ -60,4 +70,118 @@ public class TestIW44Image extends TestSupport {
 
         assertEquals(expectedPixmap, pixmap);
     }
+
+    @Test
+    public void testSubsampledPixmap() {
+        IW44Image image = new IW44Image();
+        image.decode_chunk(readByteBuffer("BG44_test1.data"));
+        image.decode_chunk(readByteBuffer("BG44_test2.data"));
+        image.decode_chunk(readByteBuffer("BG44_test3.data"));
+        image.close_codec();
+
+        GPixmap pixmap = image.get_pixmap();
+        for (int subsample : new int[] {2, 4, 8}) {
+            GPixmap reduced = image.get_pixmap(subsample);
+
+            assertEquals((792 + subsample - 1) / subsample, reduced.getWidth());
+            assertEquals((1115 + subsample - 1) / subsample, reduced.getHeight());
+            assertTrue(averageDifference(pixmap, reduced, subsample) < 2 * subsample);
+        }
+
+        assertThrows(DjVuFileException.class, () -> image.get_pixmap(3));
+    }
+
+    @Test
+    public void testDecodeSlices() {
+        IW44Image image = new IW44Image();
+        int nslices = image.open_chunk(ByteBuffer.wrap(readByteBuffer("BG44_test1.data")));
+
+        assertEquals(5, image.decode_slices(5));
+        assertTrue(image.has_pending_slices());
+        assertEquals(nslices, image.decode_slices(Integer.MAX_VALUE));
+        assertFalse(image.has_pending_slices());
+    }
+
+    @Test
+    public void testProgressiveDecoding() {
+        IW44ProgressiveDecoder decoder = new IW44ProgressiveDecoder(List.of(
+                ByteBuffer.wrap(readByteBuffer("BG44_test1.data")),
+                ByteBuffer.wrap(readByteBuffer("BG44_test2.data")),
+                ByteBuffer.wrap(readByteBuffer("BG44_test3.data"))));
+        GPixmap expectedPixmap = readPixmap("BG44_test.png");
+
+        assertFalse(decoder.decodeSlices(10));
+        GPixmap snapshot = decoder.getPixmap(1);
+        assertEquals(792, snapshot.getWidth());
+        assertEquals(1115, snapshot.getHeight());
+        assertNotEquals(expectedPixmap, snapshot);
+
+        assertFalse(decoder.decodeChunks(1));
+        assertTrue(decoder.decodeSlices(Integer.MAX_VALUE));
+        assertTrue(decoder.isComplete());
+        assertEquals(expectedPixmap, decoder.getPixmap(1));
+    }
+
+    @Test
+    public void testParallelReconstruction() {
+        IW44Image image = new IW44Image();
+        image.decode_chunk(readByteBuffer("BG44_test1.data"));
+        image.decode_chunk(readByteBuffer("BG44_test2.data"));
+        image.decode_chunk(readByteBuffer("BG44_test3.data"));
+        image.close_codec();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(readPixmap("BG44_test.png"), image.get_pixmap(1, pool));
+            assertEquals(image.get_pixmap(2), image.get_pixmap(2, pool));
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testRegionPixmap() {
+        IW44Image image = new IW44Image();
+        image.decode_chunk(readByteBuffer("BG44_test1.data"));
+        image.decode_chunk(readByteBuffer("BG44_test2.data"));
+        image.decode_chunk(readByteBuffer("BG44_test3.data"));
+        image.close_codec();
+
+        for (int subsample : new int[] {1, 2}) {
+            GPixmap pixmap = image.get_pixmap(subsample);
+            List<GRectangle> rects = List.of(
+                    new GRectangle(400 / subsample, 500 / subsample, 460 / subsample, 530 / subsample),
+                    new GRectangle(0, 0, 100 / subsample, 50 / subsample),
+                    new GRectangle(pixmap.getWidth() - 37, pixmap.getHeight() - 300, pixmap.getWidth(), pixmap.getHeight()));
+
+            for (GRectangle rect : rects) {
+                GPixmap region = image.get_pixmap(subsample, rect);
+                assertEquals(rect.getWidth(), region.getWidth());
+                assertEquals(rect.getHeight(), region.getHeight());
+
+                for (int y = 0; y < rect.getHeight(); y++) {
+                    for (int x = 0; x < rect.getWidth(); x++) {
+                        assertEquals(pixmap.getRGB(rect.xmin() + x, rect.ymin() + y), region.getRGB(x, y));
+                    }
+                }
+            }
+        }
+
+        assertThrows(DjVuFileException.class, () -> image.get_pixmap(1, new GRectangle(700, 0, 800, 10)));
+    }
+
+    private static double averageDifference(GPixmap pixmap, GPixmap reduced, int subsample) {
+        long sum = 0;
+        for (int y = 0; y < reduced.getHeight(); y++) {
+            for (int x = 0; x < reduced.getWidth(); x++) {
+                int expected = pixmap.getRGB(x * subsample, y * subsample);
+                int actual = reduced.getRGB(x, y);
+                for (int shift = 0; shift < 24; shift += 8) {
+                    sum += Math.abs(((expected >> shift) & 0xFF) - ((actual >> shift) & 0xFF));
+                }
+            }
+        }
+        return (double) sum / (3L * reduced.getWidth() * reduced.getHeight());
+    }
 }
@@ -176,7 +176,7 @@ public class TestJB2CodecDecoder extends TestSupport {
 
     private GBitmap createBitmap(int width, int height, int[] data) {
         final GBitmap bitmap = new GBitmap();
-        bitmap.init(height, width, 4, data, null);
+        bitmap.init(height, width, 4, data);
 
         return bitmap;
     }
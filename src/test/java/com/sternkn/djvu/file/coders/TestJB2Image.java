@@ -20,11 +20,15 @@ package com.sternkn.djvu.file.coders;
 import com.sternkn.djvu.file.chunks.Chunk;
 import com.sternkn.djvu.file.chunks.ChunkId;
 import com.sternkn.djvu.file.chunks.FGbzChunk;
+import com.sternkn.djvu.file.chunks.GRectangle;
 import com.sternkn.djvu.file.chunks.ImageRotationType;
 import com.sternkn.djvu.utils.PNGPixmap;
 import javafx.scene.image.Image;
 import org.junit.jupiter.api.Test;
 
+import java.util.BitSet;
+import java.util.List;
+
 import static com.sternkn.djvu.utils.ImageUtils.decodeJB2Image;
 import static com.sternkn.djvu.utils.ImageUtils.toImage;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -39,9 +43,8 @@ public class TestJB2Image extends TestSupport {
         assertEquals(4539, bitmap.getHeight());
         assertEquals(2832, bitmap.getWidth());
 
-        BufferPointer row0 = bitmap.getRow(0);
         for (int x = 0; x < bitmap.getWidth(); x++) {
-            int row0x = row0.getValue(x);
+            int row0x = getValue(bitmap, 0, x);
             // 2724 .. 2736
             if (x >= 2724 && x <= 2736) {
                 assertEquals(1, row0x);
@@ -52,6 +55,77 @@ public class TestJB2Image extends TestSupport {
         }
     }
 
+    @Test
+    public void testSubsampledBitmap() {
+        final int subsample = 4;
+        JB2Image image = readImage("Sjbz_16.data", "Djbz_4.data");
+        GBitmap bitmap = image.get_bitmap();
+        GBitmap reduced = image.get_bitmap(subsample);
+
+        assertEquals((4539 + subsample - 1) / subsample, reduced.getHeight());
+        assertEquals((2832 + subsample - 1) / subsample, reduced.getWidth());
+        assertEquals(1 + subsample * subsample, reduced.getGrays());
+
+        for (int y = 0; y < reduced.getHeight(); y++) {
+            for (int x = 0; x < reduced.getWidth(); x++) {
+                int coverage = 0;
+                for (int sy = y * subsample; sy < Math.min((y + 1) * subsample, bitmap.getHeight()); sy++) {
+                    for (int sx = x * subsample; sx < Math.min((x + 1) * subsample, bitmap.getWidth()); sx++) {
+                        coverage += getValue(bitmap, sy, sx);
+                    }
+                }
+
+                assertEquals(coverage, getValue(reduced, y, x));
+            }
+        }
+    }
+
+    @Test
+    public void testRegionBitmap() {
+        JB2Image image = readImage("Sjbz_16.data", "Djbz_4.data");
+        GBitmap bitmap = image.get_bitmap();
+
+        for (GRectangle rect : List.of(new GRectangle(1000, 2000, 1700, 2600),
+                                       new GRectangle(2500, 4300, 3000, 4600))) {
+            GBitmap region = image.get_bitmap(rect, 1, 1, null);
+
+            assertEquals(rect.getWidth(), region.getWidth());
+            assertEquals(rect.getHeight(), region.getHeight());
+
+            for (int y = 0; y < region.getHeight(); y++) {
+                for (int x = 0; x < region.getWidth(); x++) {
+                    int expected = x + rect.xmin() < bitmap.getWidth()
+                        ? getValue(bitmap, y + rect.ymin(), x + rect.xmin()) : 0;
+                    assertEquals(expected, getValue(region, y, x));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBlitIndex() {
+        JB2Image image = readImage("Sjbz_16.data", "Djbz_4.data");
+        JB2BlitIndex index = image.getBlitIndex();
+
+        for (GRectangle rect : List.of(new GRectangle(0, 0, 2832, 4539),
+                                       new GRectangle(300, 700, 301, 1900),
+                                       new GRectangle(-50, -50, 10, 10),
+                                       new GRectangle(1000, 2000, 1700, 2600))) {
+            BitSet expected = new BitSet();
+            for (int blitno = 0; blitno < image.get_blit_count(); blitno++) {
+                JB2Blit blit = image.get_blit(blitno);
+                GBitmap bits = image.getShape(blit.getShapeno()).getBits();
+                GRectangle box = new GRectangle(blit.getLeft(), blit.getBottom(),
+                        blit.getLeft() + bits.getWidth(), blit.getBottom() + bits.getHeight());
+                if (!box.isEmpty() && box.isOverlapped(rect)) {
+                    expected.set(blitno);
+                }
+            }
+
+            assertEquals(expected, index.find(rect));
+        }
+    }
+
     @Test
     public void testFullBitmap() {
         JB2Image image = readImage("Sjbz_ddd.data", "Djbz_ddd.data");
@@ -125,4 +199,8 @@ public class TestJB2Image extends TestSupport {
         Pixmap expectedPixmap = readPixmap("Evans.png");
         assertPixmapEquals(expectedPixmap, actualPixmap);
     }
+
+    private static int getValue(GBitmap bitmap, int row, int col) {
+        return BitmapPointer.get(bitmap.rowData(row), bitmap.getDepth(), bitmap.rowOffset(row) + col);
+    }
 }
@@ -0,0 +1,76 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file.coders;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestSuffixArraySort extends TestSupport {
+
+    @Test
+    public void testRandomData() {
+        final Random random = new Random(3);
+        for (int size : new int[] {1, 2, 3, 17, 1000, 40_000}) {
+            final int[] data = new int[size];
+            for (int i = 0; i < size - 1; i++) {
+                data[i] = random.nextInt(256);
+            }
+            assertSameTransform(data);
+        }
+    }
+
+    @Test
+    public void testSmallAlphabet() {
+        final Random random = new Random(11);
+        final int[] data = new int[50_000];
+        for (int i = 0; i < data.length - 1; i++) {
+            data[i] = random.nextInt(2);
+        }
+        assertSameTransform(data);
+    }
+
+    @Test
+    public void testRepetitiveData() {
+        final int[] zeros = new int[5000];
+        assertSameTransform(zeros);
+
+        final byte[] text = "(maparea \"#463\" \"\" (rect 78 3999 1464 96 ) ) ".repeat(300)
+            .getBytes(StandardCharsets.UTF_8);
+        final int[] data = new int[text.length + 1];
+        for (int i = 0; i < text.length; i++) {
+            data[i] = text[i] & 0xFF;
+        }
+        assertSameTransform(data);
+    }
+
+    private void assertSameTransform(int[] data) {
+        final int[] expected = data.clone();
+        final int[] actual = data.clone();
+
+        final int expectedMarker = new BSort(expected, data.length).run();
+        final int actualMarker = new SuffixArraySort(actual, data.length).run();
+
+        assertEquals(expectedMarker, actualMarker);
+        assertArrayEquals(expected, actual);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.file.coders;
+
+import com.sternkn.djvu.file.DjVuFileException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestZpCodecBufferDecoder extends TestSupport {
+
+    private static final HexFormat HEX_FORMAT = HexFormat.ofDelimiter(" ");
+
+    @Test
+    public void testDecoderEndOfFileException() {
+        ZpCodecBufferDecoder zpCodec = new ZpCodecBufferDecoder(new byte[0]);
+
+        for (int ind = 0; ind < 176; ind++) {
+            assertEquals(0, zpCodec.decoder());
+        }
+
+        Exception exception = assertThrows(DjVuFileException.class, zpCodec::decoder);
+        assertEquals("End of djvu file", exception.getMessage());
+    }
+
+    @Test
+    public void testDecoderLPSNegativeWithBitContextIndexUpdate() {
+        ZpCodecBufferDecoder zpCodec = new ZpCodecBufferDecoder(HEX_FORMAT.parseHex("00 1F 23 BB FF 4F"));
+        BitContext bitContext = new BitContext(1);
+
+        assertEquals(0, zpCodec.decoder(bitContext));
+        assertEquals(4, bitContext.getValue());
+    }
+
+    @Test
+    public void testDecoderMPSPositiveWithBitContextIndexUpdate() {
+        ZpCodecBufferDecoder zpCodec = new ZpCodecBufferDecoder(HEX_FORMAT.parseHex("80 00 23 BB FF 4F"));
+        BitContext bitContext = new BitContext(1);
+
+        assertEquals(1, zpCodec.decoder(bitContext));
+        assertEquals(3, bitContext.getValue());
+    }
+
+    @Test
+    public void testDecodesSameBitsAsInputStreamDecoder() {
+        final Random random = new Random(17);
+        final byte[] data = new byte[4096];
+        random.nextBytes(data);
+
+        ZpCodecInputStream expected = new ZpCodecInputStream(new ByteArrayInputStream(data));
+        ZpCodecBufferDecoder actual = new ZpCodecBufferDecoder(data);
+
+        final BitContext[] expectedContexts = new BitContext[16];
+        final byte[] actualContexts = new byte[16];
+        for (int ind = 0; ind < expectedContexts.length; ind++) {
+            expectedContexts[ind] = new BitContext();
+        }
+
+        for (int ind = 0; ind < 40_000; ind++) {
+            final int context = random.nextInt(expectedContexts.length);
+            switch (ind % 7) {
+                case 0 -> assertEquals(expected.decoder(), actual.decoder());
+                case 1 -> assertEquals(expected.IWdecoder(), actual.IWdecoder());
+                default -> assertEquals(expected.decoder(expectedContexts[context]),
+                                        actual.decoder(actualContexts, context));
+            }
+            assertEquals(expectedContexts[context].getValue(), actualContexts[context] & 0xff);
+        }
+    }
+
+    @Test
+    public void testDecodesBufferSlice() {
+        final byte[] data = readByteBuffer("ANTz_137.data");
+        final byte[] padded = new byte[data.length + 10];
+        System.arraycopy(data, 0, padded, 3, data.length);
+
+        ByteBuffer slice = ByteBuffer.wrap(padded, 3, data.length);
+        BSByteInputStream bsByteInputStream = new BSByteInputStream(slice);
+
+        String actualData = new String(bsByteInputStream.readAllBytes(), StandardCharsets.UTF_8);
+        String expectedData = "(maparea \"#463\" \"\" (rect 78 3999 1464 96 ) (border #0000FF ) ) ";
+
+        assertEquals(expectedData, actualData);
+        assertEquals(3, slice.position());
+    }
+
+    @Test
+    public void testJB2DecodingFromBuffer() {
+        final byte[] data = readByteBuffer("Abert_Djbz_3.data");
+
+        JB2Dict expected = new JB2Dict();
+        new JB2CodecDecoder(new ByteArrayInputStream(data)).decode(expected);
+
+        JB2Dict actual = new JB2Dict();
+        new JB2CodecDecoder(ByteBuffer.wrap(data).asReadOnlyBuffer()).decode(actual);
+
+        assertEquals(expected.getShapeCount(), actual.getShapeCount());
+        for (int ind = 0; ind < expected.getShapeCount(); ind++) {
+            GBitmap expectedBits = expected.getShape(ind).getBits();
+            GBitmap actualBits = actual.getShape(ind).getBits();
+            assertArrayEquals(expectedBits.getBytesData(), actualBits.getBytesData());
+        }
+    }
+}
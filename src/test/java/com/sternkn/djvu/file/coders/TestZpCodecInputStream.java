@@ -138,6 +138,17 @@ public class TestZpCodecInputStream {
         assertEquals(3, bitContext.getValue());
     }
 
+    @Test
+    public void testDecoderWithContextTable() {
+        zpCodec = buildZpCodec("00 1F 23 BB FF 4F");
+        final byte[] contexts = {0, 0, 2};
+
+        int bit = zpCodec.decoder(contexts, 2);
+
+        assertEquals(1, bit);
+        assertEquals(3, contexts[2]);
+    }
+
     private ZpCodecInputStream buildZpCodec(String data) {
         return new ZpCodecInputStream(new ByteArrayInputStream(HEX_FORMAT.parseHex(data)));
     }
@@ -111,17 +111,19 @@ public class TestMainViewModel {
                 .withParent(rootChunk)
                 .withId(1L).withSize(1L).build();
 
-        when(djvuFile.getChunks()).thenReturn(List.of(rootChunk, childChunk));
+        when(djvuFile.getChildren(rootChunk)).thenReturn(List.of(childChunk));
 
         DirectoryChunk directoryChunk = mock(DirectoryChunk.class);
+        when(directoryChunk.getParent()).thenReturn(rootChunk);
+
         ComponentInfo component1 = mock(ComponentInfo.class);
         when(component1.getType()).thenReturn(ComponentType.PAGE);
-        when(component1.getOffset()).thenReturn(23L);
+        when(djvuFile.getComponentOffset(component1)).thenReturn(23L);
         when(component1.getId()).thenReturn("nb0001.djvu");
 
         ComponentInfo component2 = mock(ComponentInfo.class);
         when(component2.getType()).thenReturn(ComponentType.PAGE);
-        when(component2.getOffset()).thenReturn(1357L);
+        when(djvuFile.getComponentOffset(component2)).thenReturn(1357L);
         when(component2.getId()).thenReturn("nb0002.djvu");
 
         when(directoryChunk.getComponents()).thenReturn(List.of(component1, component2));
@@ -159,6 +161,10 @@ public class TestMainViewModel {
         assertEquals(fileName, viewModel.getTitle().get());
         TreeItem<ChunkTreeNode> chunkRoot = viewModel.getChunkRootNode().get();
         assertEquals(new ChunkTreeNode(rootChunk), chunkRoot.getValue());
+        assertFalse(chunkRoot.isLeaf());
+        assertEquals(List.of(new ChunkTreeNode(childChunk)),
+                chunkRoot.getChildren().stream().map(TreeItem::getValue).toList());
+        assertTrue(chunkRoot.getChildren().getFirst().isLeaf());
         assertEquals(List.of(new PageNode(new Page(23L, "nb0001.djvu"), 1),
                              new PageNode(new Page(1357L, "nb0002.djvu"), 2)),
                 viewModel.getPages().stream().toList());
@@ -21,6 +21,7 @@ import com.sternkn.djvu.file.DjVuFile;
 import com.sternkn.djvu.file.DjVuFileException;
 import com.sternkn.djvu.file.chunks.Chunk;
 import com.sternkn.djvu.file.chunks.ChunkId;
+import com.sternkn.djvu.file.chunks.ComponentType;
 import com.sternkn.djvu.file.chunks.DirectoryChunk;
 import com.sternkn.djvu.file.chunks.GRectangle;
 import com.sternkn.djvu.file.chunks.InfoChunk;
@@ -41,6 +42,7 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -49,6 +51,7 @@ import static com.sternkn.djvu.utils.ImageUtils.createBlank;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -119,6 +122,9 @@ public class TestDjVuModelImpl extends TestSupport {
         Chunk chunk = readChunk("DIRM_with_shared_annotation.data", ChunkId.DIRM);
         DirectoryChunk directoryChunk = new DirectoryChunk(chunk);
         when(djvuFile.getDirectoryChunk()).thenReturn(directoryChunk);
+        directoryChunk.getComponents().stream()
+            .filter(c -> c.getType() == ComponentType.PAGE)
+            .forEach(c -> when(djvuFile.getComponentOffset(c)).thenReturn(c.getOffset()));
 
         List<Page> pages = model.getPages();
         assertEquals(386, pages.size());
@@ -356,6 +362,93 @@ public class TestDjVuModelImpl extends TestSupport {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void testGetPageImageWithPreview() {
+        final long offset = 2798L;
+        Chunk info = createChunk(1L, ChunkId.INFO, "Yunger_revolution_INFO.data");
+        when(djvuFile.getChunkByOffset(offset)).thenReturn(info);
+
+        when(djvuFile.getAllPageChunks(info)).thenReturn(
+            Map.of(ChunkId.Sjbz, List.of(createChunk(2L, ChunkId.Sjbz, "Yunger_revolution_Sjbz.data")),
+                   ChunkId.FGbz, List.of(createChunk(3L, ChunkId.FGbz, "Yunger_revolution_FGbz.data")),
+                   ChunkId.BG44, List.of(createChunk(4L, ChunkId.BG44, "Yunger_revolution_BG44_1.data"),
+                                         createChunk(5L, ChunkId.BG44, "Yunger_revolution_BG44_2.data"),
+                                         createChunk(6L, ChunkId.BG44, "Yunger_revolution_BG44_3.data"),
+                                         createChunk(7L, ChunkId.BG44, "Yunger_revolution_BG44_4.data"))
+        ));
+
+        List<Image> previews = new ArrayList<>();
+        Image image = model.getPageImageAsync(new Page(offset, "nb0001.djvu"), previews::add);
+
+        assertEquals(1, previews.size());
+        assertTrue(previews.getFirst().getWidth() < image.getWidth());
+        assertTrue(previews.getFirst().getHeight() < image.getHeight());
+
+        Pixmap actual = new PNGPixmap(image);
+        Pixmap expected = createPixmap("Yunger_revolution.png");
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testGetPageImageForTargetSize() {
+        final long offset = 89512L;
+        Chunk info = createChunk(1L, ChunkId.INFO, "Kagan_INFO.data");
+        when(djvuFile.getChunkByOffset(offset)).thenReturn(info);
+        when(djvuFile.getAllPageChunks(info)).thenReturn(Map.of());
+
+        Image image = model.getPageImageAsync(new Page(offset, "nb0001.djvu"), 200, 260);
+
+        InfoChunk infoChunk = new InfoChunk(info);
+        int subsample = Math.min(infoChunk.getWidth() / 200, infoChunk.getHeight() / 260);
+        assertEquals((infoChunk.getWidth() + subsample - 1) / subsample, (int) image.getWidth());
+        assertEquals((infoChunk.getHeight() + subsample - 1) / subsample, (int) image.getHeight());
+    }
+
+    @Test
+    public void testGetPageImageWithMaskForTargetSize() {
+        final long offset = 2798L;
+        Chunk info = createChunk(1L, ChunkId.INFO, "Yunger_revolution_INFO.data");
+        when(djvuFile.getChunkByOffset(offset)).thenReturn(info);
+
+        when(djvuFile.getAllPageChunks(info)).thenReturn(
+            Map.of(ChunkId.Sjbz, List.of(createChunk(2L, ChunkId.Sjbz, "Yunger_revolution_Sjbz.data")),
+                   ChunkId.BG44, List.of(createChunk(4L, ChunkId.BG44, "Yunger_revolution_BG44_1.data"),
+                                         createChunk(5L, ChunkId.BG44, "Yunger_revolution_BG44_2.data"),
+                                         createChunk(6L, ChunkId.BG44, "Yunger_revolution_BG44_3.data"),
+                                         createChunk(7L, ChunkId.BG44, "Yunger_revolution_BG44_4.data"))
+        ));
+
+        Page page = new Page(offset, "nb0001.djvu");
+        Pixmap pixmap = new PNGPixmap(model.getPageImageAsync(page));
+        Pixmap reduced = new PNGPixmap(model.getPageImageAsync(page, 400, 520));
+
+        InfoChunk infoChunk = new InfoChunk(info);
+        int subsample = Math.min(infoChunk.getWidth() / 400, infoChunk.getHeight() / 520);
+        assertEquals((infoChunk.getWidth() + subsample - 1) / subsample, reduced.getWidth());
+        assertEquals((infoChunk.getHeight() + subsample - 1) / subsample, reduced.getHeight());
+
+        /*
+            The gray levels of the subsampled mask blend the foreground into the background,
+            so a reduced pixel is close to the average of the full resolution pixels it covers.
+         */
+        long difference = 0;
+        for (int y = 0; y < reduced.getHeight(); y++) {
+            for (int x = 0; x < reduced.getWidth(); x++) {
+                int total = 0;
+                int count = 0;
+                for (int sy = y * subsample; sy < Math.min((y + 1) * subsample, pixmap.getHeight()); sy++) {
+                    for (int sx = x * subsample; sx < Math.min((x + 1) * subsample, pixmap.getWidth()); sx++) {
+                        total += pixmap.getPixel(sx, sy).getGreen();
+                        count++;
+                    }
+                }
+                int green = reduced.getPixel(x, y).getGreen();
+                difference += Math.abs(total / count - green);
+            }
+        }
+        assertTrue(difference * 4 < (long) reduced.getWidth() * reduced.getHeight());
+    }
+
     @Test
     public void testGetPageBlankWhitePageForInfoChunkOnlyCase() {
         final long offset = 89512L;
@@ -0,0 +1,91 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.model;
+
+import com.sternkn.djvu.file.chunks.Chunk;
+import com.sternkn.djvu.file.chunks.ChunkId;
+import com.sternkn.djvu.file.coders.JB2Dict;
+import com.sternkn.djvu.file.coders.Pixmap;
+import com.sternkn.djvu.file.coders.TestSupport;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static com.sternkn.djvu.utils.ImageUtils.decodeJB2Image;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestJB2DictCache extends TestSupport {
+
+    @Test
+    public void testDictionaryIsDecodedOnce() {
+        JB2DictCache cache = new JB2DictCache();
+        Chunk chunk = readChunk(3L, "Abert_Djbz_3.data", ChunkId.Djbz, null, 0L);
+
+        JB2Dict dictionary = cache.get(chunk);
+
+        assertSame(dictionary, cache.get(chunk));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testEviction() {
+        JB2DictCache cache = new JB2DictCache(1);
+        Chunk first = readChunk(3L, "Abert_Djbz_3.data", ChunkId.Djbz, null, 0L);
+        Chunk second = readChunk(4L, "Djbz_4.data", ChunkId.Djbz, null, 0L);
+
+        JB2Dict dictionary = cache.get(first);
+        cache.get(second);
+
+        assertEquals(1, cache.size());
+        assertNotSame(dictionary, cache.get(first));
+    }
+
+    @Test
+    public void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new JB2DictCache(0));
+    }
+
+    @Test
+    public void testSharedDictionary() throws Exception {
+        JB2DictCache cache = new JB2DictCache();
+        Chunk chunk = readChunk(3L, "Abert_Djbz_3.data", ChunkId.Djbz, null, 0L);
+        byte[] dict = readByteBuffer("Abert_Djbz_3.data");
+        byte[] data = readByteBuffer("Abert_Sjbz_40.data");
+
+        Pixmap expected = decodeJB2Image(data, dict).get_bitmap();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            List<CompletableFuture<Pixmap>> pages = IntStream.range(0, 8)
+                .mapToObj(i -> CompletableFuture.<Pixmap>supplyAsync(
+                    () -> decodeJB2Image(data, cache.get(chunk)).get_bitmap(), executor))
+                .toList();
+
+            for (CompletableFuture<Pixmap> page : pages) {
+                assertPixmapEquals(expected, page.get());
+            }
+        }
+        assertEquals(1, cache.size());
+    }
+}
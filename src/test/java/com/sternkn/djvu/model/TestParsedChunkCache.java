@@ -0,0 +1,69 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.model;
+
+import com.sternkn.djvu.file.chunks.Chunk;
+import com.sternkn.djvu.file.chunks.ChunkId;
+import com.sternkn.djvu.file.chunks.InfoChunk;
+import com.sternkn.djvu.file.chunks.TextChunk;
+import com.sternkn.djvu.file.coders.TestSupport;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestParsedChunkCache extends TestSupport {
+
+    @Test
+    public void testChunkIsParsedOnce() {
+        ParsedChunkCache cache = new ParsedChunkCache();
+        Chunk chunk = readChunk(41L, "Abert_TXTz_41.data", ChunkId.TXTz, null, 0L);
+        AtomicInteger parseCount = new AtomicInteger();
+
+        TextChunk text = cache.get(chunk, TextChunk.class, c -> {
+            parseCount.incrementAndGet();
+            return new TextChunk(c);
+        });
+
+        assertSame(text, cache.get(chunk, TextChunk.class, TextChunk::new));
+        assertEquals(1, parseCount.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testEviction() {
+        ParsedChunkCache cache = new ParsedChunkCache(1);
+        Chunk first = readChunk(13L, "INFO_13.data", ChunkId.INFO, null, 0L);
+        Chunk second = readChunk(18L, "INFO_18.data", ChunkId.INFO, null, 0L);
+
+        InfoChunk info = cache.get(first, InfoChunk.class, InfoChunk::new);
+        cache.get(second, InfoChunk.class, InfoChunk::new);
+
+        assertEquals(1, cache.size());
+        assertNotSame(info, cache.get(first, InfoChunk.class, InfoChunk::new));
+    }
+
+    @Test
+    public void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new ParsedChunkCache(0));
+    }
+}
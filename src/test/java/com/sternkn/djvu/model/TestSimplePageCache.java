@@ -17,6 +17,7 @@
 */
 package com.sternkn.djvu.model;
 
+import javafx.scene.image.Image;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,11 +28,13 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -96,6 +99,20 @@ public class TestSimplePageCache {
                      cache.getCache().keySet());
     }
 
+    @Test
+    public void testGetFromCacheOrLoadWithPreview() {
+        Consumer<Image> preview = image -> {};
+        when(djvuModel.loadAsync(pages.get(3), preview)).thenReturn(pageData);
+
+        CompletableFuture<PageData> page = cache.getFromCacheOrLoad(pages.get(3), preview);
+
+        assertSame(pageData, page.join());
+
+        verify(djvuModel, times(1)).loadAsync(eq(pages.get(3)), eq(preview));
+        verify(djvuModel, times(4)).loadAsync(any(Page.class));
+        verify(djvuModel, never()).loadAsync(eq(pages.get(3)));
+    }
+
     @Test
     public void testGetFromCacheOrLoadFromTheEnd() {
         CompletableFuture<PageData> page = cache.getFromCacheOrLoad(pages.getLast());
@@ -0,0 +1,47 @@
+/*
+    Copyright (C) 2025 Kostya Stern
+
+    This program is free software; you can redistribute it and/or modify it
+    under the terms of the GNU General Public License as published by the Free
+    Software Foundation; either version 2 of the License, or (at your option)
+    any later version.
+
+    This program is distributed in the hope that it will be useful, but WITHOUT
+    ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+    FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+    more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc., 51
+    Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA
+*/
+package com.sternkn.djvu.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestByteBufferInputStream {
+
+    @Test
+    public void testRead() {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] {1, (byte) 0xff, 3, 4, 5, 6}, 1, 4);
+        ByteBufferInputStream stream = new ByteBufferInputStream(buffer);
+
+        assertEquals(4, stream.available());
+        assertEquals(0xff, stream.read());
+        assertEquals(1, stream.skip(1));
+
+        byte[] bytes = new byte[4];
+        assertEquals(2, stream.read(bytes, 1, 3));
+        assertArrayEquals(new byte[] {0, 4, 5, 0}, bytes);
+
+        assertEquals(-1, stream.read());
+        assertEquals(-1, stream.read(bytes, 0, 1));
+        assertEquals(0, stream.skip(10));
+        assertEquals(5, buffer.position());
+    }
+}